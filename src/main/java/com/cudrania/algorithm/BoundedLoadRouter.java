@@ -0,0 +1,148 @@
+package com.cudrania.algorithm;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 有界负载的一致性哈希路由(Consistent Hashing with Bounded Loads)<br>
+ * 在{@link HashRing}的基础上, 每个节点的负载上限为ceil((1+epsilon) * 平均负载),
+ * 数据命中的节点已满时沿哈希环顺时针选择下一个未满的节点, 从而避免热点数据使个别节点过载<br>
+ * 负载是指当前分配到节点上的数据量: 每次{@link #getTarget(Object)}分配一个单位负载,
+ * 数据处理完成后应调用{@link #release(Object)}释放<br>
+ * 负载检查和分配不是原子操作, 并发分配时节点负载可能略微超过上限
+ *
+ * @param <T>
+ * @author skyfalling
+ */
+public class BoundedLoadRouter<T> implements HashRouter<T> {
+
+    /**
+     * 哈希环
+     */
+    private final HashRing<T> ring;
+    /**
+     * 负载上限相对平均负载的放大系数
+     */
+    private final double epsilon;
+    /**
+     * 各节点当前的负载
+     */
+    private final Map<T, AtomicLong> loads = new ConcurrentHashMap<>();
+    /**
+     * 当前总负载
+     */
+    private final AtomicLong total = new AtomicLong();
+
+    /**
+     * 构造方法,指定节点和负载上限系数, 使用默认的哈希环配置
+     *
+     * @param nodes
+     * @param epsilon 负载上限相对平均负载的放大系数, 必须大于0
+     */
+    public BoundedLoadRouter(Iterable<T> nodes, double epsilon) {
+        this(new HashRing<>(nodes), epsilon);
+    }
+
+    /**
+     * 构造方法,指定哈希环和负载上限系数
+     *
+     * @param ring
+     * @param epsilon 负载上限相对平均负载的放大系数, 必须大于0
+     */
+    public BoundedLoadRouter(HashRing<T> ring, double epsilon) {
+        if (!(epsilon > 0)) {
+            throw new IllegalArgumentException("epsilon must be positive: " + epsilon);
+        }
+        this.ring = ring;
+        this.epsilon = epsilon;
+    }
+
+    /**
+     * 根据请求数据分配节点, 并为该节点增加一个单位负载
+     *
+     * @param data
+     * @return
+     */
+    @Override
+    public T getTarget(Object data) {
+        int size = ring.size();
+        if (size == 0) {
+            return null;
+        }
+        long capacity = (long) Math.ceil((1 + epsilon) * (total.get() + 1) / size);
+        T target = ring.getTarget(ring.getHashFunction().hash(data.toString()),
+                node -> load(node).get() < capacity);
+        if (target != null) {
+            load(target).incrementAndGet();
+            total.incrementAndGet();
+        }
+        return target;
+    }
+
+    /**
+     * 释放节点的一个单位负载
+     *
+     * @param node
+     */
+    public void release(T node) {
+        AtomicLong load = loads.get(node);
+        if (load != null && load.getAndUpdate(n -> n > 0 ? n - 1 : n) > 0) {
+            total.decrementAndGet();
+        }
+    }
+
+    /**
+     * 添加节点, 节点已存在时返回false
+     *
+     * @param node
+     * @return
+     */
+    public boolean addNode(T node) {
+        return ring.addNode(node);
+    }
+
+    /**
+     * 移除节点及其负载, 节点不存在时返回false
+     *
+     * @param node
+     * @return
+     */
+    public boolean removeNode(T node) {
+        if (!ring.removeNode(node)) {
+            return false;
+        }
+        AtomicLong load = loads.remove(node);
+        if (load != null) {
+            total.addAndGet(-load.get());
+        }
+        return true;
+    }
+
+    @Override
+    public List<T> getNodes() {
+        return ring.getNodes();
+    }
+
+    /**
+     * 获取各节点当前的负载
+     *
+     * @return
+     */
+    @Override
+    public Map<T, Long> getLoads() {
+        Map<T, Long> result = new LinkedHashMap<>();
+        for (T node : ring.getNodes()) {
+            AtomicLong load = loads.get(node);
+            result.put(node, load != null ? load.get() : 0L);
+        }
+        return result;
+    }
+
+    private AtomicLong load(T node) {
+        AtomicLong load = loads.get(node);
+        return load != null ? load : loads.computeIfAbsent(node, k -> new AtomicLong());
+    }
+}
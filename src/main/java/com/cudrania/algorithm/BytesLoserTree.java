@@ -0,0 +1,274 @@
+package com.cudrania.algorithm;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 字节数组的败者树, 对多个有序的字节记录数据源进行归并排序<br>
+ * 数据源按块批量读取, 默认按无符号字节顺序比较, 适用于{@link RecordReader}等二进制记录的归并
+ *
+ * @author skyfalling
+ */
+public class BytesLoserTree {
+
+    /**
+     * 数据源按块读取的默认大小
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 256;
+
+    /**
+     * 批量读取的数据源
+     */
+    @FunctionalInterface
+    public interface Source {
+
+        /**
+         * 读取记录填充到buffer中, 返回读取的记录个数, 返回值小于1表示数据源结束
+         *
+         * @param buffer
+         * @return
+         */
+        int read(byte[][] buffer);
+
+        /**
+         * 以迭代器作为数据源
+         *
+         * @param iterator
+         * @return
+         */
+        static Source of(Iterator<byte[]> iterator) {
+            return dst -> {
+                int n = 0;
+                while (n < dst.length && iterator.hasNext()) {
+                    dst[n++] = iterator.next();
+                }
+                return n;
+            };
+        }
+    }
+
+    /**
+     * 非叶子节点, 记录数据源的索引位置
+     */
+    private int[] tree;
+    /**
+     * 叶子节点, 记录每个数据源的当前数据, 为null表示数据源结束
+     */
+    private byte[][] heads;
+    /**
+     * 数据源列表
+     */
+    private Source[] sources;
+    /**
+     * 每个数据源当前的数据块
+     */
+    private byte[][][] chunks;
+    /**
+     * 数据块的读取位置
+     */
+    private int[] positions;
+    /**
+     * 数据块的有效长度
+     */
+    private int[] limits;
+    /**
+     * 记录的比较对象
+     */
+    private Comparator<byte[]> comparator;
+
+    /**
+     * 构造方法, 按无符号字节顺序归并, 使用默认的数据块大小
+     *
+     * @param sources
+     */
+    public BytesLoserTree(List<Source> sources) {
+        this(sources, RecordCodec.naturalOrder(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * 构造方法, 指定数据源、记录比较对象和数据块大小<br>
+     * 数据源的输出必须有序并且与Comparator对象的比较结果保持一致
+     *
+     * @param sources
+     * @param comparator
+     * @param chunkSize
+     */
+    public BytesLoserTree(List<Source> sources, Comparator<byte[]> comparator, int chunkSize) {
+        int size = sources.size();
+        this.sources = sources.toArray(new Source[0]);
+        this.comparator = comparator;
+        this.chunks = new byte[size][chunkSize][];
+        this.positions = new int[size];
+        this.limits = new int[size];
+        this.init();
+    }
+
+    /**
+     * 是否还有数据
+     *
+     * @return
+     */
+    public boolean hasNext() {
+        return heads.length > 0 && heads[tree[0]] != null;
+    }
+
+    /**
+     * 获取当前冠军节点, 没有数据时返回null
+     *
+     * @return
+     */
+    public byte[] top() {
+        return heads.length > 0 ? heads[tree[0]] : null;
+    }
+
+    /**
+     * 获取并移除当前冠军节点, 没有数据时返回null
+     *
+     * @return
+     */
+    public byte[] pop() {
+        if (!hasNext()) {
+            return null;
+        }
+        int winner = tree[0];
+        byte[] result = heads[winner];
+        put(winner);
+        adjust(winner);
+        return result;
+    }
+
+    /**
+     * 依次读取数据源的数据进行归并排序, 并将排序后的数据依次交给consumer处理
+     *
+     * @param consumer
+     */
+    public void merge(Consumer<byte[]> consumer) {
+        byte[] record;
+        while ((record = pop()) != null) {
+            consumer.accept(record);
+        }
+    }
+
+    /**
+     * 以Spliterator的形式输出归并结果
+     *
+     * @return
+     */
+    public Spliterator<byte[]> spliterator() {
+        return new Spliterators.AbstractSpliterator<byte[]>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.SORTED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super byte[]> action) {
+                byte[] record = pop();
+                if (record == null) {
+                    return false;
+                }
+                action.accept(record);
+                return true;
+            }
+
+            @Override
+            public Comparator<? super byte[]> getComparator() {
+                return comparator;
+            }
+        };
+    }
+
+    /**
+     * 以Stream的形式输出归并结果
+     *
+     * @return
+     */
+    public Stream<byte[]> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * 初始化构建败者树
+     */
+    private void init() {
+        int size = this.sources.length;
+        this.tree = new int[size];
+        this.heads = new byte[size][];
+        for (int i = 0; i < size; i++) {
+            this.put(i);
+        }
+        int winner = 0;
+        for (int i = 1; i < size; i++) {
+            if (beat(i, winner)) {
+                winner = i;
+            }
+        }
+        Arrays.fill(tree, winner);
+        for (int i = size - 1; i >= 0; i--)
+            adjust(i);
+    }
+
+    /**
+     * 调整第index个叶子节点, 败者留在父节点位置, 胜者继续向上比较
+     *
+     * @param index
+     */
+    private void adjust(int index) {
+        int size = this.heads.length;
+        int t = (size + index) / 2;
+        while (t > 0) {
+            if (beat(tree[t], index)) {
+                int temp = tree[t];
+                tree[t] = index;
+                index = temp;
+            }
+            t /= 2;
+        }
+        tree[0] = index;
+    }
+
+    /**
+     * 设置第index个叶子节点的下一个数据, 当前数据块读完时从数据源补充
+     *
+     * @param index
+     */
+    private void put(int index) {
+        byte[][] chunk = chunks[index];
+        if (positions[index] == limits[index]) {
+            int n = sources[index].read(chunk);
+            if (n < 1) {
+                heads[index] = null;
+                return;
+            }
+            positions[index] = 0;
+            limits[index] = n;
+        }
+        int position = positions[index]++;
+        heads[index] = chunk[position];
+        // 释放数据块对记录的引用
+        chunk[position] = null;
+    }
+
+    /**
+     * 判断index1对应的节点是否能打败index2对应的节点, 数据相等时比较分支索引以保证稳定性
+     *
+     * @param index1
+     * @param index2
+     * @return
+     */
+    private boolean beat(int index1, int index2) {
+        byte[] t1 = heads[index1];
+        byte[] t2 = heads[index2];
+        if (t1 == null)
+            return false;
+        if (t2 == null)
+            return true;
+        int n = comparator.compare(t1, t2);
+        return n != 0 ? n < 0 : index1 < index2;
+    }
+
+}
@@ -1,10 +1,19 @@
 package com.cudrania.algorithm;
 
 
+import com.cudrania.algorithm.CompiledExpression.Binary;
+import com.cudrania.algorithm.CompiledExpression.Constant;
+import com.cudrania.algorithm.CompiledExpression.Node;
+import com.cudrania.algorithm.CompiledExpression.Unary;
+import com.cudrania.algorithm.CompiledExpression.Variable;
+
 import java.util.ArrayList;
 import java.util.EmptyStackException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Stack;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 /**
@@ -24,6 +33,7 @@ import java.util.function.Function;
  * <li>SHL</li>
  * <li>SHR</li>
  * </ul>
+ * 对于需要反复求值的表达式, 可通过{@link #compile(String)}编译后使用变量绑定求值
  *
  * @author skyfalling
  */
@@ -33,13 +43,103 @@ public class Calculator {
     private static final int TOK_OPEN = 8;
     private static final int TOK_CLOSE = 16;
 
+    /**
+     * 编译结果缓存的最大数量, 超过时清空缓存
+     */
+    private static final int MAX_CACHE_SIZE = 1024;
+
+    /**
+     * 编译结果缓存, 以表达式文本为key
+     */
+    private static final Map<String, CompiledExpression> cache = new ConcurrentHashMap<>();
+
+    /**
+     * 无变量时的绑定值
+     */
+    private static final double[] EMPTY = new double[0];
+
 
     /**
      * @param expression 操作数
      * @return
      */
     public static double calculate(String expression) {
-        return doParse(tokenize(expression), Double::parseDouble);
+        return doParse(tokenize(expression), token -> new Constant(Double.parseDouble(token))).eval(EMPTY);
+    }
+
+    /**
+     * 编译表达式, 返回可重复使用且线程安全的编译结果<br>
+     * 表达式中非数字的操作数作为变量, 在求值时绑定; 只包含常量的子表达式在编译时计算<br>
+     * 编译结果以表达式文本为key进行缓存
+     *
+     * @param expression 表达式, 如: price * (1 - discount) + fee
+     * @return
+     */
+    public static CompiledExpression compile(String expression) {
+        CompiledExpression compiled = cache.get(expression);
+        if (compiled == null) {
+            compiled = doCompile(expression);
+            if (cache.size() >= MAX_CACHE_SIZE) {
+                cache.clear();
+            }
+            cache.putIfAbsent(expression, compiled);
+        }
+        return compiled;
+    }
+
+    /**
+     * 编译表达式, 并可选择将表达式生成为字节码求值
+     *
+     * @param expression 表达式
+     * @param generate   是否生成字节码, 生成失败时使用表达式树求值
+     * @return
+     * @see CompiledExpression#generate()
+     */
+    public static CompiledExpression compile(String expression, boolean generate) {
+        CompiledExpression compiled = compile(expression);
+        return generate ? compiled.generate() : compiled;
+    }
+
+    /**
+     * 编译表达式, 不使用缓存
+     *
+     * @param expression
+     * @return
+     */
+    private static CompiledExpression doCompile(String expression) {
+        List<String> variables = new ArrayList<>();
+        Node root = doParse(tokenize(expression), token -> {
+            String name = token.trim();
+            if (!isVariable(name)) {
+                return new Constant(Double.parseDouble(name));
+            }
+            int index = variables.indexOf(name);
+            if (index < 0) {
+                index = variables.size();
+                variables.add(name);
+            }
+            return new Variable(name, index);
+        });
+        return new CompiledExpression(expression, variables.toArray(new String[0]), root);
+    }
+
+    /**
+     * 判断操作数是否为变量, 变量名以字母或下划线开头, 可以包含字母、数字、下划线和"."
+     *
+     * @param token
+     * @return
+     */
+    private static boolean isVariable(String token) {
+        if (token.isEmpty() || !Character.isJavaIdentifierStart(token.charAt(0))) {
+            return false;
+        }
+        for (int i = 1; i < token.length(); i++) {
+            char c = token.charAt(i);
+            if (!Character.isJavaIdentifierPart(c) && c != '.') {
+                return false;
+            }
+        }
+        return true;
     }
 
 
@@ -61,31 +161,28 @@ public class Calculator {
      */
     private static List<String> tokenize(String input) {
         int pos = 0;
+        int length = input.length();
         int expected = TOK_OPEN | TOK_WORD;
         List<String> tokens = new ArrayList<>();
-        while (pos < input.length()) {
-            String tok = "";
+        while (pos < length) {
+            String tok;
             char c = input.charAt(pos);
             if (Character.isWhitespace(c)) {
                 pos++;
                 continue;
             }
+            int start = pos;
             if (!isOpChar(c)) {
                 if ((expected & TOK_WORD) == 0) {
-                    throw new IllegalArgumentException("Unexpected identifier: " + (tok + c));
+                    throw new IllegalArgumentException("Unexpected identifier: " + c);
                 }
                 expected = TOK_OP | TOK_OPEN | TOK_CLOSE;
-                while (!isOpChar(c) && pos < input.length()) {
-                    tok = tok + input.charAt(pos);
+                while (pos < length && !isOpChar(input.charAt(pos))) {
                     pos++;
-                    if (pos < input.length()) {
-                        c = input.charAt(pos);
-                    } else {
-                        c = 0;
-                    }
                 }
+                tok = input.substring(start, pos);
             } else if (c == '(' || c == ')') {
-                tok = tok + c;
+                tok = String.valueOf(c);
                 pos++;
                 if (c == '(' && (expected & TOK_OPEN) != 0) {
                     expected = TOK_WORD | TOK_OPEN | TOK_CLOSE;
@@ -97,31 +194,26 @@ public class Calculator {
             } else {
                 if ((expected & TOK_OP) == 0) {
                     if (c != '-' && c != '!' && c != '~') {
-                        throw new IllegalArgumentException("Missing operand:" + (tok + c));
+                        throw new IllegalArgumentException("Missing operand:" + c);
                     }
-                    tok = tok + c;
+                    tok = String.valueOf(c);
                     pos++;
                 } else {
-                    String lastOp = null;
-                    while (isOpChar(c) && !Character.isWhitespace(c) && c != '(' && c != ')' && pos < input.length()) {
-                        if (Operator.of(tok + input.charAt(pos)) != null) {
-                            tok = tok + input.charAt(pos);
-                            lastOp = tok;
-                        } else if (lastOp == null) {
-                            tok = tok + input.charAt(pos);
-                        } else {
+                    // 最长匹配的操作符的结束位置
+                    int lastOp = -1;
+                    while (pos < length && isOpChar(c) && c != '(' && c != ')') {
+                        if (Operator.of(input.substring(start, pos + 1)) != null) {
+                            lastOp = pos + 1;
+                        } else if (lastOp != -1) {
                             break;
                         }
                         pos++;
-                        if (pos < input.length()) {
-                            c = input.charAt(pos);
-                        } else {
-                            c = 0;
-                        }
+                        c = pos < length ? input.charAt(pos) : 0;
                     }
-                    if (lastOp == null) {
-                        throw new IllegalArgumentException("Bad operator:" + (tok + c));
+                    if (lastOp == -1) {
+                        throw new IllegalArgumentException("Bad operator:" + input.substring(start, Math.min(pos + 1, length)));
                     }
+                    tok = input.substring(start, lastOp);
                 }
                 expected = TOK_WORD | TOK_OPEN;
             }
@@ -132,15 +224,15 @@ public class Calculator {
 
 
     /**
-     * 生成规则树
+     * 生成表达式树
      *
      * @param tokens
      * @param generator 节点生成器
      * @return
      */
-    private static double doParse(List<String> tokens, Function<String, Double> generator) {
+    private static Node doParse(List<String> tokens, Function<String, Node> generator) {
         // 变量栈
-        Stack<Double> es = new Stack<>();
+        Stack<Node> es = new Stack<>();
         // 操作符栈
         Stack<Operator> os = new Stack<>();
         // 扫描结果
@@ -199,55 +291,112 @@ public class Calculator {
     }
 
     /**
-     * 节点运算
+     * 生成运算节点, 如果操作数均为常量, 则直接计算结果
      *
      * @param op
      * @param stack
      * @return
      */
-    private static double doOperate(Operator op, Stack<Double> stack) {
+    private static Node doOperate(Operator op, Stack<Node> stack) {
         try {
-            Double b = stack.pop();
-            Double a = null;
-            if (!op.isUnary()) {
-                a = stack.pop();
-            }
-            switch (op) {
-                case UNARY_MINUS:
-                    return -b;
-                case UNARY_BITWISE_NOT:
-                    return ~b.intValue();
-                case PLUS:
-                    return a + b;
-                case MINUS:
-                    return a - b;
-                case MULTIPLY:
-                    return a * b;
-                case POWER:
-                    return Math.pow(a, b);
-                case REMAINDER:
-                    return a % b;
-                case DIVIDE:
-                    return a / b;
-                case BITWISE_OR:
-                    return a.intValue() | b.intValue();
-                case BITWISE_AND:
-                    return a.intValue() & b.intValue();
-                case BITWISE_XOR:
-                    return a.intValue() ^ b.intValue();
-                case SHL:
-                    return a.intValue() << b.intValue();
-                case SHR:
-                    return a.intValue() >> b.intValue();
-                default:
-                    //Unsupported Operator
-                    throw new UnsupportedOperationException("Unsupported operator:" + op);
+            Node b = stack.pop();
+            if (op.isUnary()) {
+                checkSupported(op);
+                return b instanceof Constant ? new Constant(operate(op, ((Constant) b).value))
+                        : new Unary(op, b);
             }
+            Node a = stack.pop();
+            checkSupported(op);
+            return a instanceof Constant && b instanceof Constant
+                    ? new Constant(operate(op, ((Constant) a).value, ((Constant) b).value))
+                    : new Binary(op, a, b);
         } catch (EmptyStackException e) {
             throw new IllegalArgumentException("Missing operand:" + op);
         }
     }
 
+    /**
+     * 检查是否支持该运算符
+     *
+     * @param op
+     */
+    private static void checkSupported(Operator op) {
+        switch (op) {
+            case UNARY_MINUS:
+            case UNARY_BITWISE_NOT:
+            case PLUS:
+            case MINUS:
+            case MULTIPLY:
+            case POWER:
+            case REMAINDER:
+            case DIVIDE:
+            case BITWISE_OR:
+            case BITWISE_AND:
+            case BITWISE_XOR:
+            case SHL:
+            case SHR:
+                return;
+            default:
+                //Unsupported Operator
+                throw new UnsupportedOperationException("Unsupported operator:" + op);
+        }
+    }
+
+    /**
+     * 一元运算
+     *
+     * @param op
+     * @param b
+     * @return
+     */
+    static double operate(Operator op, double b) {
+        switch (op) {
+            case UNARY_MINUS:
+                return -b;
+            case UNARY_BITWISE_NOT:
+                return ~(int) b;
+            default:
+                throw new UnsupportedOperationException("Unsupported operator:" + op);
+        }
+    }
+
+    /**
+     * 二元运算
+     *
+     * @param op
+     * @param a
+     * @param b
+     * @return
+     */
+    static double operate(Operator op, double a, double b) {
+        switch (op) {
+            case PLUS:
+                return a + b;
+            case MINUS:
+                return a - b;
+            case MULTIPLY:
+                return a * b;
+            case POWER:
+                return Math.pow(a, b);
+            case REMAINDER:
+                return a % b;
+            case DIVIDE:
+                return a / b;
+            case BITWISE_OR:
+                return (int) a | (int) b;
+            case BITWISE_AND:
+                return (int) a & (int) b;
+            case BITWISE_XOR:
+                return (int) a ^ (int) b;
+            case SHL:
+                return (int) a << (int) b;
+            case SHR:
+                return (int) a >> (int) b;
+            default:
+                throw new UnsupportedOperationException("Unsupported operator:" + op);
+        }
+    }
+
 
     /**
      * 运算符枚举定义
@@ -287,6 +436,17 @@ public class Calculator {
         COMMA(",", 2, false),
         PAREN_CLOSE(")");
 
+        /**
+         * 操作符文本到操作符的映射, 文本相同时取先定义的操作符
+         */
+        private static final Map<String, Operator> OPERATORS = new HashMap<>();
+
+        static {
+            for (Operator op : values()) {
+                OPERATORS.putIfAbsent(op.expr, op);
+            }
+        }
+
         private final String expr;
         private final int argCount;
         private final boolean leftAssoc;
@@ -346,12 +506,7 @@ public class Calculator {
          * @return
          */
         public static Operator of(String expr) {
-            for (Operator op : values()) {
-                if (op.expr.equals(expr)) {
-                    return op;
-                }
-            }
-            return null;
+            return OPERATORS.get(expr);
         }
     }
 }
@@ -0,0 +1,258 @@
+package com.cudrania.algorithm;
+
+import com.cudrania.algorithm.Calculator.Operator;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 编译后的数学表达式, 由{@link Calculator#compile(String)}生成<br>
+ * 表达式在编译时解析为表达式树并完成常量折叠, 求值时只需遍历表达式树, 不再解析文本;
+ * 通过{@link #eval(double...)}求值时不会分配任何对象<br>
+ * 通过{@link #generate()}可以将表达式树生成为字节码, 以直接的JVM算术指令求值<br>
+ * 该类是不可变的, 可以在多个线程间共享
+ *
+ * @author skyfalling
+ */
+public final class CompiledExpression {
+
+    /**
+     * 表达式文本
+     */
+    private final String source;
+    /**
+     * 变量名称, 按照在表达式中首次出现的顺序排列
+     */
+    private final String[] variables;
+    /**
+     * 表达式树的根节点
+     */
+    private final Node root;
+    /**
+     * 求值器, 为表达式树本身或者生成的字节码
+     */
+    private final Evaluator evaluator;
+    /**
+     * 字节码形式的编译结果
+     */
+    private volatile CompiledExpression generated;
+
+    CompiledExpression(String source, String[] variables, Node root) {
+        this(source, variables, root, root);
+    }
+
+    private CompiledExpression(String source, String[] variables, Node root, Evaluator evaluator) {
+        this.source = source;
+        this.variables = variables;
+        this.root = root;
+        this.evaluator = evaluator;
+    }
+
+    /**
+     * 将表达式生成为字节码, 返回以生成的类求值的编译结果, 生成的类可被JIT像普通代码一样内联优化<br>
+     * 生成过程依赖javassist, 如果javassist不可用或生成失败, 则返回当前对象, 即继续使用表达式树求值<br>
+     * 注意: 生成的类不会被卸载, 只适用于数量有限且需要频繁求值的表达式
+     *
+     * @return
+     */
+    public CompiledExpression generate() {
+        if (evaluator != root || root instanceof Constant) {
+            return this;
+        }
+        CompiledExpression result = generated;
+        if (result == null) {
+            synchronized (this) {
+                result = generated;
+                if (result == null) {
+                    Evaluator bytecode;
+                    try {
+                        bytecode = ExpressionGenerator.generate(root);
+                    } catch (Throwable e) {
+                        bytecode = null;
+                    }
+                    result = bytecode != null
+                            ? new CompiledExpression(source, variables, root, bytecode) : this;
+                    generated = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 是否以生成的字节码求值
+     *
+     * @return
+     */
+    public boolean isGenerated() {
+        return evaluator != root;
+    }
+
+    /**
+     * 获取表达式文本
+     *
+     * @return
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * 获取变量名称列表, 按照在表达式中首次出现的顺序排列
+     *
+     * @return
+     */
+    public List<String> getVariables() {
+        return Collections.unmodifiableList(Arrays.asList(variables));
+    }
+
+    /**
+     * 表达式是否为常量, 即不包含任何变量
+     *
+     * @return
+     */
+    public boolean isConstant() {
+        return root instanceof Constant;
+    }
+
+    /**
+     * 按位置绑定变量并求值, 变量的顺序与{@link #getVariables()}一致
+     *
+     * @param values 变量值
+     * @return
+     */
+    public double eval(double... values) {
+        if (values.length < variables.length) {
+            throw new IllegalArgumentException("expected " + variables.length
+                    + " variables " + getVariables() + " but got " + values.length);
+        }
+        return evaluator.eval(values);
+    }
+
+    /**
+     * 按名称绑定变量并求值
+     *
+     * @param bindings 变量名称到变量值的映射
+     * @return
+     */
+    public double eval(Map<String, ? extends Number> bindings) {
+        double[] values = new double[variables.length];
+        for (int i = 0; i < variables.length; i++) {
+            Number value = bindings.get(variables[i]);
+            if (value == null) {
+                throw new IllegalArgumentException("Unbound variable: " + variables[i]);
+            }
+            values[i] = value.doubleValue();
+        }
+        return evaluator.eval(values);
+    }
+
+    /**
+     * 获取表达式树的根节点
+     *
+     * @return
+     */
+    Node getRoot() {
+        return root;
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+
+
+    /**
+     * 表达式求值器
+     */
+    interface Evaluator {
+
+        /**
+         * 计算表达式的值
+         *
+         * @param values 变量值
+         * @return
+         */
+        double eval(double[] values);
+    }
+
+    /**
+     * 表达式树节点
+     */
+    abstract static class Node implements Evaluator {
+    }
+
+    /**
+     * 常量节点
+     */
+    static final class Constant extends Node {
+        final double value;
+
+        Constant(double value) {
+            this.value = value;
+        }
+
+        @Override
+        public double eval(double[] values) {
+            return value;
+        }
+    }
+
+    /**
+     * 变量节点
+     */
+    static final class Variable extends Node {
+        final String name;
+        final int index;
+
+        Variable(String name, int index) {
+            this.name = name;
+            this.index = index;
+        }
+
+        @Override
+        public double eval(double[] values) {
+            return values[index];
+        }
+    }
+
+    /**
+     * 一元运算节点
+     */
+    static final class Unary extends Node {
+        final Operator op;
+        final Node operand;
+
+        Unary(Operator op, Node operand) {
+            this.op = op;
+            this.operand = operand;
+        }
+
+        @Override
+        public double eval(double[] values) {
+            return Calculator.operate(op, operand.eval(values));
+        }
+    }
+
+    /**
+     * 二元运算节点
+     */
+    static final class Binary extends Node {
+        final Operator op;
+        final Node left;
+        final Node right;
+
+        Binary(Operator op, Node left, Node right) {
+            this.op = op;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public double eval(double[] values) {
+            return Calculator.operate(op, left.eval(values), right.eval(values));
+        }
+    }
+}
@@ -7,9 +7,11 @@ import java.util.TreeMap;
 
 /**
  * 一致性哈希实现<br>
- * 对给定的节点进行一致性散列,同时可设虚拟节点以保持均衡分布
+ * 对给定的节点进行一致性散列,同时可设虚拟节点以保持均衡分布<br>
+ * 对于查找频繁或节点会动态变化的场景, 可使用基于有序数组和快速哈希函数的{@link HashRing}
  *
  * @author skyfalling
+ * @see HashRing
  */
 public class ConsistentHash<T> {
 
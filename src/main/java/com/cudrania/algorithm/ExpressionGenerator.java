@@ -0,0 +1,138 @@
+package com.cudrania.algorithm;
+
+import com.cudrania.algorithm.CompiledExpression.Binary;
+import com.cudrania.algorithm.CompiledExpression.Constant;
+import com.cudrania.algorithm.CompiledExpression.Evaluator;
+import com.cudrania.algorithm.CompiledExpression.Node;
+import com.cudrania.algorithm.CompiledExpression.Unary;
+import com.cudrania.algorithm.CompiledExpression.Variable;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtNewConstructor;
+import javassist.CtNewMethod;
+import javassist.LoaderClassPath;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 基于javassist将表达式树生成为字节码, 生成的类以直线式的JVM算术指令计算表达式<br>
+ * 生成的类与{@link CompiledExpression}位于同一个类加载器和包中
+ *
+ * @author skyfalling
+ */
+class ExpressionGenerator {
+
+    /**
+     * 生成类的序号
+     */
+    private static final AtomicInteger counter = new AtomicInteger();
+
+    /**
+     * 独立的ClassPool, 避免与默认ClassPool中的类相互影响
+     */
+    private static final ClassPool pool = new ClassPool(true);
+
+    static {
+        pool.appendClassPath(new LoaderClassPath(ExpressionGenerator.class.getClassLoader()));
+    }
+
+    /**
+     * 生成表达式树对应的求值器
+     *
+     * @param root 表达式树的根节点
+     * @return
+     * @throws Exception
+     */
+    static Evaluator generate(Node root) throws Exception {
+        String body = "public double eval(double[] v) { return " + toSource(root) + "; }";
+        synchronized (pool) {
+            CtClass ctClass = pool.makeClass(CompiledExpression.class.getName() + "$Generated" + counter.incrementAndGet());
+            try {
+                ctClass.addInterface(pool.get(Evaluator.class.getName()));
+                ctClass.addConstructor(CtNewConstructor.defaultConstructor(ctClass));
+                ctClass.addMethod(CtNewMethod.make(body, ctClass));
+                Class<?> clazz = ctClass.toClass(CompiledExpression.class);
+                return (Evaluator) clazz.getDeclaredConstructor().newInstance();
+            } finally {
+                ctClass.detach();
+            }
+        }
+    }
+
+    /**
+     * 将表达式树转换为java源码
+     *
+     * @param node
+     * @return
+     */
+    static String toSource(Node node) {
+        if (node instanceof Constant) {
+            return literal(((Constant) node).value);
+        }
+        if (node instanceof Variable) {
+            return "v[" + ((Variable) node).index + "]";
+        }
+        if (node instanceof Unary) {
+            Unary unary = (Unary) node;
+            String operand = toSource(unary.operand);
+            switch (unary.op) {
+                case UNARY_MINUS:
+                    return "(-" + operand + ")";
+                case UNARY_BITWISE_NOT:
+                    return "((double) ~((int) " + operand + "))";
+                default:
+                    throw new UnsupportedOperationException("Unsupported operator:" + unary.op);
+            }
+        }
+        Binary binary = (Binary) node;
+        String a = toSource(binary.left);
+        String b = toSource(binary.right);
+        switch (binary.op) {
+            case PLUS:
+                return "(" + a + " + " + b + ")";
+            case MINUS:
+                return "(" + a + " - " + b + ")";
+            case MULTIPLY:
+                return "(" + a + " * " + b + ")";
+            case DIVIDE:
+                return "(" + a + " / " + b + ")";
+            case REMAINDER:
+                return "(" + a + " % " + b + ")";
+            case POWER:
+                return "Math.pow(" + a + ", " + b + ")";
+            case BITWISE_OR:
+                return intOperate(a, "|", b);
+            case BITWISE_AND:
+                return intOperate(a, "&", b);
+            case BITWISE_XOR:
+                return intOperate(a, "^", b);
+            case SHL:
+                return intOperate(a, "<<", b);
+            case SHR:
+                return intOperate(a, ">>", b);
+            default:
+                throw new UnsupportedOperationException("Unsupported operator:" + binary.op);
+        }
+    }
+
+    /**
+     * 先转换为int再运算, 结果转换为double
+     */
+    private static String intOperate(String a, String op, String b) {
+        return "((double) (((int) " + a + ") " + op + " ((int) " + b + ")))";
+    }
+
+    /**
+     * double常量的字面量
+     */
+    private static String literal(double value) {
+        if (Double.isNaN(value)) {
+            return "Double.NaN";
+        }
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "Double.POSITIVE_INFINITY" : "Double.NEGATIVE_INFINITY";
+        }
+        String literal = Double.toString(value) + "d";
+        return literal.startsWith("-") ? "(" + literal + ")" : literal;
+    }
+}
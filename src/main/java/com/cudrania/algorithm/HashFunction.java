@@ -0,0 +1,249 @@
+package com.cudrania.algorithm;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 64位非加密哈希函数, 用于一致性哈希等需要快速散列的场景<br>
+ * 内置带种子的Murmur3(x64_128的低64位)和xxHash64实现, 实现类必须是线程安全的
+ *
+ * @author skyfalling
+ */
+@FunctionalInterface
+public interface HashFunction {
+
+    /**
+     * 计算字节数组的哈希值
+     *
+     * @param data
+     * @return
+     */
+    long hash(byte[] data);
+
+    /**
+     * 计算字符串的哈希值, 字符串按UTF-8编码
+     *
+     * @param data
+     * @return
+     */
+    default long hash(String data) {
+        return hash(data.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Murmur3哈希函数, 取x64_128结果的低64位
+     *
+     * @param seed 种子
+     * @return
+     */
+    static HashFunction murmur3(int seed) {
+        return data -> Hashes.murmur3(data, seed);
+    }
+
+    /**
+     * xxHash64哈希函数
+     *
+     * @param seed 种子
+     * @return
+     */
+    static HashFunction xxHash64(long seed) {
+        return data -> Hashes.xxHash64(data, seed);
+    }
+
+
+    /**
+     * 哈希算法实现
+     */
+    final class Hashes {
+
+        private static final long C1 = 0x87c37b91114253d5L;
+        private static final long C2 = 0x4cf5ad432745937fL;
+
+        private static final long P1 = 0x9E3779B185EBCA87L;
+        private static final long P2 = 0xC2B2AE3D27D4EB4FL;
+        private static final long P3 = 0x165667B19E3779F9L;
+        private static final long P4 = 0x85EBCA77C2B2AE63L;
+        private static final long P5 = 0x27D4EB2F165667C5L;
+
+        private Hashes() {
+        }
+
+        /**
+         * MurmurHash3 x64_128, 返回h1<br>
+         * 尾部不足16字节的部分与参考实现一样, 通过switch的逐级贯穿(fallthrough)处理
+         *
+         * @param data
+         * @param seed
+         * @return
+         */
+        @SuppressWarnings("fallthrough")
+        static long murmur3(byte[] data, int seed) {
+            int length = data.length;
+            long h1 = seed & 0xFFFFFFFFL;
+            long h2 = h1;
+            int blocks = length >>> 4;
+            for (int i = 0; i < blocks; i++) {
+                long k1 = getLong(data, i << 4);
+                long k2 = getLong(data, (i << 4) + 8);
+                h1 ^= mixK1(k1);
+                h1 = Long.rotateLeft(h1, 27) + h2;
+                h1 = h1 * 5 + 0x52dce729;
+                h2 ^= mixK2(k2);
+                h2 = Long.rotateLeft(h2, 31) + h1;
+                h2 = h2 * 5 + 0x38495ab5;
+            }
+            int tail = blocks << 4;
+            long k1 = 0;
+            long k2 = 0;
+            switch (length & 15) {
+                case 15:
+                    k2 ^= (long) (data[tail + 14] & 0xFF) << 48;
+                case 14:
+                    k2 ^= (long) (data[tail + 13] & 0xFF) << 40;
+                case 13:
+                    k2 ^= (long) (data[tail + 12] & 0xFF) << 32;
+                case 12:
+                    k2 ^= (long) (data[tail + 11] & 0xFF) << 24;
+                case 11:
+                    k2 ^= (long) (data[tail + 10] & 0xFF) << 16;
+                case 10:
+                    k2 ^= (long) (data[tail + 9] & 0xFF) << 8;
+                case 9:
+                    k2 ^= data[tail + 8] & 0xFF;
+                    h2 ^= mixK2(k2);
+                case 8:
+                    k1 ^= (long) (data[tail + 7] & 0xFF) << 56;
+                case 7:
+                    k1 ^= (long) (data[tail + 6] & 0xFF) << 48;
+                case 6:
+                    k1 ^= (long) (data[tail + 5] & 0xFF) << 40;
+                case 5:
+                    k1 ^= (long) (data[tail + 4] & 0xFF) << 32;
+                case 4:
+                    k1 ^= (long) (data[tail + 3] & 0xFF) << 24;
+                case 3:
+                    k1 ^= (long) (data[tail + 2] & 0xFF) << 16;
+                case 2:
+                    k1 ^= (long) (data[tail + 1] & 0xFF) << 8;
+                case 1:
+                    k1 ^= data[tail] & 0xFF;
+                    h1 ^= mixK1(k1);
+                default:
+                    break;
+            }
+            h1 ^= length;
+            h2 ^= length;
+            h1 += h2;
+            h2 += h1;
+            h1 = fmix64(h1);
+            h2 = fmix64(h2);
+            return h1 + h2;
+        }
+
+        /**
+         * xxHash64
+         *
+         * @param data
+         * @param seed
+         * @return
+         */
+        static long xxHash64(byte[] data, long seed) {
+            int length = data.length;
+            int offset = 0;
+            long h;
+            if (length >= 32) {
+                long v1 = seed + P1 + P2;
+                long v2 = seed + P2;
+                long v3 = seed;
+                long v4 = seed - P1;
+                int limit = length - 32;
+                do {
+                    v1 = round(v1, getLong(data, offset));
+                    v2 = round(v2, getLong(data, offset + 8));
+                    v3 = round(v3, getLong(data, offset + 16));
+                    v4 = round(v4, getLong(data, offset + 24));
+                    offset += 32;
+                } while (offset <= limit);
+                h = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7)
+                        + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+                h = mergeRound(h, v1);
+                h = mergeRound(h, v2);
+                h = mergeRound(h, v3);
+                h = mergeRound(h, v4);
+            } else {
+                h = seed + P5;
+            }
+            h += length;
+            while (offset + 8 <= length) {
+                h ^= round(0, getLong(data, offset));
+                h = Long.rotateLeft(h, 27) * P1 + P4;
+                offset += 8;
+            }
+            if (offset + 4 <= length) {
+                h ^= (getInt(data, offset) & 0xFFFFFFFFL) * P1;
+                h = Long.rotateLeft(h, 23) * P2 + P3;
+                offset += 4;
+            }
+            while (offset < length) {
+                h ^= (data[offset] & 0xFF) * P5;
+                h = Long.rotateLeft(h, 11) * P1;
+                offset++;
+            }
+            h ^= h >>> 33;
+            h *= P2;
+            h ^= h >>> 29;
+            h *= P3;
+            h ^= h >>> 32;
+            return h;
+        }
+
+        private static long mixK1(long k1) {
+            k1 *= C1;
+            k1 = Long.rotateLeft(k1, 31);
+            return k1 * C2;
+        }
+
+        private static long mixK2(long k2) {
+            k2 *= C2;
+            k2 = Long.rotateLeft(k2, 33);
+            return k2 * C1;
+        }
+
+        static long fmix64(long k) {
+            k ^= k >>> 33;
+            k *= 0xff51afd7ed558ccdL;
+            k ^= k >>> 33;
+            k *= 0xc4ceb9fe1a85ec53L;
+            k ^= k >>> 33;
+            return k;
+        }
+
+        private static long round(long acc, long input) {
+            acc += input * P2;
+            acc = Long.rotateLeft(acc, 31);
+            return acc * P1;
+        }
+
+        private static long mergeRound(long acc, long val) {
+            acc ^= round(0, val);
+            return acc * P1 + P4;
+        }
+
+        private static long getLong(byte[] data, int offset) {
+            return (data[offset] & 0xFFL)
+                    | (data[offset + 1] & 0xFFL) << 8
+                    | (data[offset + 2] & 0xFFL) << 16
+                    | (data[offset + 3] & 0xFFL) << 24
+                    | (data[offset + 4] & 0xFFL) << 32
+                    | (data[offset + 5] & 0xFFL) << 40
+                    | (data[offset + 6] & 0xFFL) << 48
+                    | (data[offset + 7] & 0xFFL) << 56;
+        }
+
+        private static int getInt(byte[] data, int offset) {
+            return (data[offset] & 0xFF)
+                    | (data[offset + 1] & 0xFF) << 8
+                    | (data[offset + 2] & 0xFF) << 16
+                    | (data[offset + 3] & 0xFF) << 24;
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package com.cudrania.algorithm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * 基于有序数组的一致性哈希环<br>
+ * 虚拟节点的哈希值存储在有序的long数组中, 查找时使用二分查找; 哈希函数可替换, 默认为Murmur3<br>
+ * 节点的增删采用写时复制, 新的哈希环构建完成后原子发布, 查找过程无锁且不会被拓扑变化阻塞, 该类是线程安全的<br>
+ * 每个节点的命中次数记录在{@link LongAdder}中, 可通过{@link #getLoads()}获取
+ *
+ * @param <T>
+ * @author skyfalling
+ * @see ConsistentHash
+ */
+public class HashRing<T> implements HashRouter<T> {
+
+    /**
+     * 每个节点默认的虚拟节点数
+     */
+    public static final int DEFAULT_VIRTUAL_NODES = 160;
+
+    /**
+     * 哈希函数
+     */
+    private final HashFunction hashFunction;
+    /**
+     * 每个节点对应的虚拟节点数
+     */
+    private final int virtualNodes;
+    /**
+     * 当前发布的哈希环
+     */
+    private final AtomicReference<Ring> ring = new AtomicReference<>(Ring.EMPTY);
+
+    /**
+     * 构造方法,指定需要散列的节点, 使用默认的虚拟节点数和Murmur3哈希函数
+     *
+     * @param nodes
+     */
+    public HashRing(Iterable<T> nodes) {
+        this(nodes, DEFAULT_VIRTUAL_NODES, HashFunction.murmur3(0));
+    }
+
+    /**
+     * 构造方法,指定需要散列的节点、每个节点对应的虚拟节点数以及哈希函数
+     *
+     * @param nodes
+     * @param virtualNodes 每个节点所对应的虚拟节点数,如果值小于1,则默认为1
+     * @param hashFunction 哈希函数
+     */
+    public HashRing(Iterable<T> nodes, int virtualNodes, HashFunction hashFunction) {
+        this.virtualNodes = Math.max(1, virtualNodes);
+        this.hashFunction = hashFunction;
+        for (T node : nodes) {
+            addNode(node);
+        }
+    }
+
+    @Override
+    public T getTarget(Object data) {
+        return getTarget(hashFunction.hash(data.toString()));
+    }
+
+    /**
+     * 根据请求数据的哈希值获取命中的节点, 即顺时针方向第一个不小于该哈希值的虚拟节点, 没有节点时返回null
+     *
+     * @param hash
+     * @return
+     */
+    public T getTarget(long hash) {
+        return getTarget(hash, null);
+    }
+
+    /**
+     * 根据请求数据的哈希值获取命中的节点, 从顺时针方向第一个不小于该哈希值的虚拟节点开始,
+     * 依次查找第一个满足条件的节点, 没有满足条件的节点时返回null
+     *
+     * @param hash
+     * @param accept 节点的筛选条件, 为null时不做筛选
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    T getTarget(long hash, Predicate<T> accept) {
+        Ring current = ring.get();
+        long[] points = current.points;
+        if (points.length == 0) {
+            return null;
+        }
+        int index = Arrays.binarySearch(points, hash);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        for (int i = 0; i < points.length; i++, index++) {
+            if (index == points.length) {
+                index = 0;
+            }
+            int owner = current.owners[index];
+            T node = (T) current.nodes[owner];
+            if (accept == null || accept.test(node)) {
+                current.loads[owner].increment();
+                return node;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 添加节点, 节点已存在时返回false
+     *
+     * @param node
+     * @return
+     */
+    public boolean addNode(T node) {
+        long[] added = virtualPoints(node);
+        Ring current;
+        Ring updated;
+        do {
+            current = ring.get();
+            if (current.indexOf(node) >= 0) {
+                return false;
+            }
+            updated = current.add(node, added);
+        } while (!ring.compareAndSet(current, updated));
+        return true;
+    }
+
+    /**
+     * 移除节点, 节点不存在时返回false
+     *
+     * @param node
+     * @return
+     */
+    public boolean removeNode(T node) {
+        Ring current;
+        Ring updated;
+        do {
+            current = ring.get();
+            int index = current.indexOf(node);
+            if (index < 0) {
+                return false;
+            }
+            updated = current.remove(index);
+        } while (!ring.compareAndSet(current, updated));
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<T> getNodes() {
+        List<T> nodes = new ArrayList<>();
+        for (Object node : ring.get().nodes) {
+            nodes.add((T) node);
+        }
+        return Collections.unmodifiableList(nodes);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<T, Long> getLoads() {
+        Ring current = ring.get();
+        Map<T, Long> loads = new LinkedHashMap<>();
+        for (int i = 0; i < current.nodes.length; i++) {
+            loads.put((T) current.nodes[i], current.loads[i].sum());
+        }
+        return loads;
+    }
+
+    /**
+     * 获取哈希函数
+     *
+     * @return
+     */
+    HashFunction getHashFunction() {
+        return hashFunction;
+    }
+
+    /**
+     * 获取当前节点数
+     *
+     * @return
+     */
+    int size() {
+        return ring.get().nodes.length;
+    }
+
+    /**
+     * 计算节点对应的虚拟节点哈希值, 返回有序数组
+     *
+     * @param node
+     * @return
+     */
+    private long[] virtualPoints(T node) {
+        String key = node.toString();
+        long[] points = new long[virtualNodes];
+        for (int i = 0; i < virtualNodes; i++) {
+            points[i] = hashFunction.hash(key + "#" + i);
+        }
+        Arrays.sort(points);
+        return points;
+    }
+
+
+    /**
+     * 不可变的哈希环快照
+     */
+    private static final class Ring {
+
+        static final Ring EMPTY = new Ring(new long[0], new int[0], new Object[0], new LongAdder[0]);
+
+        /**
+         * 有序的虚拟节点哈希值
+         */
+        final long[] points;
+        /**
+         * 虚拟节点所属节点在nodes中的索引
+         */
+        final int[] owners;
+        /**
+         * 实际节点
+         */
+        final Object[] nodes;
+        /**
+         * 实际节点的负载计数
+         */
+        final LongAdder[] loads;
+
+        Ring(long[] points, int[] owners, Object[] nodes, LongAdder[] loads) {
+            this.points = points;
+            this.owners = owners;
+            this.nodes = nodes;
+            this.loads = loads;
+        }
+
+        int indexOf(Object node) {
+            for (int i = 0; i < nodes.length; i++) {
+                if (nodes[i].equals(node)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * 合并新节点的虚拟节点, 哈希值冲突时保留已有的虚拟节点
+         */
+        Ring add(Object node, long[] added) {
+            int owner = nodes.length;
+            Object[] newNodes = Arrays.copyOf(nodes, owner + 1);
+            newNodes[owner] = node;
+            LongAdder[] newLoads = Arrays.copyOf(loads, owner + 1);
+            newLoads[owner] = new LongAdder();
+            long[] newPoints = new long[points.length + added.length];
+            int[] newOwners = new int[newPoints.length];
+            int i = 0, j = 0, n = 0;
+            while (i < points.length || j < added.length) {
+                if (j == added.length || (i < points.length && points[i] <= added[j])) {
+                    if (j < added.length && points[i] == added[j]) {
+                        j++;
+                    }
+                    newPoints[n] = points[i];
+                    newOwners[n++] = owners[i++];
+                } else {
+                    if (n > 0 && newPoints[n - 1] == added[j]) {
+                        j++;
+                        continue;
+                    }
+                    newPoints[n] = added[j++];
+                    newOwners[n++] = owner;
+                }
+            }
+            return new Ring(Arrays.copyOf(newPoints, n), Arrays.copyOf(newOwners, n), newNodes, newLoads);
+        }
+
+        /**
+         * 移除第index个节点的全部虚拟节点
+         */
+        Ring remove(int index) {
+            Object[] newNodes = new Object[nodes.length - 1];
+            System.arraycopy(nodes, 0, newNodes, 0, index);
+            System.arraycopy(nodes, index + 1, newNodes, index, newNodes.length - index);
+            LongAdder[] newLoads = new LongAdder[newNodes.length];
+            System.arraycopy(loads, 0, newLoads, 0, index);
+            System.arraycopy(loads, index + 1, newLoads, index, newLoads.length - index);
+            long[] newPoints = new long[points.length];
+            int[] newOwners = new int[points.length];
+            int n = 0;
+            for (int i = 0; i < points.length; i++) {
+                int owner = owners[i];
+                if (owner != index) {
+                    newPoints[n] = points[i];
+                    newOwners[n++] = owner > index ? owner - 1 : owner;
+                }
+            }
+            return new Ring(Arrays.copyOf(newPoints, n), Arrays.copyOf(newOwners, n), newNodes, newLoads);
+        }
+    }
+}
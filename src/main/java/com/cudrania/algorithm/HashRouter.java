@@ -0,0 +1,42 @@
+package com.cudrania.algorithm;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按数据的哈希值将请求路由到节点的策略, 实现类必须是线程安全的<br>
+ * 内置实现:
+ * <ul>
+ * <li>{@link HashRing}: 基于虚拟节点的一致性哈希环</li>
+ * <li>{@link JumpHashRouter}: 跳跃一致性哈希, 不需要额外内存</li>
+ * <li>{@link RendezvousRouter}: 支持权重的最高随机权重(HRW)哈希</li>
+ * <li>{@link BoundedLoadRouter}: 有界负载的一致性哈希</li>
+ * </ul>
+ *
+ * @param <T>
+ * @author skyfalling
+ */
+public interface HashRouter<T> {
+
+    /**
+     * 根据请求数据获取命中的节点, 没有节点时返回null
+     *
+     * @param data
+     * @return
+     */
+    T getTarget(Object data);
+
+    /**
+     * 获取当前全部节点
+     *
+     * @return
+     */
+    List<T> getNodes();
+
+    /**
+     * 获取各节点的负载计数, 即节点被命中的次数
+     *
+     * @return
+     */
+    Map<T, Long> getLoads();
+}
@@ -0,0 +1,289 @@
+package com.cudrania.algorithm;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * int类型的败者树, 对多个升序的int数据源进行归并排序<br>
+ * 与{@link LoserTree}不同, 叶子节点以int数组存储, 数据源按块批量读取, 整个归并过程不产生装箱对象
+ *
+ * @author skyfalling
+ */
+public class IntLoserTree {
+
+    /**
+     * 数据源按块读取的默认大小
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1024;
+
+    /**
+     * 批量读取的数据源
+     */
+    @FunctionalInterface
+    public interface Source {
+
+        /**
+         * 读取数据填充到buffer中, 返回读取的数据个数, 返回值小于1表示数据源结束
+         *
+         * @param buffer
+         * @return
+         */
+        int read(int[] buffer);
+
+        /**
+         * 以IntBuffer剩余的数据作为数据源
+         *
+         * @param buffer
+         * @return
+         */
+        static Source of(IntBuffer buffer) {
+            return dst -> {
+                int n = Math.min(buffer.remaining(), dst.length);
+                buffer.get(dst, 0, n);
+                return n;
+            };
+        }
+    }
+
+    /**
+     * 非叶子节点, 记录数据源的索引位置
+     */
+    private int[] tree;
+    /**
+     * 叶子节点, 记录每个数据源的当前数据
+     */
+    private int[] heads;
+    /**
+     * 数据源是否已结束
+     */
+    private boolean[] ended;
+    /**
+     * 数据源列表, 为null表示数据源为数组, 数据已全部在数据块中
+     */
+    private Source[] sources;
+    /**
+     * 每个数据源当前的数据块
+     */
+    private int[][] chunks;
+    /**
+     * 数据块的读取位置
+     */
+    private int[] positions;
+    /**
+     * 数据块的有效长度
+     */
+    private int[] limits;
+
+    /**
+     * 构造方法, 对多个升序数组进行归并, 直接读取数组而不复制数据
+     *
+     * @param arrays
+     */
+    public IntLoserTree(int[]... arrays) {
+        int size = arrays.length;
+        this.sources = new Source[size];
+        this.chunks = arrays.clone();
+        this.positions = new int[size];
+        this.limits = new int[size];
+        for (int i = 0; i < size; i++) {
+            this.limits[i] = arrays[i].length;
+        }
+        this.init();
+    }
+
+    /**
+     * 构造方法, 对多个升序数据源进行归并, 使用默认的数据块大小
+     *
+     * @param sources
+     */
+    public IntLoserTree(List<Source> sources) {
+        this(sources, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * 构造方法, 对多个升序数据源进行归并, 每个数据源按chunkSize大小批量读取
+     *
+     * @param sources
+     * @param chunkSize
+     */
+    public IntLoserTree(List<Source> sources, int chunkSize) {
+        int size = sources.size();
+        this.sources = sources.toArray(new Source[0]);
+        this.chunks = new int[size][chunkSize];
+        this.positions = new int[size];
+        this.limits = new int[size];
+        this.init();
+    }
+
+    /**
+     * 是否还有数据
+     *
+     * @return
+     */
+    public boolean hasNext() {
+        return heads.length > 0 && !ended[tree[0]];
+    }
+
+    /**
+     * 获取当前冠军节点
+     *
+     * @return
+     */
+    public int top() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return heads[tree[0]];
+    }
+
+    /**
+     * 获取并移除当前冠军节点
+     *
+     * @return
+     */
+    public int pop() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        int winner = tree[0];
+        int result = heads[winner];
+        put(winner);
+        adjust(winner);
+        return result;
+    }
+
+    /**
+     * 依次读取数据源的数据进行归并排序, 并将排序后的数据依次交给consumer处理
+     *
+     * @param consumer
+     */
+    public void merge(IntConsumer consumer) {
+        while (hasNext()) {
+            consumer.accept(pop());
+        }
+    }
+
+    /**
+     * 以Spliterator的形式输出归并结果
+     *
+     * @return
+     */
+    public Spliterator.OfInt spliterator() {
+        return new Spliterators.AbstractIntSpliterator(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.SORTED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(IntConsumer action) {
+                if (!hasNext()) {
+                    return false;
+                }
+                action.accept(pop());
+                return true;
+            }
+
+            @Override
+            public void forEachRemaining(IntConsumer action) {
+                merge(action);
+            }
+
+            @Override
+            public Comparator<? super Integer> getComparator() {
+                return null;
+            }
+        };
+    }
+
+    /**
+     * 以IntStream的形式输出归并结果
+     *
+     * @return
+     */
+    public IntStream stream() {
+        return StreamSupport.intStream(spliterator(), false);
+    }
+
+    /**
+     * 初始化构建败者树
+     */
+    private void init() {
+        int size = this.chunks.length;
+        this.tree = new int[size];
+        this.heads = new int[size];
+        this.ended = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            this.put(i);
+        }
+        int winner = 0;
+        for (int i = 1; i < size; i++) {
+            if (beat(i, winner)) {
+                winner = i;
+            }
+        }
+        Arrays.fill(tree, winner);
+        for (int i = size - 1; i >= 0; i--)
+            adjust(i);
+    }
+
+    /**
+     * 调整第index个叶子节点, 败者留在父节点位置, 胜者继续向上比较
+     *
+     * @param index
+     */
+    private void adjust(int index) {
+        int size = this.heads.length;
+        int t = (size + index) / 2;
+        while (t > 0) {
+            if (beat(tree[t], index)) {
+                int temp = tree[t];
+                tree[t] = index;
+                index = temp;
+            }
+            t /= 2;
+        }
+        tree[0] = index;
+    }
+
+    /**
+     * 设置第index个叶子节点的下一个数据, 当前数据块读完时从数据源补充
+     *
+     * @param index
+     */
+    private void put(int index) {
+        if (positions[index] == limits[index]) {
+            Source source = sources[index];
+            int n = source != null ? source.read(chunks[index]) : 0;
+            if (n < 1) {
+                ended[index] = true;
+                return;
+            }
+            positions[index] = 0;
+            limits[index] = n;
+        }
+        heads[index] = chunks[index][positions[index]++];
+    }
+
+    /**
+     * 判断index1对应的节点是否能打败index2对应的节点, 数据相等时比较分支索引以保证稳定性
+     *
+     * @param index1
+     * @param index2
+     * @return
+     */
+    private boolean beat(int index1, int index2) {
+        if (ended[index1])
+            return false;
+        if (ended[index2])
+            return true;
+        int v1 = heads[index1];
+        int v2 = heads[index2];
+        return v1 != v2 ? v1 < v2 : index1 < index2;
+    }
+
+}
@@ -0,0 +1,178 @@
+package com.cudrania.algorithm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 跳跃一致性哈希(Jump Consistent Hash)路由<br>
+ * 根据数据的哈希值直接计算桶的序号, 除节点列表外不需要额外内存, 分布均匀且计算开销极小<br>
+ * 注意: 在末尾添加或移除节点时只有约1/n的数据迁移; 移除中间节点会使其后所有节点的序号前移, 迁移量较大,
+ * 因此适用于节点只在末尾增减的场景
+ *
+ * @param <T>
+ * @author skyfalling
+ */
+public class JumpHashRouter<T> implements HashRouter<T> {
+
+    /**
+     * 哈希函数
+     */
+    private final HashFunction hashFunction;
+    /**
+     * 当前节点及负载计数
+     */
+    private final AtomicReference<Buckets> buckets = new AtomicReference<>(new Buckets(new Object[0], new LongAdder[0]));
+
+    /**
+     * 构造方法,指定节点, 使用Murmur3哈希函数
+     *
+     * @param nodes
+     */
+    public JumpHashRouter(Iterable<T> nodes) {
+        this(nodes, HashFunction.murmur3(0));
+    }
+
+    /**
+     * 构造方法,指定节点和哈希函数
+     *
+     * @param nodes
+     * @param hashFunction
+     */
+    public JumpHashRouter(Iterable<T> nodes, HashFunction hashFunction) {
+        this.hashFunction = hashFunction;
+        for (T node : nodes) {
+            addNode(node);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T getTarget(Object data) {
+        Buckets current = buckets.get();
+        int size = current.nodes.length;
+        if (size == 0) {
+            return null;
+        }
+        int bucket = jump(hashFunction.hash(data.toString()), size);
+        current.loads[bucket].increment();
+        return (T) current.nodes[bucket];
+    }
+
+    /**
+     * 在末尾添加节点, 节点已存在时返回false
+     *
+     * @param node
+     * @return
+     */
+    public boolean addNode(T node) {
+        Buckets current;
+        Buckets updated;
+        do {
+            current = buckets.get();
+            if (current.indexOf(node) >= 0) {
+                return false;
+            }
+            int size = current.nodes.length;
+            Object[] nodes = Arrays.copyOf(current.nodes, size + 1);
+            LongAdder[] loads = Arrays.copyOf(current.loads, size + 1);
+            nodes[size] = node;
+            loads[size] = new LongAdder();
+            updated = new Buckets(nodes, loads);
+        } while (!buckets.compareAndSet(current, updated));
+        return true;
+    }
+
+    /**
+     * 移除节点, 节点不存在时返回false
+     *
+     * @param node
+     * @return
+     */
+    public boolean removeNode(T node) {
+        Buckets current;
+        Buckets updated;
+        do {
+            current = buckets.get();
+            int index = current.indexOf(node);
+            if (index < 0) {
+                return false;
+            }
+            int size = current.nodes.length - 1;
+            Object[] nodes = new Object[size];
+            LongAdder[] loads = new LongAdder[size];
+            System.arraycopy(current.nodes, 0, nodes, 0, index);
+            System.arraycopy(current.nodes, index + 1, nodes, index, size - index);
+            System.arraycopy(current.loads, 0, loads, 0, index);
+            System.arraycopy(current.loads, index + 1, loads, index, size - index);
+            updated = new Buckets(nodes, loads);
+        } while (!buckets.compareAndSet(current, updated));
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<T> getNodes() {
+        List<T> nodes = new ArrayList<>();
+        for (Object node : buckets.get().nodes) {
+            nodes.add((T) node);
+        }
+        return Collections.unmodifiableList(nodes);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<T, Long> getLoads() {
+        Buckets current = buckets.get();
+        Map<T, Long> loads = new LinkedHashMap<>();
+        for (int i = 0; i < current.nodes.length; i++) {
+            loads.put((T) current.nodes[i], current.loads[i].sum());
+        }
+        return loads;
+    }
+
+    /**
+     * 跳跃一致性哈希算法, 计算哈希值对应的桶序号
+     *
+     * @param key     哈希值
+     * @param buckets 桶的个数
+     * @return [0, buckets)之间的序号
+     */
+    public static int jump(long key, int buckets) {
+        long b = -1;
+        long j = 0;
+        while (j < buckets) {
+            b = j;
+            key = key * 2862933555777941757L + 1;
+            j = (long) ((b + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+        }
+        return (int) b;
+    }
+
+    /**
+     * 不可变的节点快照
+     */
+    private static final class Buckets {
+        final Object[] nodes;
+        final LongAdder[] loads;
+
+        Buckets(Object[] nodes, LongAdder[] loads) {
+            this.nodes = nodes;
+            this.loads = loads;
+        }
+
+        int indexOf(Object node) {
+            for (int i = 0; i < nodes.length; i++) {
+                if (nodes[i].equals(node)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
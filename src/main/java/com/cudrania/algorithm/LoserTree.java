@@ -5,6 +5,7 @@ import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * 败者树,对多个有序的数据源进行归并排序<br>
@@ -67,6 +68,21 @@ public class LoserTree<T> {
         return list;
     }
 
+    /**
+     * 依次读取数据源的数据进行归并排序, 并将排序后的数据依次交给consumer处理<br>
+     * 与{@link #merge()}不同, 该方法不会缓存归并结果
+     *
+     * @param consumer
+     */
+    public void merge(Consumer<? super T> consumer) {
+        T top;
+        while ((top = get(tree[0])) != null) {
+            consumer.accept(top);
+            put(tree[0]);
+            adjust(tree[0]);
+        }
+    }
+
     /**
      * 获取并移除当前冠军节点<br>
      *
@@ -1,26 +1,49 @@
 package com.cudrania.algorithm;
 
+import com.cudrania.core.exception.ExceptionChecker;
 import com.cudrania.core.io.Closer;
+import com.cudrania.core.utils.TimeCounter;
+import lombok.Getter;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.Closeable;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 /**
- * 支持海量数据排序的工具类,支持对超大文件或数据源的排序,支持对多个有序文件或数据源的合并
+ * 支持海量数据排序的工具类,支持对超大文件或数据源的排序,支持对多个有序文件或数据源的合并<br>
+ * 除两路归并的{@link #sort(File, File)}外, 还提供并行外排序模式{@link #sortParallel(File, File)}:
+ * 分段数据在ForkJoin线程池中并行排序, 然后使用{@link LoserTree}进行K路归并
  *
  * @author skyfalling
  */
 public class MassSorter {
 
+    /**
+     * 字符串的默认比较规则
+     */
+    private static final Comparator<String> NATURAL_ORDER = String::compareTo;
+
     /**
      * 用于进行字符串比较的对象,可以改变字符串的比较规则
      */
@@ -31,6 +54,41 @@ public class MassSorter {
      */
     private int maxBufferSize;
 
+    /**
+     * K路归并时单次归并的最大文件数
+     */
+    private int fanIn = 512;
+
+    /**
+     * 临时文件目录, 为null时使用系统临时目录
+     */
+    private File tempDir;
+
+    /**
+     * 并行排序使用的线程池
+     */
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    /**
+     * 临时文件的记录编解码规则, 为null时临时文件采用UTF-8编码的文本格式
+     */
+    private RecordCodec codec;
+
+    /**
+     * 字节形式排序时使用的比较器
+     */
+    private Comparator<byte[]> byteComparator;
+
+    /**
+     * 并行排序时源文件和目标文件的字符集
+     */
+    private Charset charset = StandardCharsets.UTF_8;
+
+    /**
+     * 字节形式读写时的缓冲区大小
+     */
+    private int bufferSize = RecordReader.DEFAULT_BUFFER_SIZE;
+
     /**
      * 构造方法, 指定一次加载的最大数据量, 同时指定字符串的比较规则
      *
@@ -48,7 +106,86 @@ public class MassSorter {
      * @param maxBufferSize 一次可以加载的最大数据量
      */
     public MassSorter(int maxBufferSize) {
-        this(maxBufferSize, (str1, str2) -> str1.compareTo(str1));
+        this(maxBufferSize, NATURAL_ORDER);
+    }
+
+    /**
+     * 设置K路归并时单次归并的最大文件数, 分段文件数不超过该值时只需一趟归并
+     *
+     * @param fanIn 单次归并的最大文件数, 最小为2
+     * @return
+     */
+    public MassSorter withFanIn(int fanIn) {
+        ExceptionChecker.throwIf(fanIn < 2, "fanIn must be greater than 1: " + fanIn);
+        this.fanIn = fanIn;
+        return this;
+    }
+
+    /**
+     * 设置临时文件目录
+     *
+     * @param tempDir
+     * @return
+     */
+    public MassSorter withTempDir(File tempDir) {
+        this.tempDir = tempDir;
+        return this;
+    }
+
+    /**
+     * 设置并行排序时源文件和目标文件的字符集, 默认为UTF-8<br>
+     * 设置了记录编解码规则时按字节识别换行符, 字符集需兼容ASCII
+     *
+     * @param charset
+     * @return
+     */
+    public MassSorter withCharset(Charset charset) {
+        this.charset = charset;
+        return this;
+    }
+
+    /**
+     * 设置并行排序使用的线程池
+     *
+     * @param pool
+     * @return
+     */
+    public MassSorter withPool(ForkJoinPool pool) {
+        this.pool = pool;
+        return this;
+    }
+
+    /**
+     * 设置临时文件的记录编解码规则, 设置后{@link #sortParallel(File, File)}将以字节形式读写数据
+     *
+     * @param codec
+     * @return
+     */
+    public MassSorter withCodec(RecordCodec codec) {
+        this.codec = codec;
+        return this;
+    }
+
+    /**
+     * 设置字节形式排序时使用的比较器, 未设置时根据字符串比较规则决定是否直接比较字节
+     *
+     * @param byteComparator
+     * @return
+     */
+    public MassSorter withByteComparator(Comparator<byte[]> byteComparator) {
+        this.byteComparator = byteComparator;
+        return this;
+    }
+
+    /**
+     * 设置字节形式读写时每个文件通道的直接缓冲区大小, K路归并时将同时分配fanIn个缓冲区
+     *
+     * @param bufferSize
+     * @return
+     */
+    public MassSorter withBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+        return this;
     }
 
     /**
@@ -76,7 +213,7 @@ public class MassSorter {
                 File file1 = files.remove(0);
                 File file2 = files.remove(0);
                 try {
-                    File file3 = File.createTempFile("~.tmp", "");
+                    File file3 = createTempFile();
                     sort(file1, file2, file3);
                     files.add(file3);
                 } finally {
@@ -94,6 +231,244 @@ public class MassSorter {
         }
     }
 
+    /**
+     * 并行外排序, 将文件srcFile内容排序写入到destFile中<br>
+     * 如果设置了记录编解码规则, 则以字节形式读取文本行, 临时文件按编解码规则读写, 整个过程不涉及字符集编解码
+     *
+     * @param srcFile
+     * @param destFile
+     * @return 各阶段的耗时统计
+     * @throws Exception
+     * @see #withCodec(RecordCodec)
+     */
+    public SortReport sortParallel(File srcFile, File destFile) throws Exception {
+        if (codec == null) {
+            return sortParallel(new InputStreamReader(new FileInputStream(srcFile), charset), destFile);
+        }
+        RecordReader source = new RecordReader(srcFile, RecordCodec.lines(), bufferSize);
+        try {
+            return sortParallel(source, byteComparator(), new BinaryRunFormat(),
+                    new BinaryRunWriter(new RecordWriter(destFile, RecordCodec.lines(), bufferSize)));
+        } finally {
+            Closer.close(source);
+        }
+    }
+
+    /**
+     * 并行外排序, 读取reader对象的数据排序后按{@link #withCharset(Charset)}指定的字符集写入到文件destFile中, 临时文件采用UTF-8编码的文本格式
+     *
+     * @param reader
+     * @param destFile
+     * @return 各阶段的耗时统计
+     * @throws Exception
+     */
+    public SortReport sortParallel(Reader reader, File destFile) throws Exception {
+        try {
+            BufferedReader source = new BufferedReader(reader);
+            return sortParallel(source.lines().iterator(), comparator, new TextRunFormat(),
+                    new TextRunWriter(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(destFile), charset))));
+        } finally {
+            Closer.close(reader);
+        }
+    }
+
+    /**
+     * 并行外排序的执行过程<br>
+     * 分段阶段顺序读取数据, 每段数据提交到线程池中排序并写入临时文件, 同时处理的分段数不超过线程池的并行度;
+     * 归并阶段使用败者树对临时文件进行K路归并, 临时文件数不超过fanIn时, 分段之后的数据只需读写一次
+     *
+     * @param source     数据源
+     * @param comparator 记录的比较规则
+     * @param format     临时文件的读写方式
+     * @param dest       排序结果的写对象
+     * @return 各阶段的耗时统计
+     * @throws Exception
+     */
+    private <T> SortReport sortParallel(Iterator<T> source, Comparator<T> comparator, RunFormat<T> format,
+                                        RunWriter<T> dest) throws Exception {
+        SortReport report = new SortReport();
+        TimeCounter counter = new TimeCounter();
+        List<File> files = Collections.emptyList();
+        try {
+            files = splitParallel(source, comparator, format);
+            report.runs = files.size();
+            report.splitTime = counter.timePassed();
+            counter.start();
+            while (files.size() > fanIn) {
+                files = mergeParallel(files, comparator, format);
+                report.passes++;
+            }
+            merge(files, comparator, format, dest);
+            report.passes++;
+        } finally {
+            //merge正常结束时已关闭dest, 此处保证任一阶段失败时dest也被关闭
+            Closer.close(dest);
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        report.mergeTime = counter.timePassed();
+        return report;
+    }
+
+    /**
+     * 分段读取数据源, 并在线程池中并行排序, 返回有序文件列表<br>
+     * 每段的数据量按并行度均分最大加载量, 以保证同时加载的数据总量不超过最大加载量
+     *
+     * @param source
+     * @param comparator
+     * @param format
+     * @return
+     * @throws Exception
+     */
+    private <T> List<File> splitParallel(Iterator<T> source, Comparator<T> comparator, RunFormat<T> format)
+            throws Exception {
+        int parallelism = pool.getParallelism();
+        int chunkSize = Math.max(1, maxBufferSize * 2 / (parallelism + 1));
+        List<ForkJoinTask<File>> tasks = new ArrayList<>();
+        Deque<ForkJoinTask<File>> running = new ArrayDeque<>();
+        try {
+            do {
+                List<T> data = new ArrayList<>(chunkSize);
+                for (int i = 0; i < chunkSize && source.hasNext(); i++) {
+                    data.add(source.next());
+                }
+                if (data.isEmpty())
+                    break;
+                while (running.size() >= parallelism) {
+                    running.poll().join();
+                }
+                ForkJoinTask<File> task = pool.submit(() -> {
+                    data.sort(comparator);
+                    File tmpFile = createTempFile();
+                    try (RunWriter<T> writer = format.writer(tmpFile)) {
+                        for (T record : data) {
+                            writer.write(record);
+                        }
+                    }
+                    return tmpFile;
+                });
+                tasks.add(task);
+                running.add(task);
+            } while (true);
+            List<File> files = new ArrayList<>(tasks.size());
+            for (ForkJoinTask<File> task : tasks) {
+                files.add(task.join());
+            }
+            return files;
+        } catch (Throwable e) {
+            for (ForkJoinTask<File> task : tasks) {
+                try {
+                    task.join().delete();
+                } catch (Throwable ignored) {
+                    //ignore
+                }
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 将有序文件按fanIn分组, 在线程池中并行归并, 返回归并后的有序文件列表
+     *
+     * @param files
+     * @param comparator
+     * @param format
+     * @return
+     */
+    private <T> List<File> mergeParallel(List<File> files, Comparator<T> comparator, RunFormat<T> format) {
+        List<ForkJoinTask<File>> tasks = new ArrayList<>();
+        for (int i = 0; i < files.size(); i += fanIn) {
+            List<File> group = files.subList(i, Math.min(i + fanIn, files.size()));
+            tasks.add(pool.submit(() -> {
+                File tmpFile = createTempFile();
+                try {
+                    merge(group, comparator, format, format.writer(tmpFile));
+                } finally {
+                    for (File file : group) {
+                        file.delete();
+                    }
+                }
+                return tmpFile;
+            }));
+        }
+        List<File> merged = new ArrayList<>(tasks.size());
+        Throwable error = null;
+        for (ForkJoinTask<File> task : tasks) {
+            try {
+                merged.add(task.join());
+            } catch (Throwable e) {
+                error = e;
+            }
+        }
+        if (error != null) {
+            for (File file : merged) {
+                file.delete();
+            }
+            throw ExceptionChecker.throwException(error);
+        }
+        return merged;
+    }
+
+    /**
+     * 使用败者树对多个有序文件进行K路归并, 结果写入writer对象
+     *
+     * @param files
+     * @param comparator
+     * @param format
+     * @param writer
+     * @throws Exception
+     */
+    private <T> void merge(List<File> files, Comparator<T> comparator, RunFormat<T> format, RunWriter<T> writer)
+            throws Exception {
+        List<RunReader<T>> readers = new ArrayList<>(files.size());
+        try {
+            for (File file : files) {
+                readers.add(format.reader(file));
+            }
+            if (!readers.isEmpty()) {
+                LoserTree<T> tree = new LoserTree<>(new ArrayList<>(readers), comparator);
+                T record;
+                while ((record = tree.pop()) != null) {
+                    writer.write(record);
+                }
+            }
+        } finally {
+            for (RunReader<T> reader : readers) {
+                Closer.close(reader);
+            }
+            writer.close();
+        }
+    }
+
+    /**
+     * 字节形式排序时使用的比较器<br>
+     * 优先使用指定的字节比较器; UTF-8编码且字符串采用默认比较规则时, 直接按无符号字节比较; 否则先解码为字符串再比较
+     *
+     * @return
+     */
+    private Comparator<byte[]> byteComparator() {
+        if (byteComparator != null) {
+            return byteComparator;
+        }
+        if (charset.equals(StandardCharsets.UTF_8)
+                && (comparator == NATURAL_ORDER || comparator == Comparator.<String>naturalOrder())) {
+            return RecordCodec.naturalOrder();
+        }
+        Charset charset = this.charset;
+        return (b1, b2) -> comparator.compare(new String(b1, charset), new String(b2, charset));
+    }
+
+    /**
+     * 在临时目录中创建临时文件
+     *
+     * @return
+     * @throws Exception
+     */
+    private File createTempFile() throws Exception {
+        return File.createTempFile("~.tmp", "", tempDir);
+    }
+
     /**
      * 分段读取reader对象的数据并排序, 返回有序文件列表
      *
@@ -111,7 +486,7 @@ public class MassSorter {
                 if (data.isEmpty())
                     break;
                 Collections.sort(data, comparator);
-                File tmpFile = File.createTempFile("~.tmp", "");
+                File tmpFile = createTempFile();
                 files.add(tmpFile);
                 write(data, new BufferedWriter(new FileWriter(tmpFile)), true);
             } while (true);
@@ -230,4 +605,168 @@ public class MassSorter {
 
         }
     }
+
+    /**
+     * 临时文件的读写方式
+     */
+    private interface RunFormat<T> {
+
+        RunWriter<T> writer(File file) throws IOException;
+
+        RunReader<T> reader(File file) throws IOException;
+    }
+
+    /**
+     * 记录的写对象
+     */
+    private interface RunWriter<T> extends Closeable {
+
+        void write(T record) throws IOException;
+    }
+
+    /**
+     * 记录的读对象
+     */
+    private interface RunReader<T> extends Iterator<T>, Closeable {
+    }
+
+    /**
+     * UTF-8编码的文本格式
+     */
+    private static class TextRunFormat implements RunFormat<String> {
+
+        @Override
+        public RunWriter<String> writer(File file) throws IOException {
+            return new TextRunWriter(new BufferedWriter(
+                    new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)));
+        }
+
+        @Override
+        public RunReader<String> reader(File file) throws IOException {
+            BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+            Iterator<String> lines = reader.lines().iterator();
+            return new RunReader<String>() {
+                @Override
+                public boolean hasNext() {
+                    return lines.hasNext();
+                }
+
+                @Override
+                public String next() {
+                    return lines.next();
+                }
+
+                @Override
+                public void close() throws IOException {
+                    reader.close();
+                }
+            };
+        }
+    }
+
+    /**
+     * 文本行的写对象
+     */
+    private static class TextRunWriter implements RunWriter<String> {
+
+        private final BufferedWriter writer;
+
+        TextRunWriter(BufferedWriter writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void write(String record) throws IOException {
+            writer.write(record);
+            writer.newLine();
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+    }
+
+    /**
+     * 按记录编解码规则读写的二进制格式
+     */
+    private class BinaryRunFormat implements RunFormat<byte[]> {
+
+        @Override
+        public RunWriter<byte[]> writer(File file) throws IOException {
+            return new BinaryRunWriter(new RecordWriter(file, codec, bufferSize));
+        }
+
+        @Override
+        public RunReader<byte[]> reader(File file) throws IOException {
+            RecordReader reader = new RecordReader(file, codec, bufferSize);
+            return new RunReader<byte[]>() {
+                @Override
+                public boolean hasNext() {
+                    return reader.hasNext();
+                }
+
+                @Override
+                public byte[] next() {
+                    return reader.next();
+                }
+
+                @Override
+                public void close() throws IOException {
+                    reader.close();
+                }
+            };
+        }
+    }
+
+    /**
+     * 二进制记录的写对象
+     */
+    private static class BinaryRunWriter implements RunWriter<byte[]> {
+
+        private final RecordWriter writer;
+
+        BinaryRunWriter(RecordWriter writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void write(byte[] record) throws IOException {
+            writer.write(record);
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+    }
+
+    /**
+     * 并行外排序的统计信息
+     */
+    @Getter
+    public static class SortReport {
+        /**
+         * 分段排序阶段耗时, 单位毫秒
+         */
+        private long splitTime;
+        /**
+         * 归并阶段耗时, 单位毫秒
+         */
+        private long mergeTime;
+        /**
+         * 分段生成的有序文件数
+         */
+        private int runs;
+        /**
+         * 归并的趟数
+         */
+        private int passes;
+
+        @Override
+        public String toString() {
+            return "split: " + splitTime + "ms, merge: " + mergeTime + "ms, runs: " + runs + ", passes: " + passes;
+        }
+    }
 }
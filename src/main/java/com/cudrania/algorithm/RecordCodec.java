@@ -0,0 +1,257 @@
+package com.cudrania.algorithm;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * 记录的二进制编解码规则, 用于以字节形式读写排序数据, 避免字符集编解码的开销<br>
+ * 内置四种实现:
+ * <ul>
+ * <li>{@link #lines()}: 以换行符分隔的记录, 即普通文本行</li>
+ * <li>{@link #lengthPrefixed()}: 4字节长度前缀 + 原始字节</li>
+ * <li>{@link #fixedWidth(int)}: 定长记录, 以记录的实际长度为前缀, 不足部分以0补齐</li>
+ * <li>{@link #zeroPadded(int)}: 定长记录, 不足部分以0补齐, 解码时去除末尾的0, 适用于不含0字节的文本记录</li>
+ * </ul>
+ *
+ * @author skyfalling
+ */
+public interface RecordCodec {
+
+    /**
+     * 记录编码后的字节数
+     *
+     * @param record
+     * @return
+     */
+    int encodedSize(byte[] record);
+
+    /**
+     * 将记录编码写入缓冲区, 调用方需保证缓冲区剩余空间不小于{@link #encodedSize(byte[])}
+     *
+     * @param record
+     * @param buffer
+     */
+    void encode(byte[] record, ByteBuffer buffer);
+
+    /**
+     * 从缓冲区当前位置解码一条记录<br>
+     * 如果缓冲区剩余数据不足一条完整记录, 则不移动缓冲区位置并返回null
+     *
+     * @param buffer 待解码的缓冲区
+     * @param eof    是否已到达数据末尾, 即缓冲区之后不会再有数据
+     * @return 解码的记录, 数据不足或没有数据时返回null
+     */
+    byte[] decode(ByteBuffer buffer, boolean eof);
+
+
+    /**
+     * 以换行符分隔的记录, 解码时会去除行尾的"\r"
+     *
+     * @return
+     */
+    static RecordCodec lines() {
+        return LineCodec.INSTANCE;
+    }
+
+    /**
+     * 以4字节长度为前缀的变长记录
+     *
+     * @return
+     */
+    static RecordCodec lengthPrefixed() {
+        return LengthPrefixedCodec.INSTANCE;
+    }
+
+    /**
+     * 定长记录, 每条记录占用固定的字节数: 记录的实际长度(width不超过255时1字节, 否则2字节)+ 以0补齐至width的记录内容<br>
+     * 解码后的记录与编码前完全一致, 适用于以0结尾的二进制键
+     *
+     * @param width 记录的最大字节数, 不超过65535
+     * @return
+     */
+    static RecordCodec fixedWidth(int width) {
+        return new FixedWidthCodec(width, false);
+    }
+
+    /**
+     * 定长记录, 编码时不足width的部分以0补齐, 解码时去除末尾的0<br>
+     * 由于0是最小的字节值, 补齐后的字节序与原始记录的字节序一致; 但以0结尾的记录解码后会丢失末尾的0, 只适用于不含0字节的文本记录
+     *
+     * @param width 记录的字节数
+     * @return
+     */
+    static RecordCodec zeroPadded(int width) {
+        return new FixedWidthCodec(width, true);
+    }
+
+    /**
+     * 按无符号字节逐位比较的比较器<br>
+     * 对于UTF-8编码的字符串, 该顺序与字符的码点顺序一致
+     *
+     * @return
+     */
+    static Comparator<byte[]> naturalOrder() {
+        return Arrays::compareUnsigned;
+    }
+
+
+    /**
+     * 以换行符分隔的记录
+     */
+    final class LineCodec implements RecordCodec {
+
+        private static final LineCodec INSTANCE = new LineCodec();
+
+        @Override
+        public int encodedSize(byte[] record) {
+            return record.length + 1;
+        }
+
+        @Override
+        public void encode(byte[] record, ByteBuffer buffer) {
+            buffer.put(record).put((byte) '\n');
+        }
+
+        @Override
+        public byte[] decode(ByteBuffer buffer, boolean eof) {
+            int start = buffer.position();
+            int limit = buffer.limit();
+            for (int i = start; i < limit; i++) {
+                if (buffer.get(i) == '\n') {
+                    byte[] record = read(buffer, start, i > start && buffer.get(i - 1) == '\r' ? i - 1 : i);
+                    buffer.position(i + 1);
+                    return record;
+                }
+            }
+            if (eof && start < limit) {
+                byte[] record = read(buffer, start, limit);
+                buffer.position(limit);
+                return record;
+            }
+            return null;
+        }
+
+        private static byte[] read(ByteBuffer buffer, int from, int to) {
+            byte[] record = new byte[to - from];
+            ByteBuffer slice = buffer.duplicate();
+            slice.position(from);
+            slice.get(record);
+            return record;
+        }
+    }
+
+    /**
+     * 以4字节长度为前缀的变长记录
+     */
+    final class LengthPrefixedCodec implements RecordCodec {
+
+        private static final LengthPrefixedCodec INSTANCE = new LengthPrefixedCodec();
+
+        @Override
+        public int encodedSize(byte[] record) {
+            return record.length + 4;
+        }
+
+        @Override
+        public void encode(byte[] record, ByteBuffer buffer) {
+            buffer.putInt(record.length).put(record);
+        }
+
+        @Override
+        public byte[] decode(ByteBuffer buffer, boolean eof) {
+            int remaining = buffer.remaining();
+            if (remaining >= 4) {
+                int length = buffer.getInt(buffer.position());
+                if (remaining >= length + 4) {
+                    byte[] record = new byte[length];
+                    buffer.position(buffer.position() + 4);
+                    buffer.get(record);
+                    return record;
+                }
+            }
+            if (eof && remaining > 0) {
+                throw new IllegalStateException("truncated record: " + remaining + " bytes left");
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 定长记录
+     */
+    final class FixedWidthCodec implements RecordCodec {
+
+        private final int width;
+        /**
+         * 是否以去除末尾0的方式确定记录长度, 否则以长度前缀确定
+         */
+        private final boolean padded;
+        /**
+         * 长度前缀的字节数
+         */
+        private final int prefix;
+
+        private FixedWidthCodec(int width, boolean padded) {
+            if (width < 1) {
+                throw new IllegalArgumentException("width must be positive: " + width);
+            }
+            if (!padded && width > 0xFFFF) {
+                throw new IllegalArgumentException("width cannot be greater than 65535: " + width);
+            }
+            this.width = width;
+            this.padded = padded;
+            this.prefix = padded ? 0 : width > 0xFF ? 2 : 1;
+        }
+
+        @Override
+        public int encodedSize(byte[] record) {
+            return prefix + width;
+        }
+
+        @Override
+        public void encode(byte[] record, ByteBuffer buffer) {
+            if (record.length > width) {
+                throw new IllegalArgumentException("record length " + record.length + " exceeds width " + width);
+            }
+            if (prefix == 1) {
+                buffer.put((byte) record.length);
+            } else if (prefix == 2) {
+                buffer.putShort((short) record.length);
+            }
+            buffer.put(record);
+            for (int i = record.length; i < width; i++) {
+                buffer.put((byte) 0);
+            }
+        }
+
+        @Override
+        public byte[] decode(ByteBuffer buffer, boolean eof) {
+            int remaining = buffer.remaining();
+            if (remaining >= prefix + width) {
+                int start = buffer.position();
+                int length;
+                if (padded) {
+                    length = width;
+                    while (length > 0 && buffer.get(start + length - 1) == 0) {
+                        length--;
+                    }
+                } else {
+                    length = prefix == 1 ? buffer.get(start) & 0xFF : buffer.getShort(start) & 0xFFFF;
+                    if (length > width) {
+                        throw new IllegalStateException("record length " + length + " exceeds width " + width);
+                    }
+                }
+                byte[] record = new byte[length];
+                buffer.position(start + prefix);
+                buffer.get(record);
+                buffer.position(start + prefix + width);
+                return record;
+            }
+            if (eof && remaining > 0) {
+                throw new IllegalStateException("truncated record: " + remaining + " bytes left");
+            }
+            return null;
+        }
+    }
+}
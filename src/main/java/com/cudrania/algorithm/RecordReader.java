@@ -0,0 +1,124 @@
+package com.cudrania.algorithm;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * 基于{@link FileChannel}和直接缓冲区的记录读取类, 按照{@link RecordCodec}的规则逐条读取记录<br>
+ * 记录以字节数组的形式返回, 不涉及字符集解码; 超过缓冲区大小的记录会自动扩容缓冲区
+ *
+ * @author skyfalling
+ */
+public class RecordReader implements Iterator<byte[]>, Closeable {
+
+    /**
+     * 默认缓冲区大小
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 18;
+
+    private final FileChannel channel;
+    private final RecordCodec codec;
+    private ByteBuffer buffer;
+    /**
+     * 文件是否已读取完毕
+     */
+    private boolean eof;
+    /**
+     * 预读的下一条记录
+     */
+    private byte[] next;
+
+    /**
+     * 构造方法, 使用默认缓冲区大小
+     *
+     * @param file
+     * @param codec
+     * @throws IOException
+     */
+    public RecordReader(File file, RecordCodec codec) throws IOException {
+        this(file, codec, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * 构造方法, 指定文件、编解码规则和缓冲区大小
+     *
+     * @param file
+     * @param codec
+     * @param bufferSize
+     * @throws IOException
+     */
+    public RecordReader(File file, RecordCodec codec, int bufferSize) throws IOException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        this.codec = codec;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        this.buffer.flip();
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            next = fetch();
+        }
+        return next != null;
+    }
+
+    @Override
+    public byte[] next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        byte[] record = next;
+        next = null;
+        return record;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * 读取下一条记录, 缓冲区数据不足时从文件中补充
+     *
+     * @return
+     */
+    private byte[] fetch() {
+        try {
+            while (true) {
+                byte[] record = codec.decode(buffer, eof);
+                if (record != null || eof) {
+                    return record;
+                }
+                fill();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 保留缓冲区中未解码的数据, 并从文件中补充数据
+     *
+     * @throws IOException
+     */
+    private void fill() throws IOException {
+        buffer.compact();
+        if (!buffer.hasRemaining()) {
+            ByteBuffer larger = ByteBuffer.allocateDirect(buffer.capacity() * 2);
+            buffer.flip();
+            larger.put(buffer);
+            buffer = larger;
+        }
+        if (channel.read(buffer) < 0) {
+            eof = true;
+        }
+        buffer.flip();
+    }
+}
@@ -0,0 +1,94 @@
+package com.cudrania.algorithm;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 基于{@link FileChannel}和直接缓冲区的记录写入类, 按照{@link RecordCodec}的规则逐条写入记录
+ *
+ * @author skyfalling
+ */
+public class RecordWriter implements Closeable {
+
+    private final FileChannel channel;
+    private final RecordCodec codec;
+    private final ByteBuffer buffer;
+
+    /**
+     * 构造方法, 使用默认缓冲区大小
+     *
+     * @param file
+     * @param codec
+     * @throws IOException
+     */
+    public RecordWriter(File file, RecordCodec codec) throws IOException {
+        this(file, codec, RecordReader.DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * 构造方法, 指定文件、编解码规则和缓冲区大小, 文件已存在时将被覆盖
+     *
+     * @param file
+     * @param codec
+     * @param bufferSize
+     * @throws IOException
+     */
+    public RecordWriter(File file, RecordCodec codec, int bufferSize) throws IOException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        this.codec = codec;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    /**
+     * 写入一条记录
+     *
+     * @param record
+     * @throws IOException
+     */
+    public void write(byte[] record) throws IOException {
+        int size = codec.encodedSize(record);
+        if (buffer.remaining() < size) {
+            flush();
+        }
+        if (size > buffer.capacity()) {
+            // 超过缓冲区大小的记录单独写入
+            ByteBuffer large = ByteBuffer.allocate(size);
+            codec.encode(record, large);
+            large.flip();
+            writeFully(large);
+        } else {
+            codec.encode(record, buffer);
+        }
+    }
+
+    /**
+     * 将缓冲区的数据写入文件
+     *
+     * @throws IOException
+     */
+    public void flush() throws IOException {
+        buffer.flip();
+        writeFully(buffer);
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void writeFully(ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) {
+            channel.write(data);
+        }
+    }
+}
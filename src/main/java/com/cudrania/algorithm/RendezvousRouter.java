@@ -0,0 +1,208 @@
+package com.cudrania.algorithm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 最高随机权重(Rendezvous/HRW)哈希路由, 支持节点权重<br>
+ * 对每个节点计算数据的得分, 选择得分最高的节点; 得分采用-weight/ln(u)的形式, 其中u为数据和节点的哈希值映射到(0,1)的均匀值,
+ * 这样每个节点命中的概率与其权重成正比<br>
+ * 增删节点时只有该节点上的数据发生迁移, 单次查找的开销与节点数成正比, 适用于节点数不多的场景
+ *
+ * @param <T>
+ * @author skyfalling
+ */
+public class RendezvousRouter<T> implements HashRouter<T> {
+
+    /**
+     * 哈希函数
+     */
+    private final HashFunction hashFunction;
+    /**
+     * 当前节点、权重及负载计数
+     */
+    private final AtomicReference<Nodes> nodes = new AtomicReference<>(
+            new Nodes(new Object[0], new long[0], new double[0], new LongAdder[0]));
+
+    /**
+     * 构造方法,指定节点, 每个节点的权重均为1, 使用Murmur3哈希函数
+     *
+     * @param nodes
+     */
+    public RendezvousRouter(Iterable<T> nodes) {
+        this(HashFunction.murmur3(0));
+        for (T node : nodes) {
+            addNode(node, 1);
+        }
+    }
+
+    /**
+     * 构造方法,指定节点及其权重, 使用Murmur3哈希函数
+     *
+     * @param weights 节点及其权重
+     */
+    public RendezvousRouter(Map<T, ? extends Number> weights) {
+        this(HashFunction.murmur3(0));
+        for (Map.Entry<T, ? extends Number> entry : weights.entrySet()) {
+            addNode(entry.getKey(), entry.getValue().doubleValue());
+        }
+    }
+
+    /**
+     * 构造方法,指定哈希函数, 节点通过{@link #addNode(Object, double)}添加
+     *
+     * @param hashFunction
+     */
+    public RendezvousRouter(HashFunction hashFunction) {
+        this.hashFunction = hashFunction;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T getTarget(Object data) {
+        Nodes current = nodes.get();
+        int size = current.nodes.length;
+        if (size == 0) {
+            return null;
+        }
+        long hash = hashFunction.hash(data.toString());
+        int target = 0;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < size; i++) {
+            long h = HashFunction.Hashes.fmix64(hash ^ current.seeds[i]);
+            // 取高53位映射到(0,1)
+            double u = ((h >>> 11) + 0.5) * 0x1.0p-53;
+            double score = -current.weights[i] / Math.log(u);
+            if (score > max) {
+                max = score;
+                target = i;
+            }
+        }
+        current.loads[target].increment();
+        return (T) current.nodes[target];
+    }
+
+    /**
+     * 添加节点并指定权重, 节点已存在时更新其权重
+     *
+     * @param node
+     * @param weight 节点权重, 必须大于0
+     */
+    public void addNode(T node, double weight) {
+        if (!(weight > 0)) {
+            throw new IllegalArgumentException("weight must be positive: " + weight);
+        }
+        long seed = hashFunction.hash(node.toString());
+        Nodes current;
+        Nodes updated;
+        do {
+            current = nodes.get();
+            int index = current.indexOf(node);
+            if (index >= 0) {
+                double[] weights = current.weights.clone();
+                weights[index] = weight;
+                updated = new Nodes(current.nodes, current.seeds, weights, current.loads);
+            } else {
+                int size = current.nodes.length;
+                Object[] newNodes = Arrays.copyOf(current.nodes, size + 1);
+                long[] seeds = Arrays.copyOf(current.seeds, size + 1);
+                double[] weights = Arrays.copyOf(current.weights, size + 1);
+                LongAdder[] loads = Arrays.copyOf(current.loads, size + 1);
+                newNodes[size] = node;
+                seeds[size] = seed;
+                weights[size] = weight;
+                loads[size] = new LongAdder();
+                updated = new Nodes(newNodes, seeds, weights, loads);
+            }
+        } while (!nodes.compareAndSet(current, updated));
+    }
+
+    /**
+     * 移除节点, 节点不存在时返回false
+     *
+     * @param node
+     * @return
+     */
+    public boolean removeNode(T node) {
+        Nodes current;
+        Nodes updated;
+        do {
+            current = nodes.get();
+            int index = current.indexOf(node);
+            if (index < 0) {
+                return false;
+            }
+            int size = current.nodes.length - 1;
+            Object[] newNodes = new Object[size];
+            long[] seeds = new long[size];
+            double[] weights = new double[size];
+            LongAdder[] loads = new LongAdder[size];
+            for (int i = 0, j = 0; i <= size; i++) {
+                if (i != index) {
+                    newNodes[j] = current.nodes[i];
+                    seeds[j] = current.seeds[i];
+                    weights[j] = current.weights[i];
+                    loads[j++] = current.loads[i];
+                }
+            }
+            updated = new Nodes(newNodes, seeds, weights, loads);
+        } while (!nodes.compareAndSet(current, updated));
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<T> getNodes() {
+        List<T> list = new ArrayList<>();
+        for (Object node : nodes.get().nodes) {
+            list.add((T) node);
+        }
+        return Collections.unmodifiableList(list);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<T, Long> getLoads() {
+        Nodes current = nodes.get();
+        Map<T, Long> loads = new LinkedHashMap<>();
+        for (int i = 0; i < current.nodes.length; i++) {
+            loads.put((T) current.nodes[i], current.loads[i].sum());
+        }
+        return loads;
+    }
+
+    /**
+     * 不可变的节点快照
+     */
+    private static final class Nodes {
+        final Object[] nodes;
+        /**
+         * 节点的哈希值, 与数据的哈希值混合后计算得分
+         */
+        final long[] seeds;
+        final double[] weights;
+        final LongAdder[] loads;
+
+        Nodes(Object[] nodes, long[] seeds, double[] weights, LongAdder[] loads) {
+            this.nodes = nodes;
+            this.seeds = seeds;
+            this.weights = weights;
+            this.loads = loads;
+        }
+
+        int indexOf(Object node) {
+            for (int i = 0; i < nodes.length; i++) {
+                if (nodes[i].equals(node)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
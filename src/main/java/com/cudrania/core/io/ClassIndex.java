@@ -0,0 +1,202 @@
+package com.cudrania.core.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * jar包中全部类的{@link ClassInfo}索引<p>
+ * 索引以jar包的校验和为键缓存在内存中, 并可保存在索引目录下的"校验和.idx"文件中; 校验和由jar包目录中各条目的名称、CRC和大小计算,
+ * 只需读取jar包的目录. 路径、大小和修改时间均未变化的jar包直接使用上次计算的校验和, 不再打开
+ *
+ * @author skyfalling
+ */
+class ClassIndex {
+
+    /**
+     * 索引文件的格式标识和版本
+     */
+    private static final int MAGIC = 0x434C5349;
+    private static final int VERSION = 1;
+
+    /**
+     * jar包的路径、大小和修改时间到校验和的映射
+     */
+    private static final Map<String, String> checksums = new ConcurrentHashMap<>();
+    /**
+     * 校验和到索引的映射
+     */
+    private static final Map<String, List<ClassInfo>> indexes = new ConcurrentHashMap<>();
+
+    private ClassIndex() {
+    }
+
+    /**
+     * 获取jar包的索引
+     *
+     * @param jar
+     * @param indexDir 索引目录, 为null时不保存索引文件
+     * @return
+     * @throws IOException
+     */
+    static List<ClassInfo> of(File jar, File indexDir) throws IOException {
+        String stamp = jar.getAbsolutePath() + '|' + jar.length() + '|' + jar.lastModified();
+        String checksum = checksums.get(stamp);
+        List<ClassInfo> index = checksum == null ? null : indexes.get(checksum);
+        if (index != null) {
+            return index;
+        }
+        try (JarFile jarFile = new JarFile(jar, false)) {
+            checksum = checksum(jarFile);
+            checksums.put(stamp, checksum);
+            index = indexes.get(checksum);
+            File indexFile = indexDir == null ? null : new File(indexDir, checksum + ".idx");
+            if (index == null && indexFile != null) {
+                index = load(indexFile);
+            }
+            if (index == null) {
+                index = build(jarFile);
+                if (indexFile != null) {
+                    save(index, indexFile);
+                }
+            }
+            indexes.put(checksum, index);
+            return index;
+        }
+    }
+
+    /**
+     * 解析jar包中的全部类, 不包括META-INF下的类和module-info
+     *
+     * @param jarFile
+     * @return
+     * @throws IOException
+     */
+    static List<ClassInfo> build(JarFile jarFile) throws IOException {
+        List<ClassInfo> index = new ArrayList<>();
+        Enumeration<JarEntry> entries = jarFile.entries();
+        while (entries.hasMoreElements()) {
+            JarEntry entry = entries.nextElement();
+            String name = entry.getName();
+            if (entry.isDirectory() || !name.endsWith(".class") || name.startsWith("META-INF/") || name.endsWith("module-info.class")) {
+                continue;
+            }
+            try (InputStream in = new BufferedInputStream(jarFile.getInputStream(entry))) {
+                index.add(ClassInfo.read(in));
+            } catch (IOException e) {
+                //忽略无法解析的文件
+            }
+        }
+        return Collections.unmodifiableList(index);
+    }
+
+    /**
+     * 清空内存中的索引
+     */
+    static void clear() {
+        checksums.clear();
+        indexes.clear();
+    }
+
+    /**
+     * 根据jar包目录中各条目的名称、CRC和大小计算校验和
+     *
+     * @param jarFile
+     * @return
+     */
+    private static String checksum(JarFile jarFile) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] buffer = new byte[16];
+        Enumeration<JarEntry> entries = jarFile.entries();
+        while (entries.hasMoreElements()) {
+            JarEntry entry = entries.nextElement();
+            digest.update(entry.getName().getBytes(StandardCharsets.UTF_8));
+            long crc = entry.getCrc();
+            long size = entry.getSize();
+            for (int i = 0; i < 8; i++) {
+                buffer[i] = (byte) (crc >>> (i * 8));
+                buffer[i + 8] = (byte) (size >>> (i * 8));
+            }
+            digest.update(buffer);
+        }
+        StringBuilder sb = new StringBuilder();
+        for (byte b : digest.digest()) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 读取索引文件, 文件不存在或者格式不符时返回null
+     *
+     * @param file
+     * @return
+     */
+    private static List<ClassInfo> load(File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            int count = in.readInt();
+            List<ClassInfo> index = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                index.add(ClassInfo.readFrom(in));
+            }
+            return Collections.unmodifiableList(index);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 保存索引文件, 先写入临时文件再重命名, 保存失败时忽略
+     *
+     * @param index
+     * @param file
+     */
+    private static void save(List<ClassInfo> index, File file) {
+        File temp = null;
+        try {
+            Files.createParent(file);
+            temp = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(index.size());
+                for (ClassInfo info : index) {
+                    info.writeTo(out);
+                }
+            }
+            java.nio.file.Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            if (temp != null) {
+                temp.delete();
+            }
+        }
+    }
+}
@@ -0,0 +1,316 @@
+package com.cudrania.core.io;
+
+import lombok.Getter;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 从class文件头部解析的类信息, 包括类名、访问标志、直接父类、直接实现的接口和类上的注解(不含SOURCE级别)<p>
+ * 解析时不加载类, 也不解析字段和方法的内容, 适用于在加载之前过滤类; 类名均为{@link Class#getName()}的形式
+ *
+ * @author skyfalling
+ */
+@Getter
+public class ClassInfo {
+
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_INTERFACE = 0x0200;
+    private static final int ACC_ABSTRACT = 0x0400;
+    private static final int ACC_ANNOTATION = 0x2000;
+    private static final int ACC_ENUM = 0x4000;
+
+    /**
+     * 类名
+     */
+    private final String name;
+    /**
+     * 访问标志
+     */
+    private final int access;
+    /**
+     * 直接父类, java.lang.Object的父类为null
+     */
+    private final String superName;
+    /**
+     * 直接实现的接口
+     */
+    private final List<String> interfaces;
+    /**
+     * 类上的注解类型
+     */
+    private final List<String> annotations;
+
+    ClassInfo(String name, int access, String superName, List<String> interfaces, List<String> annotations) {
+        this.name = name;
+        this.access = access;
+        this.superName = superName;
+        this.interfaces = interfaces;
+        this.annotations = annotations;
+    }
+
+    public boolean isPublic() {
+        return (access & ACC_PUBLIC) != 0;
+    }
+
+    public boolean isInterface() {
+        return (access & ACC_INTERFACE) != 0;
+    }
+
+    public boolean isAbstract() {
+        return (access & ACC_ABSTRACT) != 0;
+    }
+
+    public boolean isAnnotation() {
+        return (access & ACC_ANNOTATION) != 0;
+    }
+
+    public boolean isEnum() {
+        return (access & ACC_ENUM) != 0;
+    }
+
+    /**
+     * 获取包名
+     *
+     * @return
+     */
+    public String getPackageName() {
+        int index = name.lastIndexOf('.');
+        return index == -1 ? "" : name.substring(0, index);
+    }
+
+    /**
+     * 判断类上是否声明了指定注解
+     *
+     * @param annotationType
+     * @return
+     */
+    public boolean hasAnnotation(Class<? extends Annotation> annotationType) {
+        return annotations.contains(annotationType.getName());
+    }
+
+    /**
+     * 判断是否直接继承或实现了指定类型
+     *
+     * @param type
+     * @return
+     */
+    public boolean isDirectSubtypeOf(Class<?> type) {
+        String typeName = type.getName();
+        return typeName.equals(superName) || interfaces.contains(typeName);
+    }
+
+    @Override
+    public String toString() {
+        return "ClassInfo{name=" + name + ", superName=" + superName + ", interfaces=" + interfaces + ", annotations=" + annotations + '}';
+    }
+
+    /**
+     * 从class文件的输入流解析类信息, 不关闭输入流
+     *
+     * @param inputStream
+     * @return
+     * @throws IOException 不是合法的class文件
+     */
+    public static ClassInfo read(InputStream inputStream) throws IOException {
+        DataInputStream in = new DataInputStream(inputStream);
+        if (in.readInt() != 0xCAFEBABE) {
+            throw new IOException("not a class file");
+        }
+        // minor_version, major_version
+        skip(in, 4);
+        int count = in.readUnsignedShort();
+        String[] utf8 = new String[count];
+        int[] classes = new int[count];
+        for (int i = 1; i < count; i++) {
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+                case 1:
+                    utf8[i] = in.readUTF();
+                    break;
+                case 7:
+                    classes[i] = in.readUnsignedShort();
+                    break;
+                case 8:
+                case 16:
+                case 19:
+                case 20:
+                    skip(in, 2);
+                    break;
+                case 15:
+                    skip(in, 3);
+                    break;
+                case 3:
+                case 4:
+                case 9:
+                case 10:
+                case 11:
+                case 12:
+                case 17:
+                case 18:
+                    skip(in, 4);
+                    break;
+                case 5:
+                case 6:
+                    // long和double占用两个常量池位置
+                    skip(in, 8);
+                    i++;
+                    break;
+                default:
+                    throw new IOException("unknown constant pool tag: " + tag);
+            }
+        }
+        int access = in.readUnsignedShort();
+        String name = className(utf8[classes[in.readUnsignedShort()]]);
+        int superIndex = in.readUnsignedShort();
+        String superName = superIndex == 0 ? null : className(utf8[classes[superIndex]]);
+        String[] interfaces = new String[in.readUnsignedShort()];
+        for (int i = 0; i < interfaces.length; i++) {
+            interfaces[i] = className(utf8[classes[in.readUnsignedShort()]]);
+        }
+        // fields和methods
+        skipMembers(in);
+        skipMembers(in);
+        List<String> annotations = new ArrayList<>();
+        for (int i = in.readUnsignedShort(); i > 0; i--) {
+            String attribute = utf8[in.readUnsignedShort()];
+            int length = in.readInt();
+            if ("RuntimeVisibleAnnotations".equals(attribute) || "RuntimeInvisibleAnnotations".equals(attribute)) {
+                for (int n = in.readUnsignedShort(); n > 0; n--) {
+                    annotations.add(readAnnotation(in, utf8));
+                }
+            } else {
+                skip(in, length);
+            }
+        }
+        return new ClassInfo(name, access, superName, list(interfaces), list(annotations.toArray(new String[0])));
+    }
+
+    /**
+     * 写入索引文件
+     *
+     * @param out
+     * @throws IOException
+     */
+    void writeTo(DataOutput out) throws IOException {
+        out.writeUTF(name);
+        out.writeShort(access);
+        out.writeUTF(superName == null ? "" : superName);
+        writeList(out, interfaces);
+        writeList(out, annotations);
+    }
+
+    /**
+     * 从索引文件读取
+     *
+     * @param in
+     * @return
+     * @throws IOException
+     */
+    static ClassInfo readFrom(DataInput in) throws IOException {
+        String name = in.readUTF();
+        int access = in.readUnsignedShort();
+        String superName = in.readUTF();
+        return new ClassInfo(name, access, superName.isEmpty() ? null : superName, readList(in), readList(in));
+    }
+
+    private static void writeList(DataOutput out, List<String> list) throws IOException {
+        out.writeShort(list.size());
+        for (String s : list) {
+            out.writeUTF(s);
+        }
+    }
+
+    private static List<String> readList(DataInput in) throws IOException {
+        String[] array = new String[in.readUnsignedShort()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = in.readUTF();
+        }
+        return list(array);
+    }
+
+    private static List<String> list(String[] array) {
+        return array.length == 0 ? Collections.emptyList() : Collections.unmodifiableList(Arrays.asList(array));
+    }
+
+    /**
+     * 读取注解的类型, 跳过注解的属性值
+     *
+     * @param in
+     * @param utf8
+     * @return
+     * @throws IOException
+     */
+    private static String readAnnotation(DataInputStream in, String[] utf8) throws IOException {
+        String descriptor = utf8[in.readUnsignedShort()];
+        for (int n = in.readUnsignedShort(); n > 0; n--) {
+            skip(in, 2);
+            skipElementValue(in, utf8);
+        }
+        // 形如Ljava/lang/Deprecated;
+        return className(descriptor.substring(1, descriptor.length() - 1));
+    }
+
+    private static void skipElementValue(DataInputStream in, String[] utf8) throws IOException {
+        int tag = in.readUnsignedByte();
+        switch (tag) {
+            case 'e':
+                skip(in, 4);
+                break;
+            case '@':
+                readAnnotation(in, utf8);
+                break;
+            case '[':
+                for (int n = in.readUnsignedShort(); n > 0; n--) {
+                    skipElementValue(in, utf8);
+                }
+                break;
+            default:
+                skip(in, 2);
+        }
+    }
+
+    /**
+     * 跳过字段或方法表
+     *
+     * @param in
+     * @throws IOException
+     */
+    private static void skipMembers(DataInputStream in) throws IOException {
+        for (int i = in.readUnsignedShort(); i > 0; i--) {
+            // access_flags, name_index, descriptor_index
+            skip(in, 6);
+            for (int n = in.readUnsignedShort(); n > 0; n--) {
+                skip(in, 2);
+                skip(in, in.readInt());
+            }
+        }
+    }
+
+    private static void skip(DataInputStream in, int length) throws IOException {
+        while (length > 0) {
+            int skipped = in.skipBytes(length);
+            if (skipped <= 0) {
+                //部分输入流的skip在未到末尾时也可能返回0
+                if (in.read() < 0) {
+                    throw new EOFException();
+                }
+                skipped = 1;
+            }
+            length -= skipped;
+        }
+    }
+
+    private static String className(String internalName) {
+        return internalName.replace('/', '.');
+    }
+}
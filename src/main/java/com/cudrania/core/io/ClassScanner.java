@@ -2,21 +2,31 @@ package com.cudrania.core.io;
 
 import com.cudrania.core.exception.ExceptionChecker;
 
+import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.JarURLConnection;
 import java.net.URL;
 import java.net.URLDecoder;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Enumeration;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.function.Predicate;
-import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
- * 扫描指定包名的Class对象,可指定类过滤器,只加载符合要求的Class对象
+ * 扫描指定包名的Class对象,可指定类过滤器,只加载符合要求的Class对象<p>
+ * 扫描时先从class文件头部解析{@link ClassInfo}, 经{@link #withFilter(Predicate)}过滤后才加载类, 再由类过滤器过滤;
+ * 多个目录和jar包并行扫描, jar包的解析结果按校验和缓存, 并可通过{@link #withIndexDir(File)}保存为索引文件, 供下次启动时使用
  *
  * @author skyfalling
  */
@@ -27,6 +37,14 @@ public class ClassScanner {
      * 类过滤器
      */
     private Predicate<Class> classFilter;
+    /**
+     * 加载之前的类信息过滤器
+     */
+    private Predicate<ClassInfo> infoFilter = info -> true;
+    /**
+     * jar包索引文件的保存目录
+     */
+    private File indexDir;
 
     /**
      * 构造方法,默认扫描所有类型
@@ -55,114 +73,141 @@ public class ClassScanner {
         this.classLoader = classLoader;
     }
 
-    public List<Class> scan(String packageName) {
+    /**
+     * 设置加载之前的类信息过滤器, 不符合条件的类不会被加载
+     *
+     * @param infoFilter
+     * @return
+     */
+    public ClassScanner withFilter(Predicate<ClassInfo> infoFilter) {
+        this.infoFilter = infoFilter;
+        return this;
+    }
 
-        // 扫描class类的集合
-        List<Class> classes = new ArrayList<Class>();
-        // 是否循环迭代
-        // 获取包的名字 并进行替换
-        String packagePath = packageName.replace('.', '/');
-        try {
-            // 定义一个枚举的集合 并进行循环来处理这个目录下的things
-            Enumeration<URL> dirs = classLoader.getResources(
-                    packagePath);
-            // 循环迭代下去
-            while (dirs.hasMoreElements()) {
-                // 获取下一个元素
-                URL url = dirs.nextElement();
-                // 得到协议的名称
-                String protocol = url.getProtocol();
-                // 如果是以文件的形式保存在服务器上
-                if ("file".equalsIgnoreCase(protocol)) {
-                    // 获取包的物理路径
-                    String filePath = URLDecoder.decode(url.getFile(), "UTF-8");
-                    // 以文件的方式扫描整个包下的文件 并添加到集合中
-                    scanClassByPath(packageName, filePath, classes);
-                } else if ("jar".equalsIgnoreCase(protocol)) {
-                    // 如果是jar文件
-                    JarFile jar = ((JarURLConnection) url.openConnection())
-                            .getJarFile();
-                    // 迭代遍历jar包中的类
-                    Enumeration<JarEntry> entries = jar.entries();
-                    while (entries.hasMoreElements()) {
-                        // 获取jar里的一个实体
-                        JarEntry entry = entries.nextElement();
-                        String name = entry.getName();
-                        // 如果是以/开头的
-                        if (name.charAt(0) == '/') {
-                            // 获取后面的字符串
-                            name = name.substring(1);
-                        }
-                        // 如果前半部分和定义的包名相同
-                        if (name.startsWith(packagePath)) {
-                            // 如果是一个.class文件且不是目录
-                            if (name.endsWith(".class")
-                                    && !entry.isDirectory()) {
-                                // 去掉".class"获取类名
-                                String className = name.replace('/', '.').substring(0, name
-                                        .length() - 6);
-                                loadClass(className, classes);
-                            }
+    /**
+     * 设置jar包索引文件的保存目录, 默认只在内存中缓存
+     *
+     * @param indexDir
+     * @return
+     */
+    public ClassScanner withIndexDir(File indexDir) {
+        this.indexDir = indexDir;
+        return this;
+    }
 
-                        }
-                    }
+    /**
+     * 扫描指定包(含子包)下符合条件的类并加载
+     *
+     * @param packageName
+     * @return
+     */
+    public List<Class> scan(String packageName) {
+        List<Class> classes = new ArrayList<>();
+        for (ClassInfo info : scanInfo(packageName)) {
+            try {
+                Class targetClass = classLoader.loadClass(info.getName());
+                if (classFilter.test(targetClass)) {
+                    classes.add(targetClass);
                 }
+            } catch (ClassNotFoundException e) {
+                ExceptionChecker.throwException(e);
             }
-        } catch (Exception e) {
-            ExceptionChecker.throwException(e);
         }
         return classes;
     }
 
     /**
-     * 扫描指定包路径下的所有Class
+     * 扫描指定包(含子包)下符合{@link #withFilter(Predicate)}条件的类信息, 不加载类, 结果按类名排序
      *
      * @param packageName
-     * @param packagePath
-     * @param classes
+     * @return
      */
-    private void scanClassByPath(String packageName,
-                                 String packagePath, Collection<Class> classes) {
-        // 获取包的目录
-        File dir = new File(packagePath);
-        if (!dir.exists() || !dir.isDirectory()) {
-            return;
-        }
-        //获取包下的所有文件,包括目录
-        // 自定义过滤规则,目录或者class文件
-        File[] files = dir.listFiles(file -> file.isDirectory() || file.getName().endsWith(".class"));
-        // 循环所有文件
-        for (File file : files) {
-            // 如果是目录,递归遍历
-            if (file.isDirectory()) {
-                scanClassByPath(packageName + ""
-                                + file.getName(), file.getAbsolutePath(),
-                        classes);
-            } else {
-                // 如果是class文件,加载类
-                String className = packageName + '.' + file.getName().substring(0,
-                        file.getName().length() - 6);
-                loadClass(className, classes);
+    public List<ClassInfo> scanInfo(String packageName) {
+        String packagePath = packageName.replace('.', '/');
+        String prefix = packageName.isEmpty() ? "" : packageName + '.';
+        try {
+            Set<URL> urls = new LinkedHashSet<>();
+            Enumeration<URL> dirs = classLoader.getResources(packagePath);
+            while (dirs.hasMoreElements()) {
+                urls.add(dirs.nextElement());
             }
+            return urls.parallelStream()
+                    .flatMap(this::scan)
+                    .filter(info -> info.getName().startsWith(prefix) && infoFilter.test(info))
+                    .sorted(Comparator.comparing(ClassInfo::getName))
+                    .collect(Collectors.toList());
+        } catch (Exception e) {
+            throw ExceptionChecker.throwException(e);
         }
     }
 
     /**
-     * 加载符合要求的类
+     * 清空内存中缓存的jar包索引
+     */
+    public static void clearCache() {
+        ClassIndex.clear();
+    }
+
+    /**
+     * 扫描目录或者jar包中的类信息, jar包返回全部类
      *
-     * @param className
-     * @param classes
+     * @param url
+     * @return
      */
-    private void loadClass(String className, Collection<Class> classes) {
+    private Stream<ClassInfo> scan(URL url) {
         try {
-            System.out.println("scan Class: " + className);
-            Class targetClass = classLoader.loadClass(className);
-            if (classFilter.test(targetClass)) {
-                System.out.println("load Class: " + targetClass);
-                classes.add(targetClass);
+            String protocol = url.getProtocol();
+            if ("file".equalsIgnoreCase(protocol)) {
+                // 以文件的方式扫描整个包下的文件
+                File dir = new File(URLDecoder.decode(url.getFile(), "UTF-8"));
+                return scanDirectory(dir).stream();
+            } else if ("jar".equalsIgnoreCase(protocol)) {
+                JarURLConnection connection = (JarURLConnection) url.openConnection();
+                URL jarUrl = connection.getJarFileURL();
+                if ("file".equalsIgnoreCase(jarUrl.getProtocol())) {
+                    return ClassIndex.of(new File(URLDecoder.decode(jarUrl.getFile(), "UTF-8")), indexDir).stream();
+                }
+                // 嵌套的jar包等无法按文件缓存的情况
+                connection.setUseCaches(false);
+                try (JarFile jar = connection.getJarFile()) {
+                    return ClassIndex.build(jar).stream();
+                }
             }
-        } catch (ClassNotFoundException e) {
-            ExceptionChecker.throwException(e);
+            return Stream.empty();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 扫描目录下的所有class文件
+     *
+     * @param dir
+     * @return
+     */
+    private static List<ClassInfo> scanDirectory(File dir) {
+        if (!dir.isDirectory()) {
+            return Collections.emptyList();
+        }
+        return new FileSearcher(dir).withPattern("**/*.class").withParallel(true)
+                .withFilter((path, attrs) -> attrs.isRegularFile() && !path.endsWith("module-info.class"))
+                .stream()
+                .map(ClassScanner::read)
+                .filter(info -> info != null)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 解析class文件, 无法解析时返回null
+     *
+     * @param path
+     * @return
+     */
+    private static ClassInfo read(Path path) {
+        try (InputStream in = new BufferedInputStream(java.nio.file.Files.newInputStream(path))) {
+            return ClassInfo.read(in);
+        } catch (IOException e) {
+            return null;
         }
     }
 }
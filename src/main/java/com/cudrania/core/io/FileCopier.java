@@ -0,0 +1,398 @@
+package com.cudrania.core.io;
+
+import com.cudrania.core.exception.ExceptionChecker;
+import lombok.Getter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 文件及目录的复制工具<p>
+ * <ul>
+ * <li>单个文件通过{@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}复制, 支持时由操作系统直接完成(sendfile), 不经过堆内存</li>
+ * <li>复制目录时先遍历并创建目录结构, 再由固定数量的线程并行复制文件, 适合大量小文件的场景</li>
+ * <li>可选择跳过大小和修改时间均未变化的目标文件, 复制后的文件保留源文件的修改时间和POSIX权限</li>
+ * <li>可选择优先创建硬链接, 源文件与目标文件不在同一文件系统等无法创建时退化为复制.
+ * 注意硬链接与源文件共享内容, 修改其一另一个也随之改变</li>
+ * </ul>
+ * 该类的实例可重复使用, 但配置方法不是线程安全的
+ *
+ * @author skyfalling
+ */
+public class FileCopier {
+
+    /**
+     * 复制进度的回调
+     */
+    @FunctionalInterface
+    public interface Progress {
+        /**
+         * 处理完一个文件时调用, 可能在多个线程中并发调用
+         *
+         * @param file      已处理的源文件
+         * @param copied    是否复制, 跳过时为false
+         * @param completed 已处理的文件数
+         * @param total     待处理的文件总数
+         */
+        void update(File file, boolean copied, int completed, int total);
+    }
+
+    /**
+     * 复制结果
+     */
+    @Getter
+    public static class CopyReport {
+        /**
+         * 复制或链接的文件数
+         */
+        private final int copied;
+        /**
+         * 未变化而跳过的文件数
+         */
+        private final int skipped;
+        /**
+         * 复制的字节数, 不含硬链接的文件
+         */
+        private final long bytes;
+
+        CopyReport(int copied, int skipped, long bytes) {
+            this.copied = copied;
+            this.skipped = skipped;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public String toString() {
+            return "CopyReport{copied=" + copied + ", skipped=" + skipped + ", bytes=" + bytes + '}';
+        }
+    }
+
+    @Getter
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    @Getter
+    private boolean skipUnchanged;
+    @Getter
+    private boolean hardLink;
+    private Progress progress;
+
+    /**
+     * 设置并行复制的线程数, 默认为CPU核数
+     *
+     * @param parallelism
+     * @return
+     */
+    public FileCopier withParallelism(int parallelism) {
+        ExceptionChecker.throwIf(parallelism < 1, "the value of parallelism cannot be low than 1: " + parallelism);
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * 设置是否跳过未变化的文件, 即大小相同且修改时间相同的目标文件
+     *
+     * @param skipUnchanged
+     * @return
+     */
+    public FileCopier withSkipUnchanged(boolean skipUnchanged) {
+        this.skipUnchanged = skipUnchanged;
+        return this;
+    }
+
+    /**
+     * 设置是否优先创建硬链接代替复制
+     *
+     * @param hardLink
+     * @return
+     */
+    public FileCopier withHardLink(boolean hardLink) {
+        this.hardLink = hardLink;
+        return this;
+    }
+
+    /**
+     * 设置复制进度的回调
+     *
+     * @param progress
+     * @return
+     */
+    public FileCopier withProgress(Progress progress) {
+        this.progress = progress;
+        return this;
+    }
+
+    /**
+     * 复制源文件src至目标路径dest, 支持目录复制<p>
+     * 已存在的目标文件会被覆盖(或按{@link #withSkipUnchanged(boolean)}跳过), 目标目录中多余的文件不会被删除
+     *
+     * @param src
+     * @param dest
+     * @return 复制结果
+     */
+    public CopyReport copy(File src, File dest) {
+        try {
+            List<Path[]> files = collect(src.toPath(), dest.toPath());
+            return files.size() <= 1 || parallelism == 1 ? copySerial(files) : copyParallel(files);
+        } catch (Exception e) {
+            throw ExceptionChecker.throwException(e);
+        }
+    }
+
+    /**
+     * 遍历源路径, 创建目标目录结构, 并返回待复制的(源文件, 目标文件)列表
+     *
+     * @param src
+     * @param dest
+     * @return
+     * @throws IOException
+     */
+    private List<Path[]> collect(Path src, Path dest) throws IOException {
+        List<Path[]> files = new ArrayList<>();
+        if (!java.nio.file.Files.isDirectory(src)) {
+            Path parent = dest.toAbsolutePath().getParent();
+            if (parent != null) {
+                java.nio.file.Files.createDirectories(parent);
+            }
+            files.add(new Path[]{src, dest});
+            return files;
+        }
+        java.nio.file.Files.walkFileTree(src, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                Path target = dest.resolve(src.relativize(dir).toString());
+                if (!java.nio.file.Files.isDirectory(target)) {
+                    java.nio.file.Files.deleteIfExists(target);
+                    java.nio.file.Files.createDirectories(target);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                files.add(new Path[]{file, dest.resolve(src.relativize(file).toString())});
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return files;
+    }
+
+    /**
+     * 在当前线程中逐个复制
+     *
+     * @param files
+     * @return
+     * @throws IOException
+     */
+    private CopyReport copySerial(List<Path[]> files) throws IOException {
+        Counter counter = new Counter(files.size());
+        for (Path[] pair : files) {
+            copyFile(pair[0], pair[1], counter);
+        }
+        return counter.report();
+    }
+
+    /**
+     * 由parallelism个线程依次领取文件并行复制, 任一文件复制失败时停止领取并抛出该异常
+     *
+     * @param files
+     * @return
+     * @throws Exception
+     */
+    private CopyReport copyParallel(List<Path[]> files) throws Exception {
+        Counter counter = new Counter(files.size());
+        AtomicInteger next = new AtomicInteger();
+        AtomicReference<Exception> error = new AtomicReference<>();
+        int workers = Math.min(parallelism, files.size());
+        ForkJoinPool pool = new ForkJoinPool(workers);
+        try {
+            List<ForkJoinTask<?>> tasks = new ArrayList<>(workers);
+            for (int i = 0; i < workers; i++) {
+                tasks.add(pool.submit(() -> {
+                    int index;
+                    while (error.get() == null && (index = next.getAndIncrement()) < files.size()) {
+                        Path[] pair = files.get(index);
+                        try {
+                            copyFile(pair[0], pair[1], counter);
+                        } catch (Exception e) {
+                            error.compareAndSet(null, e);
+                        }
+                    }
+                }));
+            }
+            tasks.forEach(ForkJoinTask::join);
+        } finally {
+            pool.shutdown();
+        }
+        if (error.get() != null) {
+            throw error.get();
+        }
+        return counter.report();
+    }
+
+    /**
+     * 复制单个文件
+     *
+     * @param src
+     * @param dest
+     * @param counter
+     * @throws IOException
+     */
+    private void copyFile(Path src, Path dest, Counter counter) throws IOException {
+        BasicFileAttributes attrs = java.nio.file.Files.readAttributes(src, BasicFileAttributes.class);
+        if (skipUnchanged && unchanged(attrs, dest)) {
+            counter.completed(src, false, 0);
+            return;
+        }
+        if (hardLink && link(src, dest)) {
+            counter.completed(src, true, 0);
+            return;
+        }
+        long size = attrs.size();
+        //先写入同目录下的临时文件再替换目标文件, 目标文件是源文件的硬链接时直接覆盖写入会清空源文件
+        Path temp = java.nio.file.Files.createTempFile(dest.toAbsolutePath().getParent(), "." + dest.getFileName(), ".tmp");
+        try {
+            try (FileChannel in = FileChannel.open(src, StandardOpenOption.READ);
+                 FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                long position = 0;
+                //transferTo单次传输的字节数可能少于请求的数量
+                while (position < size) {
+                    long transferred = in.transferTo(position, size - position, out);
+                    if (transferred <= 0) {
+                        break;
+                    }
+                    position += transferred;
+                }
+            }
+            //临时文件创建时只有所有者可读写, 需要复制源文件的权限
+            copyPermissions(src, temp);
+            java.nio.file.Files.setLastModifiedTime(temp, attrs.lastModifiedTime());
+            replace(temp, dest);
+        } finally {
+            java.nio.file.Files.deleteIfExists(temp);
+        }
+        counter.completed(src, true, size);
+    }
+
+    /**
+     * 复制源文件的POSIX权限, 文件系统不支持POSIX权限时忽略
+     *
+     * @param src
+     * @param dest
+     * @throws IOException
+     */
+    private static void copyPermissions(Path src, Path dest) throws IOException {
+        PosixFileAttributeView view = java.nio.file.Files.getFileAttributeView(src, PosixFileAttributeView.class);
+        if (view != null) {
+            java.nio.file.Files.setPosixFilePermissions(dest, view.readAttributes().permissions());
+        }
+    }
+
+    /**
+     * 用临时文件替换目标文件, 不支持原子移动时退化为普通的替换
+     *
+     * @param temp
+     * @param dest
+     * @throws IOException
+     */
+    private static void replace(Path temp, Path dest) throws IOException {
+        try {
+            java.nio.file.Files.move(temp, dest, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            java.nio.file.Files.move(temp, dest, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * 判断目标文件是否与源文件是同一文件
+     *
+     * @param src
+     * @param dest
+     * @return
+     * @throws IOException
+     */
+    private static boolean sameFile(Path src, Path dest) throws IOException {
+        return java.nio.file.Files.exists(dest) && java.nio.file.Files.isSameFile(src, dest);
+    }
+
+    /**
+     * 判断目标文件是否未变化, 即存在且大小和修改时间与源文件相同
+     *
+     * @param attrs 源文件属性
+     * @param dest
+     * @return
+     */
+    private static boolean unchanged(BasicFileAttributes attrs, Path dest) {
+        try {
+            BasicFileAttributes target = java.nio.file.Files.readAttributes(dest, BasicFileAttributes.class);
+            return target.isRegularFile() && target.size() == attrs.size()
+                    && target.lastModifiedTime().toMillis() == attrs.lastModifiedTime().toMillis();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 尝试创建硬链接, 目标文件已存在时先删除, 已是源文件的链接时直接返回
+     *
+     * @param src
+     * @param dest
+     * @return 是否创建成功
+     */
+    private static boolean link(Path src, Path dest) {
+        try {
+            if (sameFile(src, dest)) {
+                return true;
+            }
+            java.nio.file.Files.deleteIfExists(dest);
+            java.nio.file.Files.createLink(dest, src);
+            return true;
+        } catch (IOException | UnsupportedOperationException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 复制进度的计数
+     */
+    private class Counter {
+        final int total;
+        final AtomicInteger copied = new AtomicInteger();
+        final AtomicInteger skipped = new AtomicInteger();
+        final AtomicInteger completed = new AtomicInteger();
+        final AtomicLong bytes = new AtomicLong();
+
+        Counter(int total) {
+            this.total = total;
+        }
+
+        void completed(Path file, boolean copied, long bytes) {
+            (copied ? this.copied : this.skipped).incrementAndGet();
+            if (bytes > 0) {
+                this.bytes.addAndGet(bytes);
+            }
+            int count = completed.incrementAndGet();
+            if (progress != null) {
+                progress.update(file.toFile(), copied, count, total);
+            }
+        }
+
+        CopyReport report() {
+            return new CopyReport(copied.get(), skipped.get(), bytes.get());
+        }
+    }
+}
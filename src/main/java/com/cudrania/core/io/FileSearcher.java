@@ -1,19 +1,191 @@
 package com.cudrania.core.io;
 
 import com.cudrania.core.exception.ExceptionChecker;
+import com.cudrania.core.text.Wildcard;
 
 import java.io.File;
 import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
- * 文件查找类,查找匹配的文件
+ * 文件查找类,查找匹配的文件<p>
+ * 除静态方法外, 可以创建实例指定查找条件, 以{@link Stream}的形式惰性返回结果:
+ * <ul>
+ * <li>{@link #withPattern(String)}或{@link #withGlob(String)}按相对路径匹配, 在读取文件属性之前完成,
+ * 其中{@link #withPattern(String)}还会跳过不可能包含匹配文件的子目录</li>
+ * <li>{@link #withFilter(BiPredicate)}按文件属性过滤, {@link #withPrune(BiPredicate)}跳过指定的子目录</li>
+ * <li>{@link #withParallel(boolean)}并行查找, 待查找的目录在多个线程之间拆分</li>
+ * </ul>
+ * 每个目录的内容通过{@link DirectoryStream}一次读出, 不保持打开的目录句柄, 因此提前结束的Stream无需关闭;
+ * 无法读取的目录被忽略. 实例在查找过程中不可修改
  *
  * @author skyfalling
  */
 public class FileSearcher {
 
+    private static final LinkOption[] NO_FOLLOW_LINKS = {LinkOption.NOFOLLOW_LINKS};
+    private static final LinkOption[] FOLLOW_LINKS = {};
+
+    private final Path root;
+    private String pattern;
+    private String[] patternTokens;
+    private PathMatcher glob;
+    private BiPredicate<Path, BasicFileAttributes> filter = (path, attrs) -> true;
+    private BiPredicate<Path, BasicFileAttributes> prune = (path, attrs) -> false;
+    private int maxDepth = Integer.MAX_VALUE;
+    private boolean followLinks;
+    private boolean parallel;
+
+    /**
+     * 在指定目录下查找
+     *
+     * @param root
+     */
+    public FileSearcher(File root) {
+        this(root.toPath());
+    }
+
+    /**
+     * 在指定目录下查找
+     *
+     * @param root
+     */
+    public FileSearcher(Path root) {
+        this.root = root;
+    }
+
+    /**
+     * 设置相对于查找目录的路径模式, 支持*, ?和**, 参见{@link Wildcard#matchPath(String, String)}
+     *
+     * @param pattern
+     * @return
+     */
+    public FileSearcher withPattern(String pattern) {
+        this.pattern = pattern;
+        List<String> tokens = new ArrayList<>();
+        for (String token : pattern.split("[/\\\\]")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        this.patternTokens = tokens.toArray(new String[0]);
+        return this;
+    }
+
+    /**
+     * 设置相对于查找目录的glob模式, 参见{@link java.nio.file.FileSystem#getPathMatcher(String)}
+     *
+     * @param glob
+     * @return
+     */
+    public FileSearcher withGlob(String glob) {
+        this.glob = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+        return this;
+    }
+
+    /**
+     * 设置按文件属性的过滤条件, 并行查找时在多个线程中调用
+     *
+     * @param filter
+     * @return
+     */
+    public FileSearcher withFilter(BiPredicate<Path, BasicFileAttributes> filter) {
+        this.filter = filter;
+        return this;
+    }
+
+    /**
+     * 设置跳过子目录的条件, 满足条件的目录不再向下查找, 但目录本身仍可作为结果
+     *
+     * @param prune
+     * @return
+     */
+    public FileSearcher withPrune(BiPredicate<Path, BasicFileAttributes> prune) {
+        this.prune = prune;
+        return this;
+    }
+
+    /**
+     * 设置查找的最大深度, 1表示只查找直接子文件
+     *
+     * @param maxDepth
+     * @return
+     */
+    public FileSearcher withMaxDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+        return this;
+    }
+
+    /**
+     * 设置是否跟随符号链接, 默认为false
+     *
+     * @param followLinks
+     * @return
+     */
+    public FileSearcher withFollowLinks(boolean followLinks) {
+        this.followLinks = followLinks;
+        return this;
+    }
+
+    /**
+     * 设置是否并行查找, 默认为false
+     *
+     * @param parallel
+     * @return
+     */
+    public FileSearcher withParallel(boolean parallel) {
+        this.parallel = parallel;
+        return this;
+    }
+
+    /**
+     * 返回匹配文件的Stream, 查找在Stream消费时进行, 结果的顺序不确定
+     *
+     * @return
+     */
+    public Stream<Path> stream() {
+        Deque<Dir> pending = new ArrayDeque<>();
+        pending.push(new Dir(root, "", 0));
+        return StreamSupport.stream(new Walker(pending), parallel);
+    }
+
+    /**
+     * 返回全部匹配的文件
+     *
+     * @return
+     */
+    public List<File> findAll() {
+        return stream().map(Path::toFile).collect(Collectors.toList());
+    }
+
+    /**
+     * 返回任意一个匹配的文件, 找到后立即停止查找, 不存在时返回null
+     *
+     * @return
+     */
+    public File findAny() {
+        return stream().findAny().map(Path::toFile).orElse(null);
+    }
+
     /**
      * 返回指定路径下匹配的全部文件
      *
@@ -24,7 +196,8 @@ public class FileSearcher {
     public static List<File> find(File path, FileFilter filter) {
         ExceptionChecker.throwIf(!path.isDirectory(), "the path must be a directory:"
                 + path.getAbsolutePath());
-        return find(path, filter, new ArrayList<File>());
+        return new FileSearcher(path).withFollowLinks(true)
+                .withFilter((file, attrs) -> filter.accept(file.toFile())).findAll();
     }
 
     /**
@@ -37,19 +210,8 @@ public class FileSearcher {
     public static File findFirst(File path, final FileFilter filter) {
         ExceptionChecker.throwIf(!path.isDirectory(), "the path must be a directory:"
                 + path.getAbsolutePath());
-        final File[] find = new File[1];
-        File[] files = path.listFiles(file -> {
-            if (find[0] == null && filter.accept(file)) {
-                find[0] = file;
-            }
-            return find[0] == null && file.isDirectory();
-        });
-        for (File file : files) {
-            if (find[0] != null)
-                break;
-            find[0] = findFirst(file, filter);
-        }
-        return find[0];
+        return new FileSearcher(path).withFollowLinks(true)
+                .withFilter((file, attrs) -> filter.accept(file.toFile())).findAny();
     }
 
     /**
@@ -74,23 +236,176 @@ public class FileSearcher {
     }
 
     /**
-     * 在指定目录下查找所有匹配的文件
+     * 判断相对路径是否匹配
      *
      * @param path
-     * @param filter
-     * @param list   匹配的文件列表
-     */
-    private static List<File> find(File path, final FileFilter filter,
-                                   final List<File> list) {
-        if (path.isDirectory()) {
-            path.listFiles(file -> {
-                if (filter.accept(file))
-                    list.add(file);
-                find(file, filter, list);
+     * @param relative
+     * @return
+     */
+    private boolean matches(Path path, String relative) {
+        if (pattern != null && !Wildcard.matchPath(pattern, relative)) {
+            return false;
+        }
+        return glob == null || glob.matches(root.relativize(path));
+    }
+
+    /**
+     * 判断相对路径所表示的目录下是否可能存在匹配{@link #pattern}的文件
+     *
+     * @param relative
+     * @return
+     */
+    private boolean mayContainMatches(String relative) {
+        if (patternTokens == null) {
+            return true;
+        }
+        String[] tokens = relative.split("/");
+        for (int i = 0; i < tokens.length; i++) {
+            if (i >= patternTokens.length) {
                 return false;
-            });
+            }
+            if (patternTokens[i].equals("**")) {
+                return true;
+            }
+            if (!Wildcard.match(patternTokens[i], tokens[i])) {
+                return false;
+            }
+        }
+        return tokens.length < patternTokens.length;
+    }
+
+    /**
+     * 读取目录下的全部文件, 无法读取时返回空列表
+     *
+     * @param dir
+     * @return
+     */
+    private static List<Path> list(Path dir) {
+        try (DirectoryStream<Path> stream = java.nio.file.Files.newDirectoryStream(dir)) {
+            List<Path> paths = new ArrayList<>();
+            stream.forEach(paths::add);
+            return paths;
+        } catch (IOException | DirectoryIteratorException e) {
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * 待查找的目录
+     */
+    private static class Dir {
+        final Path path;
+        /**
+         * 相对于查找目录的路径, 以'/'分隔
+         */
+        final String relative;
+        final int depth;
+
+        Dir(Path path, String relative, int depth) {
+            this.path = path;
+            this.relative = relative;
+            this.depth = depth;
         }
-        return list;
     }
 
+    /**
+     * 遍历目录的Spliterator, 拆分时将待查找的目录分出一半
+     */
+    private class Walker implements Spliterator<Path> {
+        /**
+         * 待查找的目录, 按栈的顺序深度优先查找
+         */
+        private final Deque<Dir> pending;
+        /**
+         * 已匹配但未返回的文件
+         */
+        private final Deque<Path> ready = new ArrayDeque<>();
+        private Dir current;
+        private Iterator<Path> entries;
+
+        Walker(Deque<Dir> pending) {
+            this.pending = pending;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Path> action) {
+            while (ready.isEmpty()) {
+                if (entries != null && entries.hasNext()) {
+                    visit(entries.next());
+                } else if (!pending.isEmpty()) {
+                    open(pending.pop());
+                } else {
+                    return false;
+                }
+            }
+            action.accept(ready.poll());
+            return true;
+        }
+
+        /**
+         * 待查找的目录不足两个时, 先读取当前目录以展开下一层, 然后分出一半的目录
+         *
+         * @return
+         */
+        @Override
+        public Spliterator<Path> trySplit() {
+            while (pending.size() < 2) {
+                if (entries != null && entries.hasNext()) {
+                    visit(entries.next());
+                } else if (pending.size() == 1) {
+                    open(pending.pop());
+                } else {
+                    return null;
+                }
+            }
+            Deque<Dir> half = new ArrayDeque<>();
+            for (int n = pending.size() / 2; n > 0; n--) {
+                half.push(pending.pollLast());
+            }
+            return new Walker(half);
+        }
+
+        @Override
+        public long estimateSize() {
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public int characteristics() {
+            return NONNULL | DISTINCT;
+        }
+
+        private void open(Dir dir) {
+            current = dir;
+            entries = list(dir.path).iterator();
+        }
+
+        /**
+         * 处理当前目录下的文件, 先按路径匹配, 必要时才读取文件属性
+         *
+         * @param path
+         */
+        private void visit(Path path) {
+            String name = path.getFileName().toString();
+            String relative = current.depth == 0 ? name : current.relative + '/' + name;
+            int depth = current.depth + 1;
+            boolean descend = depth < maxDepth && mayContainMatches(relative);
+            boolean match = matches(path, relative);
+            if (!descend && !match) {
+                return;
+            }
+            BasicFileAttributes attrs;
+            try {
+                attrs = java.nio.file.Files.readAttributes(path, BasicFileAttributes.class, followLinks ? FOLLOW_LINKS : NO_FOLLOW_LINKS);
+            } catch (IOException e) {
+                return;
+            }
+            if (match && filter.test(path, attrs)) {
+                ready.add(path);
+            }
+            if (descend && attrs.isDirectory() && !prune.test(path, attrs)) {
+                pending.push(new Dir(path, relative, depth));
+            }
+        }
+    }
 }
@@ -6,13 +6,21 @@ import com.cudrania.core.utils.StringUtils;
 import java.io.*;
 import java.net.URL;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.LinkedList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * 处理文件操作的工具类
@@ -30,6 +38,15 @@ public class Files {
      * 缓冲区大小
      */
     private final static int BUFFER_SIZE = 1024 * 8;
+    /**
+     * 数组的最大长度
+     */
+    private final static int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+    /**
+     * 兼容ASCII的编码, 即换行符编码为单字节'\r'和'\n'的编码
+     */
+    private final static Set<Charset> ASCII_COMPATIBLE = new HashSet<>(Arrays.asList(
+            StandardCharsets.UTF_8, StandardCharsets.ISO_8859_1, StandardCharsets.US_ASCII));
 
 
     /**
@@ -53,55 +70,17 @@ public class Files {
 
     /**
      * 复制源文件src文件至目标我呢就dest所表示的路径,支持目录拷贝<p>
-     * 这里dest对应文件为复制后的路径,如果目标路径存在,则会被覆盖
+     * 这里dest对应文件为复制后的路径,如果目标路径存在,则会被覆盖<p>
+     * 目录中的文件由多个线程并行复制, 更多选项参见{@link FileCopier}
      *
      * @param src
      * @param dest
      */
     public static void copy(File src, File dest) {
-        File dir = dest.getParentFile();
-        if (!dir.exists()) {
-            dir.mkdirs();
-        }
         if (dest.exists()) {
             delete(dest);
         }
-        //这里定义copy0方法,是为了不用每次都判断目标路径是否存在
-        copy0(src, dest);
-    }
-
-    /**
-     * 递归复制文件
-     *
-     * @param src
-     * @param dest
-     */
-    private static void copy0(File src, File dest) {
-        if (src.isDirectory()) {
-            dest.mkdirs();
-            File[] files = src.listFiles();
-            for (File file : files) {
-                copy(file, new File(dest, file.getName()));
-            }
-        } else {
-            FileChannel inChannel = null;
-            FileChannel outChannel = null;
-            try {
-                inChannel = new FileInputStream(src).getChannel();
-                outChannel = new FileOutputStream(dest).getChannel();
-                // 8M缓冲区
-                ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
-                while (inChannel.read(buffer) != -1) {
-                    buffer.flip();
-                    outChannel.write(buffer);
-                    buffer.clear();//prepare for reading;清空缓冲区；
-                }
-            } catch (Exception e) {
-                ExceptionChecker.throwException(e);
-            } finally {
-                Closer.close(inChannel, outChannel);
-            }
-        }
+        new FileCopier().copy(src, dest);
     }
 
     /**
@@ -123,14 +102,15 @@ public class Files {
     }
 
     /**
-     * 获取文件内容的字节数组
+     * 获取文件内容的字节数组<p>
+     * 按文件大小一次分配数组并直接读满, 文件大于2G时应使用{@link #map(File)}
      *
      * @param file
      * @return 表示文件内容的字节数组
      */
     public static byte[] getBytes(File file) {
-        try {
-            return getBytes(new FileInputStream(file));
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return getBytes(channel);
         } catch (Exception e) {
             throw ExceptionChecker.throwException(e);
         }
@@ -138,37 +118,18 @@ public class Files {
 
 
     /**
-     * 获取InputStream对象输出的字节数组
+     * 获取InputStream对象输出的字节数组, 然后关闭InputStream对象<p>
+     * 文件输入流按剩余大小一次分配数组, 其他输入流使用{@link InputStream#readAllBytes()}
      *
      * @param inputStream
      * @return
      */
     public static byte[] getBytes(InputStream inputStream) {
         try {
-           /*
-            lack of performance:
-            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-            int read;
-            byte[] buffer = new byte[bufferSize];
-            while ((read = inputStream.read(buffer)) != -1) {
-                byteArrayOutputStream.write(buffer, 0, read);
-            }
-            return byteArrayOutputStream.toByteArray();*/
-            List<byte[]> buffers = new LinkedList<>();
-            int size = 0;
-            int read;
-            byte[] buffer = new byte[BUFFER_SIZE];
-            while ((read = inputStream.read(buffer)) != -1) {
-                size += read;
-                buffers.add(Arrays.copyOf(buffer, read));
-            }
-            byte[] result = new byte[size];
-            int position = 0;
-            for (byte[] byteArray : buffers) {
-                System.arraycopy(byteArray, 0, result, position, byteArray.length);
-                position += byteArray.length;
+            if (inputStream instanceof FileInputStream) {
+                return getBytes(((FileInputStream) inputStream).getChannel());
             }
-            return result;
+            return inputStream.readAllBytes();
         } catch (Exception e) {
             throw ExceptionChecker.throwException(e);
         } finally {
@@ -176,21 +137,74 @@ public class Files {
         }
     }
 
+    /**
+     * 从当前位置读取文件通道的剩余内容<p>
+     * 按剩余大小分配数组, 读取过程中文件变小则截断, 变大则追加读取的内容
+     *
+     * @param channel
+     * @return
+     * @throws IOException
+     */
+    private static byte[] getBytes(FileChannel channel) throws IOException {
+        long size = channel.size() - channel.position();
+        if (size > MAX_ARRAY_SIZE) {
+            throw new IllegalArgumentException("file is too large to read into a byte array, use map() instead: " + size);
+        }
+        byte[] bytes = new byte[(int) Math.max(size, 0)];
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+        }
+        if (buffer.hasRemaining()) {
+            return Arrays.copyOf(bytes, buffer.position());
+        }
+        //文件大小未知(如/proc下的文件)或者在读取过程中变大
+        byte[] rest = Channels.newInputStream(channel).readAllBytes();
+        if (rest.length == 0) {
+            return bytes;
+        }
+        byte[] result = Arrays.copyOf(bytes, bytes.length + rest.length);
+        System.arraycopy(rest, 0, result, bytes.length, rest.length);
+        return result;
+    }
+
+    /**
+     * 将文件内容以只读方式映射到内存, 不占用堆空间<p>
+     * 映射在返回的ByteBuffer被回收前一直有效, 文件不能大于2G, 更大的文件可通过{@link #map(File, long, long)}分段映射
+     *
+     * @param file
+     * @return
+     */
+    public static MappedByteBuffer map(File file) {
+        return map(file, 0, file.length());
+    }
 
     /**
-     * 读取文件文本内容,默认编码
+     * 将文件从position开始的size个字节以只读方式映射到内存
      *
      * @param file
+     * @param position 起始位置
+     * @param size     映射的字节数, 不能大于2G
      * @return
      */
-    public static String read(File file) {
-        try {
-            return read(new FileReader(file));
+    public static MappedByteBuffer map(File file, long position, long size) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, position, size);
         } catch (Exception e) {
             throw ExceptionChecker.throwException(e);
         }
     }
 
+
+    /**
+     * 读取文件文本内容,默认编码
+     *
+     * @param file
+     * @return
+     */
+    public static String read(File file) {
+        return read(file, Charset.defaultCharset());
+    }
+
     /**
      * 以指定编码格式读取文件文本内容
      *
@@ -200,8 +214,44 @@ public class Files {
      */
     public static String read(File file, String charset) {
         try {
-            return read(new InputStreamReader(new FileInputStream(file),
-                    charset));
+            return read(file, Charset.forName(charset));
+        } catch (Exception e) {
+            throw ExceptionChecker.throwException(e);
+        }
+    }
+
+    /**
+     * 以指定编码格式读取文件文本内容, 每行以{@link #NEW_LINE}结尾<p>
+     * 对于UTF-8等兼容ASCII的编码, 如果内容中不含'\r'且换行符为"\n", 则直接解码文件的字节数组, 不再逐行拼接
+     *
+     * @param file
+     * @param charset
+     * @return
+     */
+    private static String read(File file, Charset charset) {
+        if (!NEW_LINE.equals("\n") || !ASCII_COMPATIBLE.contains(charset)) {
+            return readByLines(file, charset);
+        }
+        byte[] bytes = getBytes(file);
+        for (byte b : bytes) {
+            if (b == '\r') {
+                return readByLines(file, charset);
+            }
+        }
+        String content = new String(bytes, charset);
+        return content.isEmpty() || content.endsWith(NEW_LINE) ? content : content + NEW_LINE;
+    }
+
+    /**
+     * 逐行读取并拼接文件文本内容
+     *
+     * @param file
+     * @param charset
+     * @return
+     */
+    private static String readByLines(File file, Charset charset) {
+        try {
+            return read(new InputStreamReader(new FileInputStream(file), charset));
         } catch (Exception e) {
             throw ExceptionChecker.throwException(e);
         }
@@ -305,6 +355,71 @@ public class Files {
         }
     }
 
+    /**
+     * 以默认编码并行读取文件, 处理每行的文本内容, 参见{@link #readLinesParallel(File, Consumer, String, boolean)}
+     *
+     * @param file
+     * @param consumer
+     * @param ordered  是否按行的顺序处理
+     */
+    public static void readLinesParallel(File file, Consumer<String> consumer, boolean ordered) {
+        readLinesParallel(file, consumer, Charset.defaultCharset().name(), ordered);
+    }
+
+    /**
+     * 以指定字符编码格式并行读取文件, 处理每行的文本内容<p>
+     * 文件按行边界拆分为多个区间, 在当前的ForkJoinPool(默认为公共池)中并行读取和解码;
+     * ordered为true时consumer按行的顺序逐个调用, 否则在多个线程中并发调用, 此时consumer必须是线程安全的
+     *
+     * @param file
+     * @param consumer
+     * @param charset
+     * @param ordered  是否按行的顺序处理
+     */
+    public static void readLinesParallel(File file, Consumer<String> consumer, String charset, boolean ordered) {
+        try (Stream<String> lines = lines(file, charset).parallel()) {
+            if (ordered) {
+                lines.forEachOrdered(consumer);
+            } else {
+                lines.forEach(consumer);
+            }
+        }
+    }
+
+    /**
+     * 以默认编码按行读取文件, 参见{@link #lines(File, String)}
+     *
+     * @param file
+     * @return
+     */
+    public static Stream<String> lines(File file) {
+        return lines(file, Charset.defaultCharset().name());
+    }
+
+    /**
+     * 以指定字符编码格式按行读取文件, 返回的Stream需要关闭<p>
+     * 对于UTF-8等兼容ASCII的编码, 文件按位置分块读取, 并行时按行边界拆分, 不受文件大小的限制;
+     * 其他编码逐行顺序读取
+     *
+     * @param file
+     * @param charset
+     * @return
+     */
+    public static Stream<String> lines(File file, String charset) {
+        try {
+            Charset cs = Charset.forName(charset);
+            if (!ASCII_COMPATIBLE.contains(cs)) {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), cs));
+                return reader.lines().onClose(() -> Closer.close(reader));
+            }
+            FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            return StreamSupport.stream(new LineSpliterator(channel, cs, 0, channel.size()), false)
+                    .onClose(() -> Closer.close(channel));
+        } catch (Exception e) {
+            throw ExceptionChecker.throwException(e);
+        }
+    }
+
     /**
      * 按行读取InputStream对象的文本内容, 然后关闭InputStream对象
      *
@@ -0,0 +1,201 @@
+package com.cudrania.core.io;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * 按行读取文件区间[start, end)的{@link Spliterator}, 适用于换行符为单字节'\r'和'\n'的编码(如UTF-8)<p>
+ * 行的结束符与{@link java.io.BufferedReader#readLine()}相同, 为"\n", "\r"或"\r\n"<p>
+ * 通过{@link FileChannel#read(ByteBuffer, long)}按位置读取, 多个实例可共用同一个通道;
+ * 拆分时从区间中点向后查找行结束符, 将区间分为两个完整行组成的子区间, 不受文件大小的限制
+ *
+ * @author skyfalling
+ */
+class LineSpliterator implements Spliterator<String> {
+
+    /**
+     * 读取缓冲区的初始大小
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+    /**
+     * 可拆分的最小区间
+     */
+    static final long MIN_SPLIT_SIZE = 1024 * 1024;
+
+    private final FileChannel channel;
+    private final Charset charset;
+    /**
+     * 通道中下一个待读取的位置
+     */
+    private long position;
+    private long end;
+    private byte[] buffer;
+    /**
+     * 缓冲区中未处理的数据为[offset, limit), [offset, scan)中不含行结束符
+     */
+    private int offset;
+    private int scan;
+    private int limit;
+
+    LineSpliterator(FileChannel channel, Charset charset, long start, long end) {
+        this.channel = channel;
+        this.charset = charset;
+        this.position = start;
+        this.end = end;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super String> action) {
+        String line = nextLine();
+        if (line == null) {
+            return false;
+        }
+        action.accept(line);
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super String> action) {
+        String line;
+        while ((line = nextLine()) != null) {
+            action.accept(line);
+        }
+    }
+
+    @Override
+    public Spliterator<String> trySplit() {
+        if (limit > offset || end - position < MIN_SPLIT_SIZE * 2) {
+            return null;
+        }
+        long split = nextLineStart(position + (end - position) / 2);
+        if (split <= position || split >= end) {
+            return null;
+        }
+        LineSpliterator prefix = new LineSpliterator(channel, charset, position, split);
+        this.position = split;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return end - position + limit - offset;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL;
+    }
+
+    /**
+     * 读取下一行, 已读完时返回null
+     *
+     * @return
+     */
+    private String nextLine() {
+        while (true) {
+            int i = scan;
+            for (; i < limit; i++) {
+                byte b = buffer[i];
+                if (b == '\n' || b == '\r') {
+                    //'\r'位于缓冲区末尾时需读取后续数据以判断是否为"\r\n"
+                    if (b == '\r' && i + 1 == limit && position < end) {
+                        break;
+                    }
+                    String line = new String(buffer, offset, i - offset, charset);
+                    offset = i + 1;
+                    if (b == '\r' && offset < limit && buffer[offset] == '\n') {
+                        offset++;
+                    }
+                    scan = offset;
+                    return line;
+                }
+            }
+            scan = i;
+            if (position >= end) {
+                if (offset < limit) {
+                    String line = new String(buffer, offset, limit - offset, charset);
+                    offset = scan = limit;
+                    return line;
+                }
+                return null;
+            }
+            fill();
+        }
+    }
+
+    /**
+     * 将未处理的数据移至缓冲区开头, 然后从通道读取后续数据, 缓冲区已满时扩容
+     */
+    private void fill() {
+        int remaining = limit - offset;
+        if (buffer == null) {
+            buffer = new byte[(int) Math.min(BUFFER_SIZE, Math.max(end - position, 1))];
+        } else if (remaining == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        } else if (offset > 0) {
+            System.arraycopy(buffer, offset, buffer, 0, remaining);
+        }
+        scan -= offset;
+        offset = 0;
+        limit = remaining;
+        int length = (int) Math.min(buffer.length - remaining, end - position);
+        int read = read(ByteBuffer.wrap(buffer, remaining, length), position);
+        if (read < 0) {
+            //文件在读取过程中变小
+            end = position;
+        } else {
+            position += read;
+            limit += read;
+        }
+    }
+
+    /**
+     * 查找from之后(含)的第一个行结束符, 返回其后一行的起始位置, 找不到时返回-1
+     *
+     * @param from
+     * @return
+     */
+    private long nextLineStart(long from) {
+        ByteBuffer block = ByteBuffer.allocate(8 * 1024);
+        long pos = from;
+        while (pos < end) {
+            block.clear();
+            int read = read(block, pos);
+            if (read <= 0) {
+                return -1;
+            }
+            for (int i = 0; i < read; i++) {
+                byte b = block.get(i);
+                if (b == '\n') {
+                    return pos + i + 1;
+                }
+                if (b == '\r') {
+                    long next = pos + i + 1;
+                    if (next < end) {
+                        ByteBuffer one = ByteBuffer.allocate(1);
+                        if (read(one, next) == 1 && one.get(0) == '\n') {
+                            return next + 1;
+                        }
+                    }
+                    return next;
+                }
+            }
+            pos += read;
+        }
+        return -1;
+    }
+
+    private int read(ByteBuffer dst, long pos) {
+        try {
+            return channel.read(dst, pos);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
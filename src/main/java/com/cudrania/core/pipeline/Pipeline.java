@@ -2,6 +2,9 @@ package com.cudrania.core.pipeline;
 
 import com.cudrania.core.functions.Fn;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
 public interface Pipeline<IN, OUT> {
 
     /**
@@ -13,6 +16,17 @@ public interface Pipeline<IN, OUT> {
     OUT eval(IN input);
 
 
+    /**
+     * 异步计算pipeline, 根据步骤之间的参数依赖关系构建执行图, 相互独立的步骤在executor中并发执行<br>
+     * 可以传入虚拟线程的executor(JDK21及以上), 如Executors.newVirtualThreadPerTaskExecutor()
+     *
+     * @param input
+     * @param executor 执行步骤的线程池
+     * @return 最后一个步骤的结果, 任一步骤失败时以该异常完成
+     */
+    CompletableFuture<OUT> evalAsync(IN input, Executor executor);
+
+
     /**
      * 进入单参处理步骤
      */
@@ -76,6 +90,14 @@ public interface Pipeline<IN, OUT> {
          */
         Pipeline<S, IN> end();
 
+        /**
+         * 构建结束,生成带执行跟踪的pipeline
+         *
+         * @param tracer 执行跟踪, 如{@link PipelineTracer#logging()}
+         * @return
+         */
+        Pipeline<S, IN> end(PipelineTracer tracer);
+
 
         /**
          * 保存计算结果
@@ -2,6 +2,9 @@ package com.cudrania.core.pipeline;
 
 import com.cudrania.core.functions.Fn;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
 public interface Pipeline3<IN1, IN2, IN3, OUT> {
 
     /**
@@ -12,6 +15,19 @@ public interface Pipeline3<IN1, IN2, IN3, OUT> {
     OUT eval(IN1 input1, IN2 input2, IN3 input3);
 
 
+    /**
+     * 异步计算pipeline, 根据步骤之间的参数依赖关系构建执行图, 相互独立的步骤在executor中并发执行<br>
+     * 可以传入虚拟线程的executor(JDK21及以上), 如Executors.newVirtualThreadPerTaskExecutor()
+     *
+     * @param input1
+     * @param input2
+     * @param input3
+     * @param executor 执行步骤的线程池
+     * @return 最后一个步骤的结果, 任一步骤失败时以该异常完成
+     */
+    CompletableFuture<OUT> evalAsync(IN1 input1, IN2 input2, IN3 input3, Executor executor);
+
+
     /**
      * 进入单参处理步骤
      */
@@ -71,6 +87,14 @@ public interface Pipeline3<IN1, IN2, IN3, OUT> {
          */
         Pipeline3<S1, S2, S3, IN> end();
 
+        /**
+         * 构建结束,生成带执行跟踪的pipeline
+         *
+         * @param tracer 执行跟踪, 如{@link PipelineTracer#logging()}
+         * @return
+         */
+        Pipeline3<S1, S2, S3, IN> end(PipelineTracer tracer);
+
         /**
          * 保存计算结果
          *
@@ -2,20 +2,27 @@ package com.cudrania.core.pipeline;
 
 import lombok.Getter;
 
-import java.util.HashMap;
-import java.util.Map;
-
 /**
- * pipeline上下文,用于存取执行结果
+ * pipeline上下文,用于存取执行结果<br>
+ * 结果名称在构建pipeline时已解析为数组下标, 上下文按下标存取; 每次执行都会创建独立的上下文, 执行之间互不影响
  */
 public class PipelineContext {
 
-    private Map<String, Object> store = new HashMap<>();
+    private final Object[] store;
     @Getter
     private Object[] last;
     @Getter
     private Object[] first;
 
+    /**
+     * 构造方法
+     *
+     * @param size 结果的数量
+     */
+    public PipelineContext(int size) {
+        this.store = new Object[size];
+    }
+
     public void setLast(Object[] last) {
         this.last = last;
     }
@@ -34,31 +41,21 @@ public class PipelineContext {
     /**
      * 保存数据
      *
-     * @param name
+     * @param slot  数据下标
      * @param value
      */
-    public void put(String name, Object value) {
-        store.put(name, value);
-    }
-
-    /**
-     * 是否包含指定数据
-     *
-     * @param name
-     * @return
-     */
-    public boolean has(String name) {
-        return store.containsKey(name);
+    public void put(int slot, Object value) {
+        store[slot] = value;
     }
 
     /**
      * 获取指定数据
      *
-     * @param name
+     * @param slot 数据下标
      * @return
      */
-    public Object get(String name) {
-        return store.get(name);
+    public Object get(int slot) {
+        return store[slot];
     }
 
 
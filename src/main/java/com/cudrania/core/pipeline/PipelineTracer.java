@@ -0,0 +1,61 @@
+package com.cudrania.core.pipeline;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * pipeline执行跟踪, 每个步骤执行完成后回调, 用于记录日志或统计耗时<br>
+ * 未指定跟踪器时pipeline不会记录日志也不会计时; 跟踪器可能被多个线程同时调用, 实现类必须是线程安全的
+ *
+ * @author skyfalling
+ */
+@FunctionalInterface
+public interface PipelineTracer {
+
+    /**
+     * 步骤执行完成, 包括执行失败的情况
+     *
+     * @param depth       步骤深度
+     * @param inputNames  入参名称, 未指定时为空数组
+     * @param inputs      入参
+     * @param outputNames 出参名称
+     * @param output      执行结果, 执行失败时为null或异常处理的结果
+     * @param error       执行过程中的异常, 没有异常时为null
+     * @param nanos       执行耗时, 单位纳秒
+     */
+    void afterStep(int depth, String[] inputNames, Object[] inputs, String[] outputNames, Object output, Exception error, long nanos);
+
+
+    /**
+     * 以INFO级别记录每个步骤的入参、结果和耗时
+     *
+     * @return
+     */
+    static PipelineTracer logging() {
+        return Logging.INSTANCE;
+    }
+
+
+    /**
+     * 日志跟踪器
+     */
+    @Slf4j
+    final class Logging implements PipelineTracer {
+
+        private static final Logging INSTANCE = new Logging();
+
+        private Logging() {
+        }
+
+        @Override
+        public void afterStep(int depth, String[] inputNames, Object[] inputs, String[] outputNames, Object output, Exception error, long nanos) {
+            if (!log.isInfoEnabled()) {
+                return;
+            }
+            if (error != null) {
+                log.info("==>step [{}] with input{} failed in {}us, output{}: {}", depth, inputNames, nanos / 1000, outputNames, output, error);
+            } else {
+                log.info("==>step [{}] with input{} finished in {}us, output{}: {}", depth, inputNames, nanos / 1000, outputNames, output);
+            }
+        }
+    }
+}
@@ -6,10 +6,23 @@ import com.cudrania.core.pipeline.step.AbstractStep;
 import com.cudrania.core.pipeline.step.Pipeline2Step;
 import com.cudrania.core.pipeline.step.Pipeline3Step;
 import com.cudrania.core.pipeline.step.PipelineStep;
+import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.stream.IntStream;
+
 /**
- * 流水线实现,支持单参/双参/三参流水线
+ * 流水线实现,支持单参/双参/三参流水线<br>
+ * 构建时将步骤链编译为不可变的执行计划, 参数和结果名称解析为数组下标; 每次执行使用独立的上下文,
+ * 因此同一个pipeline实例可以被多个线程并发执行<br>
+ * 通过evalAsync方法执行时, 根据步骤间的参数依赖关系构建执行图, 相互独立的步骤在指定的线程池中并发执行<br>
+ * 每个步骤的调用方式在构建时确定, 执行时不记录日志也不计时, 需要时可通过{@link PipelineTracer}跟踪执行过程
  *
  * @param <IN1>
  * @param <IN2>
@@ -18,12 +31,64 @@ import lombok.extern.slf4j.Slf4j;
  */
 @Slf4j
 public class Pipelines<IN1, IN2, IN3, OUT> implements Pipeline<IN1, OUT>, Pipeline2<IN1, IN2, OUT>, Pipeline3<IN1, IN2, IN3, OUT> {
-    private AbstractStep step;
-    private PipelineContext context;
+    /**
+     * 初始参数名称
+     */
+    private final String[] inputNames;
+    /**
+     * 初始参数对应的下标
+     */
+    private final int[] inputSlots;
+    /**
+     * 执行步骤
+     */
+    private final Stage[] stages;
+    /**
+     * 命名结果的数量
+     */
+    private final int slots;
+    /**
+     * 执行跟踪, 为null时不跟踪
+     */
+    private final PipelineTracer tracer;
 
     public Pipelines(AbstractStep step) {
-        this.step = step;
-        this.context = new PipelineContext();
+        this(step, null);
+    }
+
+    /**
+     * 构造方法, 指定执行跟踪
+     *
+     * @param step   最后一个步骤
+     * @param tracer 执行跟踪, 为null时不跟踪
+     */
+    public Pipelines(AbstractStep step, PipelineTracer tracer) {
+        this.tracer = tracer;
+        Map<String, Integer> slotIndex = new HashMap<>();
+        AbstractStep initStep = step.getInitStep();
+        this.inputNames = initStep.getOutputNames().clone();
+        this.inputSlots = define(inputNames, slotIndex);
+        //记录每个下标当前的生产者, 非负数为步骤序号, 负数-(i+1)为第i个初始参数
+        Map<Integer, Integer> producers = new HashMap<>();
+        for (int i = 0; i < inputSlots.length; i++) {
+            producers.put(inputSlots[i], -(i + 1));
+        }
+        List<Stage> stages = new ArrayList<>();
+        for (AbstractStep current = initStep.getNextStep(); current != null; current = current.getNextStep()) {
+            //先解析入参再定义出参, 步骤不能引用自身的结果
+            int[] in = resolve(current.getInputNames(), slotIndex);
+            int[] sources = new int[in.length];
+            for (int i = 0; i < in.length; i++) {
+                sources[i] = producers.get(in[i]);
+            }
+            int[] out = define(current.getOutputNames(), slotIndex);
+            for (int slot : out) {
+                producers.put(slot, stages.size());
+            }
+            stages.add(new Stage(current, stages.size(), in, out, sources));
+        }
+        this.stages = stages.toArray(new Stage[0]);
+        this.slots = slotIndex.size();
     }
 
     /**
@@ -144,6 +209,45 @@ public class Pipelines<IN1, IN2, IN3, OUT> implements Pipeline<IN1, OUT>, Pipeli
         return eval0(input1, input2, input3);
     }
 
+    /**
+     * 赋值参数并异步执行pipeline
+     *
+     * @param input    pipeline参数
+     * @param executor 执行步骤的线程池
+     * @return
+     */
+    @Override
+    public CompletableFuture<OUT> evalAsync(IN1 input, Executor executor) {
+        return evalAsync0(executor, input);
+    }
+
+    /**
+     * 赋值参数并异步执行pipeline
+     *
+     * @param input1   第一个pipeline参数
+     * @param input2   第二个pipeline参数
+     * @param executor 执行步骤的线程池
+     * @return
+     */
+    @Override
+    public CompletableFuture<OUT> evalAsync(IN1 input1, IN2 input2, Executor executor) {
+        return evalAsync0(executor, input1, input2);
+    }
+
+    /**
+     * 赋值参数并异步执行pipeline
+     *
+     * @param input1   第一个pipeline参数
+     * @param input2   第二个pipeline参数
+     * @param input3   第三个pipeline参数
+     * @param executor 执行步骤的线程池
+     * @return
+     */
+    @Override
+    public CompletableFuture<OUT> evalAsync(IN1 input1, IN2 input2, IN3 input3, Executor executor) {
+        return evalAsync0(executor, input1, input2, input3);
+    }
+
     /**
      * 赋值参数并执行pipeline
      *
@@ -152,85 +256,258 @@ public class Pipelines<IN1, IN2, IN3, OUT> implements Pipeline<IN1, OUT>, Pipeli
      * @return
      */
     private <R> R eval0(Object... inputs) {
+        PipelineContext context = new PipelineContext(slots);
         context.setFirst(inputs);
-        AbstractStep initStep = this.step.getInitStep();
-        String[] inputNames = initStep.getOutputNames();
-        log.info("==>init step [{}] with input: {}", 0, inputNames);
         //初始步骤的出参作为第一个步骤的参数
-        for (int i = 0; i < inputs.length && i < inputNames.length; i++) {
-            context.put(inputNames[i], inputs[i]);
+        for (int i = 0; i < inputs.length && i < inputSlots.length; i++) {
+            context.put(inputSlots[i], inputs[i]);
         }
-        AbstractStep step = initStep.getNextStep();
-        while (step != null) {
-            doEval(step);
-            step = step.getNextStep();
+        for (Stage stage : stages) {
+            doEval(stage, context);
         }
         return (R) context.getLast()[0];
     }
 
 
+    /**
+     * 赋值参数并按依赖关系异步执行pipeline<br>
+     * 每个步骤在其依赖的步骤全部完成后提交到executor执行, 结果保存在各自的future中,
+     * 因此同名结果被后续步骤覆盖时不会影响并发执行的步骤; 所有步骤完成后返回最后一个步骤的结果
+     *
+     * @param executor
+     * @param inputs
+     * @param <R>
+     * @return
+     */
+    private <R> CompletableFuture<R> evalAsync0(Executor executor, Object... inputs) {
+        if (stages.length == 0) {
+            return CompletableFuture.completedFuture((R) inputs[0]);
+        }
+        CompletableFuture<Object>[] futures = new CompletableFuture[stages.length];
+        for (Stage stage : stages) {
+            int[] dependencies = stage.dependencies;
+            CompletableFuture<?> ready;
+            if (dependencies.length == 0) {
+                ready = CompletableFuture.completedFuture(null);
+            } else if (dependencies.length == 1) {
+                ready = futures[dependencies[0]];
+            } else {
+                ready = CompletableFuture.allOf(IntStream.of(dependencies).mapToObj(i -> futures[i]).toArray(CompletableFuture[]::new));
+            }
+            futures[stage.index] = ready.thenApplyAsync(v -> invoke(stage, inputValues(stage, futures, inputs)), executor);
+        }
+        CompletableFuture<Object> last = futures[stages.length - 1];
+        return CompletableFuture.allOf(futures).thenApply(v -> (R) last.join());
+    }
+
+    /**
+     * 获取异步执行时步骤的入参, 调用时依赖的步骤均已完成
+     *
+     * @param step
+     * @param futures
+     * @param inputs
+     * @return
+     */
+    private Object[] inputValues(Stage step, CompletableFuture<Object>[] futures, Object[] inputs) {
+        int[] sources = step.sources;
+        if (sources.length == 0) {
+            return step.index == 0 ? inputs : new Object[]{futures[step.index - 1].join()};
+        }
+        Object[] inputValues = new Object[sources.length];
+        for (int i = 0; i < sources.length; i++) {
+            int source = sources[i];
+            if (source >= 0) {
+                inputValues[i] = futures[source].join();
+            } else if (-(source + 1) < inputs.length) {
+                inputValues[i] = inputs[-(source + 1)];
+            }
+        }
+        return inputValues;
+    }
+
+
     /**
      * 执行当前步骤
      *
      * @param step
+     * @param context
      * @param <R>
      * @return
      */
-    private <R> R doEval(AbstractStep step) {
-        log.info("==>begin step [{}] with input: {}", step.getDepth(), step.getInputNames());
-        String[] inputNames = step.getInputNames();
-        Object[] inputValues = new Object[inputNames.length];
-        if (inputNames.length == 0) {
+    private <R> R doEval(Stage step, PipelineContext context) {
+        int[] inputSlots = step.inputSlots;
+        Object[] inputValues;
+        if (inputSlots.length == 0) {
             inputValues = context.getLast();
         } else {
-            for (int i = 0; i < inputNames.length; i++) {
-                String inputName = inputNames[i];
-                if (!context.has(inputName)) {
-                    throw new IllegalStateException("param not provided: " + inputName);
-                }
-                inputValues[i] = context.get(inputName);
+            inputValues = new Object[inputSlots.length];
+            for (int i = 0; i < inputSlots.length; i++) {
+                inputValues[i] = context.get(inputSlots[i]);
             }
         }
-        Object output;
+        Object output = invoke(step, inputValues);
+        for (int outputSlot : step.outputSlots) {
+            context.put(outputSlot, output);
+        }
+        context.setLast(new Object[]{output});
+        return (R) output;
+    }
+
+    /**
+     * 以指定的入参调用步骤的能力模型
+     *
+     * @param step
+     * @param inputValues
+     * @return
+     */
+    @SneakyThrows
+    private Object invoke(Stage step, Object[] inputValues) {
+        PipelineTracer tracer = this.tracer;
+        long start = tracer != null ? System.nanoTime() : 0L;
+        Object output = null;
+        Exception error = null;
         try {
-            Lambda ability = step.getAbility();
-            if (ability instanceof Fn.Function) {
-                output = Fn.Function.class.cast(ability).apply(inputValues[0]);
-            } else if (ability instanceof Fn.BiFunction) {
-                output = Fn.BiFunction.class.cast(ability).apply(inputValues[0], inputValues[1]);
-            } else if (ability instanceof Fn.TriFunction) {
-                output = Fn.TriFunction.class.cast(ability).apply(inputValues[0], inputValues[1], inputValues[2]);
-            }/* else if (ability instanceof Fn.QuaFunction) {
-                output = Fn.QuaFunction.class.cast(ability).apply(inputValues[0], inputValues[1], inputValues[2], inputValues[3]);
-            } else if (ability instanceof Fn.QuiFunction) {
-                output = Fn.QuiFunction.class.cast(ability).apply(inputValues[0], inputValues[1], inputValues[2], inputValues[3], inputValues[4]);
-            } else if (ability instanceof Fn.HexFunction) {
-                output = Fn.HexFunction.class.cast(ability).apply(inputValues[0], inputValues[1], inputValues[2], inputValues[3], inputValues[4], inputValues[5]);
-            } else if (ability instanceof Fn.HepFunction) {
-                output = Fn.HepFunction.class.cast(ability).apply(inputValues[0], inputValues[1], inputValues[2], inputValues[3], inputValues[4], inputValues[5], inputValues[6]);
-            } else if (ability instanceof Fn.OctFunction) {
-                output = Fn.OctFunction.class.cast(ability).apply(inputValues[0], inputValues[1], inputValues[2], inputValues[3], inputValues[4], inputValues[5], inputValues[6], inputValues[7]);
-            } else if (ability instanceof Fn.NonFunction) {
-                output = Fn.NonFunction.class.cast(ability).apply(inputValues[0], inputValues[1], inputValues[2], inputValues[3], inputValues[4], inputValues[5], inputValues[6], inputValues[7], inputValues[8]);
-            } else if (ability instanceof Fn.DecFunction) {
-                output = Fn.DecFunction.class.cast(ability).apply(inputValues[0], inputValues[1], inputValues[2], inputValues[3], inputValues[4], inputValues[5], inputValues[6], inputValues[7], inputValues[8], inputValues[9]);
-            } */ else {
-                throw new UnsupportedOperationException("unsupported lambda function!");
-            }
+            output = step.invoker.invoke(inputValues);
         } catch (Exception e) {
-            if (step.getErrorHandler() != null) {
-                log.warn("==>failover for step [{}], error caused by: ", step.getDepth(), e);
-                output = step.getErrorHandler().apply(e);
-            } else {
-                throw e;
+            error = e;
+        }
+        if (error != null && step.errorHandler != null) {
+            log.warn("==>failover for step [{}], error caused by: ", step.depth, error);
+            output = step.errorHandler.apply(error);
+        }
+        if (tracer != null) {
+            tracer.afterStep(step.depth, step.inputNames, inputValues, step.outputNames, output, error, System.nanoTime() - start);
+        }
+        if (error != null && step.errorHandler == null) {
+            throw error;
+        }
+        return output;
+    }
+
+    /**
+     * 根据能力模型的类型生成调用方式
+     *
+     * @param ability
+     * @return
+     */
+    private static Invoker invoker(Lambda ability) {
+        if (ability instanceof Fn.Function) {
+            Fn.Function function = (Fn.Function) ability;
+            return args -> function.apply(args[0]);
+        }
+        if (ability instanceof Fn.BiFunction) {
+            Fn.BiFunction function = (Fn.BiFunction) ability;
+            return args -> function.apply(args[0], args[1]);
+        }
+        if (ability instanceof Fn.TriFunction) {
+            Fn.TriFunction function = (Fn.TriFunction) ability;
+            return args -> function.apply(args[0], args[1], args[2]);
+        }
+        throw new UnsupportedOperationException("unsupported lambda function!");
+    }
+
+    /**
+     * 为结果名称分配下标, 同名结果共用一个下标
+     *
+     * @param names
+     * @param slotIndex
+     * @return
+     */
+    private static int[] define(String[] names, Map<String, Integer> slotIndex) {
+        int[] slots = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            slots[i] = slotIndex.computeIfAbsent(names[i], name -> slotIndex.size());
+        }
+        return slots;
+    }
+
+    /**
+     * 解析参数名称对应的下标, 参数必须是初始参数或之前步骤的结果
+     *
+     * @param names
+     * @param slotIndex
+     * @return
+     */
+    private static int[] resolve(String[] names, Map<String, Integer> slotIndex) {
+        int[] slots = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            Integer slot = slotIndex.get(names[i]);
+            if (slot == null) {
+                throw new IllegalStateException("param not provided: " + names[i]);
             }
+            slots[i] = slot;
         }
-        for (String outputName : step.getOutputNames()) {
-            context.put(outputName, output);
+        return slots;
+    }
+
+
+    /**
+     * 步骤的调用方式
+     */
+    @FunctionalInterface
+    private interface Invoker {
+        Object invoke(Object[] args);
+    }
+
+    /**
+     * 编译后的执行步骤, 不可变
+     */
+    private static final class Stage {
+        /**
+         * 节点深度
+         */
+        final int depth;
+        /**
+         * 步骤序号, 从0开始
+         */
+        final int index;
+        /**
+         * 能力模型的调用方式
+         */
+        final Invoker invoker;
+        /**
+         * 异常处理
+         */
+        final Fn.Function errorHandler;
+        /**
+         * 入参名称
+         */
+        final String[] inputNames;
+        /**
+         * 出参名称
+         */
+        final String[] outputNames;
+        /**
+         * 入参下标, 为空时以上一步骤的结果作为入参
+         */
+        final int[] inputSlots;
+        /**
+         * 出参下标
+         */
+        final int[] outputSlots;
+        /**
+         * 入参的生产者, 非负数为步骤序号, 负数-(i+1)为第i个初始参数
+         */
+        final int[] sources;
+        /**
+         * 依赖的步骤序号
+         */
+        final int[] dependencies;
+
+        Stage(AbstractStep step, int index, int[] inputSlots, int[] outputSlots, int[] sources) {
+            this.depth = step.getDepth();
+            this.index = index;
+            this.invoker = invoker(step.getAbility());
+            this.errorHandler = step.getErrorHandler();
+            this.inputNames = step.getInputNames().clone();
+            this.outputNames = step.getOutputNames().clone();
+            this.inputSlots = inputSlots;
+            this.outputSlots = outputSlots;
+            this.sources = sources;
+            //未指定入参时以上一步骤的结果作为入参
+            this.dependencies = inputSlots.length == 0 && index > 0
+                    ? new int[]{index - 1} : IntStream.of(sources).filter(s -> s >= 0).distinct().toArray();
         }
-        context.setLast(new Object[]{output});
-        log.info("==>finish step [{}] with output{}: {} ", step.getDepth(), step.getOutputNames(), output);
-        return (R) output;
     }
 
 
@@ -6,6 +6,7 @@ import com.cudrania.core.pipeline.Named;
 import lombok.Getter;
 
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * 流水线步骤实现
@@ -13,6 +14,17 @@ import java.util.Arrays;
 @Getter
 public abstract class AbstractStep<Step extends AbstractStep> {
 
+    /**
+     * lambda类对应的名称, lambda类与其引用的方法一一对应, 避免每次构建都反射解析名称<br>
+     * 名称保存在ClassValue中, 不会阻止lambda类及其类加载器被卸载; 名称只能从lambda实例解析, 首次使用时填充
+     */
+    private static final ClassValue<AtomicReference<String>> NAMES = new ClassValue<AtomicReference<String>>() {
+        @Override
+        protected AtomicReference<String> computeValue(Class<?> type) {
+            return new AtomicReference<>();
+        }
+    };
+
     /**
      * 入参名称
      */
@@ -107,7 +119,27 @@ public abstract class AbstractStep<Step extends AbstractStep> {
      * @return
      */
     private String[] toStrings(Named<?, ?>... inputs) {
-        return Arrays.stream(inputs).map(Named::name).toArray(n -> new String[n]);
+        return Arrays.stream(inputs).map(AbstractStep::nameOf).toArray(n -> new String[n]);
+    }
+
+    /**
+     * 获取名称, 编译器生成的lambda类按类缓存
+     *
+     * @param named
+     * @return
+     */
+    private static String nameOf(Named<?, ?> named) {
+        Class<?> type = named.getClass();
+        if (!type.isSynthetic()) {
+            return named.name();
+        }
+        AtomicReference<String> cached = NAMES.get(type);
+        String name = cached.get();
+        if (name == null) {
+            name = named.name();
+            cached.set(name);
+        }
+        return name;
     }
 
 }
@@ -7,6 +7,7 @@ import com.cudrania.core.pipeline.Pipeline2;
 import com.cudrania.core.pipeline.Pipeline2.StepIn;
 import com.cudrania.core.pipeline.Pipeline2.StepIn2;
 import com.cudrania.core.pipeline.Pipeline2.StepIn3;
+import com.cudrania.core.pipeline.PipelineTracer;
 import com.cudrania.core.pipeline.Pipelines;
 import lombok.Getter;
 
@@ -75,6 +76,11 @@ public class Pipeline2Step<S1, S2, IN1, IN2, IN3> extends AbstractStep<Pipeline2
         return (Pipeline2<S1, S2, IN1>) new Pipelines(this);
     }
 
+    @Override
+    public Pipeline2<S1, S2, IN1> end(PipelineTracer tracer) {
+        return (Pipeline2<S1, S2, IN1>) new Pipelines(this, tracer);
+    }
+
     @Override
     public <T> StepIn<S1, S2, IN1> as(Named<T, IN1> name) {
         return outputName(name);
@@ -7,6 +7,7 @@ import com.cudrania.core.pipeline.Pipeline3;
 import com.cudrania.core.pipeline.Pipeline3.StepIn;
 import com.cudrania.core.pipeline.Pipeline3.StepIn2;
 import com.cudrania.core.pipeline.Pipeline3.StepIn3;
+import com.cudrania.core.pipeline.PipelineTracer;
 import com.cudrania.core.pipeline.Pipelines;
 import lombok.Getter;
 
@@ -78,6 +79,11 @@ public class Pipeline3Step<S1, S2, S3, IN1, IN2, IN3> extends AbstractStep<Pipel
         return (Pipeline3<S1, S2, S3, IN1>) new Pipelines(this);
     }
 
+    @Override
+    public Pipeline3<S1, S2, S3, IN1> end(PipelineTracer tracer) {
+        return (Pipeline3<S1, S2, S3, IN1>) new Pipelines(this, tracer);
+    }
+
     @Override
     public <T> StepIn<S1, S2, S3, IN1> as(Named<T, IN1> name) {
         return outputName(name);
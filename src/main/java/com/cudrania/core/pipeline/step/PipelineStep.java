@@ -7,6 +7,7 @@ import com.cudrania.core.pipeline.Pipeline;
 import com.cudrania.core.pipeline.Pipeline.StepIn;
 import com.cudrania.core.pipeline.Pipeline.StepIn2;
 import com.cudrania.core.pipeline.Pipeline.StepIn3;
+import com.cudrania.core.pipeline.PipelineTracer;
 import com.cudrania.core.pipeline.Pipelines;
 import lombok.Getter;
 
@@ -75,6 +76,11 @@ public class PipelineStep<S, IN1, IN2, IN3> extends AbstractStep<PipelineStep> i
         return (Pipeline<S, IN1>) new Pipelines(this);
     }
 
+    @Override
+    public Pipeline<S, IN1> end(PipelineTracer tracer) {
+        return (Pipeline<S, IN1>) new Pipelines(this, tracer);
+    }
+
     @Override
     public <T> StepIn<S, IN1> as(Named<T, IN1> name) {
         return outputName(name);
@@ -36,6 +36,7 @@ import java.util.function.Predicate;
  *           password: root
  *           jdbc-url: jdbc:mysql://127.0.0.01:3306/audit?autoReconnect=true
  * </pre>
+ * type配置为pooled时使用内置的连接池{@link PooledDataSource}
  *
  * @author scorpio
  * @version 1.0.0
@@ -46,6 +47,10 @@ public class DataSourceBuilder {
      * 默认配置
      */
     private final static String DEFAULT_NAME = "default";
+    /**
+     * 内置连接池的类型名称
+     */
+    public final static String POOLED = "pooled";
     /**
      * 数据源配置
      */
@@ -86,6 +91,8 @@ public class DataSourceBuilder {
         Class<? extends DataSource> dsClass = null;
         if (dsType instanceof Class) {
             dsClass = (Class<? extends DataSource>) dsType;
+        } else if (POOLED.equals(dsType)) {
+            dsClass = PooledDataSource.class;
         } else if (dsType instanceof String && !((String) dsType).isEmpty()) {
             dsClass = (Class<? extends DataSource>) Class.forName((String) dsType);
         }
@@ -132,6 +139,16 @@ public class DataSourceBuilder {
         return build(n -> true);
     }
 
+    /**
+     * 创建全部数据源并构建读写分离的数据源, 名称为primary的作为主库, 其余的作为从库
+     *
+     * @param primary 主库名称
+     * @return
+     */
+    public RoutingDataSource buildRouting(String primary) {
+        return RoutingDataSource.of(buildAll(), primary);
+    }
+
     /**
      * 合并配置项
      *
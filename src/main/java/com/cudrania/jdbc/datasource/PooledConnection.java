@@ -0,0 +1,235 @@
+package com.cudrania.jdbc.datasource;
+
+import com.cudrania.core.io.Closer;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * 连接池中的物理连接<br>
+ * 每次借出时创建一个新的代理连接, 代理连接关闭后将物理连接归还连接池, 再次调用其方法会抛出异常<br>
+ * 代理连接创建的语句同样被代理, 语句抛出连接类错误(SQLState为08xxx)时标记连接不可用, 归还时关闭借出期间未关闭的语句;
+ * 通过unwrap在物理连接上直接创建的语句不受管理
+ *
+ * @author skyfalling
+ */
+class PooledConnection {
+
+    final PooledDataSource pool;
+    final Connection physical;
+    /**
+     * 创建连接时的默认设置, 归还时恢复
+     */
+    private final boolean autoCommit;
+    private final boolean readOnly;
+    private final int isolation;
+    private final String catalog;
+    /**
+     * 最近一次归还的时间
+     */
+    volatile long lastUsed;
+    /**
+     * 最近一次借出的时间
+     */
+    volatile long borrowedAt;
+    /**
+     * 借出时的调用栈, 只在开启泄漏检测时记录
+     */
+    volatile Throwable borrowTrace;
+    /**
+     * 是否已报告泄漏
+     */
+    volatile boolean leakReported;
+    /**
+     * 连接是否发生了不可恢复的错误
+     */
+    volatile boolean broken;
+    /**
+     * 借出期间是否修改过连接设置
+     */
+    private boolean dirty;
+    /**
+     * 借出期间创建且未关闭的语句
+     */
+    private final Set<Statement> statements = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    PooledConnection(PooledDataSource pool, Connection physical) throws SQLException {
+        this.pool = pool;
+        this.physical = physical;
+        this.autoCommit = physical.getAutoCommit();
+        this.readOnly = physical.isReadOnly();
+        this.isolation = physical.getTransactionIsolation();
+        this.catalog = physical.getCatalog();
+        this.lastUsed = System.currentTimeMillis();
+    }
+
+    /**
+     * 借出连接, 返回新的代理连接
+     *
+     * @param trace 借出时的调用栈, 可以为null
+     * @return
+     */
+    Connection borrow(Throwable trace) {
+        borrowedAt = System.currentTimeMillis();
+        borrowTrace = trace;
+        leakReported = false;
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class[]{Connection.class}, new Handler());
+    }
+
+    /**
+     * 归还前回滚未提交的事务并恢复默认设置
+     *
+     * @throws SQLException
+     */
+    void reset() throws SQLException {
+        if (!statements.isEmpty()) {
+            for (Statement statement : new ArrayList<>(statements)) {
+                Closer.close(statement);
+            }
+            statements.clear();
+        }
+        if (!physical.getAutoCommit()) {
+            physical.rollback();
+        }
+        if (dirty) {
+            physical.setAutoCommit(autoCommit);
+            physical.setReadOnly(readOnly);
+            physical.setTransactionIsolation(isolation);
+            if (catalog != null) {
+                physical.setCatalog(catalog);
+            }
+            dirty = false;
+        }
+        lastUsed = System.currentTimeMillis();
+        borrowTrace = null;
+    }
+
+    /**
+     * 关闭物理连接
+     */
+    void destroy() {
+        Closer.close(physical);
+    }
+
+    /**
+     * 代理连接的调用处理, 每次借出对应一个实例
+     */
+    private class Handler implements InvocationHandler {
+
+        private boolean closed;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        pool.recycle(PooledConnection.this);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled(" + physical + ")";
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(physical)) {
+                        return physical;
+                    }
+                    break;
+                case "isWrapperFor":
+                    if (((Class<?>) args[0]).isInstance(physical)) {
+                        return true;
+                    }
+                    break;
+                case "setAutoCommit":
+                case "setReadOnly":
+                case "setTransactionIsolation":
+                case "setCatalog":
+                    dirty = true;
+                    break;
+                default:
+            }
+            if (closed) {
+                throw new SQLException("connection is closed", "08003");
+            }
+            Object result = forward(physical, method, args);
+            if (result instanceof Statement) {
+                Statement statement = (Statement) result;
+                statements.add(statement);
+                return Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class[]{method.getReturnType()},
+                        new StatementHandler((Connection) proxy, statement));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * 代理语句的调用处理
+     */
+    private class StatementHandler implements InvocationHandler {
+
+        private final Connection connection;
+        private final Statement statement;
+
+        StatementHandler(Connection connection, Statement statement) {
+            this.connection = connection;
+            this.statement = statement;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    statements.remove(statement);
+                    break;
+                case "getConnection":
+                    return connection;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled(" + statement + ")";
+                default:
+            }
+            return forward(statement, method, args);
+        }
+    }
+
+    /**
+     * 调用目标对象的方法, 发生连接类错误时标记连接不可用
+     *
+     * @param target
+     * @param method
+     * @param args
+     * @return
+     * @throws Throwable
+     */
+    private Object forward(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                String state = ((SQLException) cause).getSQLState();
+                if (state != null && state.startsWith("08")) {
+                    broken = true;
+                }
+            }
+            throw cause;
+        }
+    }
+}
@@ -0,0 +1,510 @@
+package com.cudrania.jdbc.datasource;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * 轻量级连接池, 在{@link DataSourceBuilder}中配置type: pooled使用, 主要配置项与HikariCP同名:
+ * <pre>
+ *     type: pooled
+ *     driver-class-name: org.h2.Driver
+ *     jdbc-url: jdbc:h2:mem:test
+ *     username: sa
+ *     password: sa
+ *     minimum-idle: 2
+ *     maximum-idle: 10
+ *     maximum-pool-size: 10
+ *     connection-timeout: 30000
+ *     idle-timeout: 600000
+ *     connection-test-query: SELECT 1
+ *     leak-detection-threshold: 60000
+ * </pre>
+ * 借出连接时只有信号量和无锁队列上的CAS操作; 最近使用的空闲连接优先借出, 空闲超过500ms的连接在借出前校验;
+ * 后台线程按{@link #housekeepingPeriod}回收超时的空闲连接、补足最小空闲连接并报告泄漏的连接
+ *
+ * @author skyfalling
+ */
+@Slf4j
+public class PooledDataSource implements DataSource, Closeable {
+
+    /**
+     * 空闲时间小于该值的连接借出时不做校验
+     */
+    private static final long VALIDATION_BYPASS_MILLIS = 500;
+
+    @Getter
+    @Setter
+    private String driverClassName;
+    /**
+     * 数据库地址, 也可以配置为url
+     */
+    @Getter
+    @Setter
+    private String jdbcUrl;
+    @Setter
+    private String url;
+    /**
+     * 用户名, 也可以配置为user
+     */
+    @Getter
+    @Setter
+    private String username;
+    @Getter
+    @Setter
+    private String user;
+    @Setter
+    private String password;
+    /**
+     * 传给驱动的连接属性
+     */
+    @Getter
+    @Setter
+    private Properties dataSourceProperties;
+    /**
+     * 最小空闲连接数
+     */
+    @Getter
+    @Setter
+    private int minimumIdle = 0;
+    /**
+     * 最大空闲连接数, 超出时归还的连接直接关闭; 小于等于0时等于最大连接数
+     */
+    @Getter
+    @Setter
+    private int maximumIdle = 0;
+    /**
+     * 最大连接数
+     */
+    @Getter
+    @Setter
+    private int maximumPoolSize = 10;
+    /**
+     * 等待连接的超时时间, 毫秒
+     */
+    @Getter
+    @Setter
+    private long connectionTimeout = 30000;
+    /**
+     * 空闲连接的超时时间, 毫秒, 超时的连接在保留最小空闲连接数的前提下关闭
+     */
+    @Getter
+    @Setter
+    private long idleTimeout = 600000;
+    /**
+     * 校验连接的SQL语句, 为空时使用{@link Connection#isValid(int)}
+     */
+    @Getter
+    @Setter
+    private String connectionTestQuery;
+    /**
+     * 校验连接的超时时间, 毫秒
+     */
+    @Getter
+    @Setter
+    private long validationTimeout = 5000;
+    /**
+     * 连接借出超过该时间未归还时报告泄漏, 毫秒, 小于等于0时不检测
+     */
+    @Getter
+    @Setter
+    private long leakDetectionThreshold = 0;
+    /**
+     * 后台维护任务的执行间隔, 毫秒
+     */
+    @Getter
+    @Setter
+    private long housekeepingPeriod = 30000;
+    @Getter
+    @Setter
+    private PrintWriter logWriter;
+    @Getter
+    @Setter
+    private int loginTimeout;
+
+    /**
+     * 空闲连接, 头部为最近归还的连接
+     */
+    private final ConcurrentLinkedDeque<PooledConnection> idleConnections = new ConcurrentLinkedDeque<>();
+    /**
+     * 借出中的连接
+     */
+    private final Set<PooledConnection> activeConnections = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final AtomicInteger totalCount = new AtomicInteger();
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LongAdder timeoutCount = new LongAdder();
+    /**
+     * 借出许可, 数量等于最大连接数
+     */
+    private volatile Semaphore permits;
+    private volatile ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Semaphore permits = start();
+        long begin = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(connectionTimeout, TimeUnit.MILLISECONDS)) {
+                timeoutCount.increment();
+                throw new SQLTransientConnectionException(String.format("connection is not available, request timed out after %dms (active=%d, idle=%d, waiting=%d)",
+                        connectionTimeout, getActiveConnections(), getIdleConnections(), getWaitingThreads()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("interrupted while waiting for connection", e);
+        }
+        try {
+            if (closed) {
+                throw new SQLException("datasource is closed");
+            }
+            PooledConnection connection;
+            while ((connection = idleConnections.pollFirst()) != null) {
+                idleCount.decrementAndGet();
+                if (validate(connection)) {
+                    break;
+                }
+                destroy(connection);
+            }
+            if (connection == null) {
+                connection = create();
+            }
+            long wait = System.nanoTime() - begin;
+            borrowCount.increment();
+            waitNanos.add(wait);
+            maxWaitNanos.accumulateAndGet(wait, Math::max);
+            activeConnections.add(connection);
+            return connection.borrow(leakDetectionThreshold > 0 ? new Exception("connection leak detected, borrowed at:") : null);
+        } catch (SQLException | RuntimeException | Error e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("pooled datasource does not support per-connection credentials");
+    }
+
+    /**
+     * 归还连接, 连接损坏、连接池已关闭或空闲连接已满时直接关闭
+     *
+     * @param connection
+     */
+    void recycle(PooledConnection connection) {
+        activeConnections.remove(connection);
+        try {
+            int maxIdle = maximumIdle > 0 ? maximumIdle : maximumPoolSize;
+            if (closed || connection.broken || idleCount.get() >= maxIdle) {
+                destroy(connection);
+                return;
+            }
+            try {
+                connection.reset();
+            } catch (SQLException e) {
+                log.warn("failed to reset connection, closing it: {}", e.getMessage());
+                destroy(connection);
+                return;
+            }
+            idleConnections.offerFirst(connection);
+            idleCount.incrementAndGet();
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * 关闭连接池, 空闲连接立即关闭, 借出中的连接在归还时关闭
+     */
+    @Override
+    public void close() {
+        closed = true;
+        ScheduledExecutorService executor = housekeeper;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        PooledConnection connection;
+        while ((connection = idleConnections.pollFirst()) != null) {
+            idleCount.decrementAndGet();
+            destroy(connection);
+        }
+    }
+
+    /**
+     * 连接池是否已关闭
+     *
+     * @return
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * 借出中的连接数
+     *
+     * @return
+     */
+    public int getActiveConnections() {
+        return activeConnections.size();
+    }
+
+    /**
+     * 空闲连接数
+     *
+     * @return
+     */
+    public int getIdleConnections() {
+        return idleCount.get();
+    }
+
+    /**
+     * 已创建且未关闭的连接数
+     *
+     * @return
+     */
+    public int getTotalConnections() {
+        return totalCount.get();
+    }
+
+    /**
+     * 等待连接的线程数
+     *
+     * @return
+     */
+    public int getWaitingThreads() {
+        Semaphore permits = this.permits;
+        return permits == null ? 0 : permits.getQueueLength();
+    }
+
+    /**
+     * 累计借出次数
+     *
+     * @return
+     */
+    public long getBorrowCount() {
+        return borrowCount.sum();
+    }
+
+    /**
+     * 累计等待超时次数
+     *
+     * @return
+     */
+    public long getTimeoutCount() {
+        return timeoutCount.sum();
+    }
+
+    /**
+     * 平均等待时间, 纳秒
+     *
+     * @return
+     */
+    public long getAverageWaitNanos() {
+        long count = borrowCount.sum();
+        return count == 0 ? 0 : waitNanos.sum() / count;
+    }
+
+    /**
+     * 最大等待时间, 纳秒
+     *
+     * @return
+     */
+    public long getMaxWaitNanos() {
+        return maxWaitNanos.get();
+    }
+
+    /**
+     * 第一次借出连接时初始化信号量和后台线程
+     *
+     * @return
+     * @throws SQLException
+     */
+    private Semaphore start() throws SQLException {
+        Semaphore permits = this.permits;
+        if (permits != null) {
+            return permits;
+        }
+        synchronized (this) {
+            if (this.permits == null) {
+                if (closed) {
+                    throw new SQLException("datasource is closed");
+                }
+                if (getUrl() == null) {
+                    throw new SQLException("jdbc url is required");
+                }
+                if (driverClassName != null && !driverClassName.isEmpty()) {
+                    try {
+                        Class.forName(driverClassName);
+                    } catch (ClassNotFoundException e) {
+                        throw new SQLException("driver class not found: " + driverClassName, e);
+                    }
+                }
+                this.permits = new Semaphore(maximumPoolSize);
+                housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread thread = new Thread(r, "pooled-datasource-housekeeper");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                housekeeper.scheduleWithFixedDelay(this::housekeep, 0, housekeepingPeriod, TimeUnit.MILLISECONDS);
+            }
+            return this.permits;
+        }
+    }
+
+    /**
+     * 后台维护: 回收超时的空闲连接, 补足最小空闲连接, 报告泄漏的连接
+     */
+    private void housekeep() {
+        try {
+            long now = System.currentTimeMillis();
+            Iterator<PooledConnection> iterator = idleConnections.descendingIterator();
+            while (iterator.hasNext() && idleCount.get() > minimumIdle) {
+                PooledConnection connection = iterator.next();
+                if (now - connection.lastUsed > idleTimeout && idleConnections.removeFirstOccurrence(connection)) {
+                    idleCount.decrementAndGet();
+                    destroy(connection);
+                }
+            }
+            //补充空闲连接时占用一个借出许可; 持有许可的线程最终各持有一个连接, 空闲连接数不超过剩余许可数时连接总数才不会超过最大连接数
+            while (!closed && idleCount.get() < minimumIdle && totalCount.get() < maximumPoolSize && permits.tryAcquire()) {
+                try {
+                    if (idleCount.get() > permits.availablePermits()) {
+                        break;
+                    }
+                    idleConnections.offerLast(create());
+                    idleCount.incrementAndGet();
+                } finally {
+                    permits.release();
+                }
+            }
+            if (leakDetectionThreshold > 0) {
+                for (PooledConnection connection : activeConnections) {
+                    Throwable trace = connection.borrowTrace;
+                    if (trace != null && !connection.leakReported && now - connection.borrowedAt > leakDetectionThreshold) {
+                        connection.leakReported = true;
+                        log.warn("connection {} has been borrowed for {}ms", connection.physical, now - connection.borrowedAt, trace);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.warn("pooled datasource housekeeping failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 创建物理连接
+     *
+     * @return
+     * @throws SQLException
+     */
+    private PooledConnection create() throws SQLException {
+        Properties properties = new Properties();
+        if (dataSourceProperties != null) {
+            properties.putAll(dataSourceProperties);
+        }
+        String user = username != null ? username : this.user;
+        if (user != null) {
+            properties.setProperty("user", user);
+        }
+        if (password != null) {
+            properties.setProperty("password", password);
+        }
+        Connection physical = DriverManager.getConnection(getUrl(), properties);
+        totalCount.incrementAndGet();
+        try {
+            return new PooledConnection(this, physical);
+        } catch (SQLException e) {
+            totalCount.decrementAndGet();
+            physical.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 校验空闲连接是否可用, 空闲时间很短的连接直接认为可用
+     *
+     * @param connection
+     * @return
+     */
+    private boolean validate(PooledConnection connection) {
+        if (System.currentTimeMillis() - connection.lastUsed < VALIDATION_BYPASS_MILLIS) {
+            return true;
+        }
+        try {
+            int timeout = (int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(validationTimeout));
+            if (connectionTestQuery == null || connectionTestQuery.isEmpty()) {
+                return connection.physical.isValid(timeout);
+            }
+            try (Statement stmt = connection.physical.createStatement()) {
+                stmt.setQueryTimeout(timeout);
+                stmt.execute(connectionTestQuery);
+            }
+            if (!connection.physical.getAutoCommit()) {
+                connection.physical.rollback();
+            }
+            return true;
+        } catch (SQLException e) {
+            log.warn("failed to validate connection {}: {}", connection.physical, e.getMessage());
+            return false;
+        }
+    }
+
+    private void destroy(PooledConnection connection) {
+        totalCount.decrementAndGet();
+        connection.destroy();
+    }
+
+    /**
+     * 数据库地址, 优先使用url
+     *
+     * @return
+     */
+    public String getUrl() {
+        return url != null ? url : jdbcUrl;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("not a wrapper for " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+}
@@ -0,0 +1,377 @@
+package com.cudrania.jdbc.datasource;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * 读写分离的数据源, 写操作使用主库, 读操作在从库之间分配<br>
+ * <ul>
+ * <li>{@link #getConnection()}总是返回主库连接, {@link #getConnection(boolean)}指定只读时返回从库连接</li>
+ * <li>同一线程持有主库连接期间, 以及主库连接提交或关闭后的{@link #readAfterWriteMillis}毫秒内, 读操作仍然使用主库, 以读到自己的写入</li>
+ * <li>写入时间记录在线程上, 在其他线程中执行的读操作需要通过{@link #propagate(Executor)}传递; {@link com.cudrania.jdbc.query.SqlQuery#async()}已自动传递</li>
+ * <li>从库获取连接失败时被摘除{@link #ejectMillis}毫秒, 期间不再分配; 全部从库不可用时使用主库</li>
+ * </ul>
+ * 会话({@link com.cudrania.jdbc.query.SqlSession})固定使用一个连接, 因此会话中的读写总是路由到同一个库
+ *
+ * @author skyfalling
+ */
+@Slf4j
+public class RoutingDataSource implements DataSource {
+
+    /**
+     * 从库的选择策略
+     */
+    public enum Strategy {
+        /**
+         * 轮询
+         */
+        ROUND_ROBIN,
+        /**
+         * 选择借出连接数最少的从库
+         */
+        LEAST_ACTIVE
+    }
+
+    /**
+     * 同一线程的主库写入状态
+     */
+    private final ThreadLocal<WriteStamp> lastWrite = ThreadLocal.withInitial(WriteStamp::new);
+
+    @Getter
+    private final DataSource primary;
+    private final Replica[] replicas;
+    private final AtomicInteger counter = new AtomicInteger();
+    @Getter
+    private Strategy strategy = Strategy.ROUND_ROBIN;
+    @Getter
+    private long readAfterWriteMillis = 1000;
+    @Getter
+    private long ejectMillis = 30000;
+
+    /**
+     * 指定主库和从库
+     *
+     * @param primary
+     * @param replicas
+     */
+    public RoutingDataSource(DataSource primary, Collection<DataSource> replicas) {
+        this.primary = primary;
+        this.replicas = replicas.stream().map(Replica::new).toArray(Replica[]::new);
+    }
+
+    /**
+     * 根据{@link DataSourceBuilder#buildAll()}创建的数据源列表构建, 名称为primary的作为主库, 其余的作为从库
+     *
+     * @param dataSources
+     * @param primary     主库名称
+     * @return
+     */
+    public static RoutingDataSource of(Map<String, DataSource> dataSources, String primary) {
+        if (!dataSources.containsKey(primary)) {
+            throw new IllegalArgumentException("datasource not defined: " + primary);
+        }
+        List<DataSource> replicas = new ArrayList<>();
+        dataSources.forEach((name, dataSource) -> {
+            if (!name.equals(primary)) {
+                replicas.add(dataSource);
+            }
+        });
+        return new RoutingDataSource(dataSources.get(primary), replicas);
+    }
+
+    /**
+     * 设置从库的选择策略, 默认为轮询
+     *
+     * @param strategy
+     * @return
+     */
+    public RoutingDataSource withStrategy(Strategy strategy) {
+        this.strategy = strategy;
+        return this;
+    }
+
+    /**
+     * 设置写后读使用主库的时间窗口, 小于等于0时读操作总是使用从库
+     *
+     * @param readAfterWriteMillis
+     * @return
+     */
+    public RoutingDataSource withReadAfterWrite(long readAfterWriteMillis) {
+        this.readAfterWriteMillis = readAfterWriteMillis;
+        return this;
+    }
+
+    /**
+     * 设置从库获取连接失败后被摘除的时间
+     *
+     * @param ejectMillis
+     * @return
+     */
+    public RoutingDataSource withEjectMillis(long ejectMillis) {
+        this.ejectMillis = ejectMillis;
+        return this;
+    }
+
+    /**
+     * 获取主库连接, 用于写操作
+     *
+     * @return
+     * @throws SQLException
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        return track(primary.getConnection());
+    }
+
+    /**
+     * 获取连接, 只读时优先使用从库
+     *
+     * @param readOnly 是否只读
+     * @return
+     * @throws SQLException
+     */
+    public Connection getConnection(boolean readOnly) throws SQLException {
+        if (!readOnly || replicas.length == 0) {
+            return getConnection();
+        }
+        long now = System.currentTimeMillis();
+        if (readAfterWriteMillis > 0 && lastWrite.get().isRecent(now, readAfterWriteMillis)) {
+            return primary.getConnection();
+        }
+        int start = counter.getAndIncrement() & Integer.MAX_VALUE;
+        for (int i = 0; i < replicas.length; i++) {
+            Replica replica = select(start + i, now);
+            if (replica == null) {
+                break;
+            }
+            try {
+                return replica.getConnection();
+            } catch (SQLException e) {
+                replica.ejectedUntil = System.currentTimeMillis() + ejectMillis;
+                log.warn("replica ejected for {}ms: {}", ejectMillis, e.getMessage());
+            }
+        }
+        return primary.getConnection();
+    }
+
+    /**
+     * 选择可用的从库, 全部不可用时返回null
+     *
+     * @param index 轮询序号
+     * @param now
+     * @return
+     */
+    private Replica select(int index, long now) {
+        Replica selected = null;
+        for (int i = 0; i < replicas.length; i++) {
+            Replica replica = replicas[(index + i) % replicas.length];
+            if (replica.ejectedUntil > now) {
+                continue;
+            }
+            if (strategy == Strategy.ROUND_ROBIN) {
+                return replica;
+            }
+            if (selected == null || replica.active.get() < selected.active.get()) {
+                selected = replica;
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * 可用的从库数
+     *
+     * @return
+     */
+    public int getAvailableReplicas() {
+        long now = System.currentTimeMillis();
+        int count = 0;
+        for (Replica replica : replicas) {
+            if (replica.ejectedUntil <= now) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return track(primary.getConnection(username, password));
+    }
+
+    /**
+     * 返回在执行任务期间沿用提交线程写入状态的执行器<br>
+     * 任务中的读操作能读到提交线程的写入, 任务中的写操作也计入提交线程的写入状态
+     *
+     * @param executor
+     * @return
+     */
+    public Executor propagate(Executor executor) {
+        return command -> {
+            WriteStamp stamp = lastWrite.get();
+            executor.execute(() -> {
+                WriteStamp saved = lastWrite.get();
+                lastWrite.set(stamp);
+                try {
+                    command.run();
+                } finally {
+                    lastWrite.set(saved);
+                }
+            });
+        };
+    }
+
+    /**
+     * 记录主库连接的借出, 返回在提交和关闭时更新写入时间的代理连接
+     *
+     * @param connection
+     * @return
+     */
+    private Connection track(Connection connection) {
+        WriteStamp stamp = lastWrite.get();
+        stamp.open.incrementAndGet();
+        stamp.time = System.currentTimeMillis();
+        boolean[] closed = new boolean[1];
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class[]{Connection.class}, (proxy, method, args) -> {
+            try {
+                return method.invoke(connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            } finally {
+                switch (method.getName()) {
+                    case "commit":
+                        stamp.time = System.currentTimeMillis();
+                        break;
+                    case "close":
+                        if (!closed[0]) {
+                            closed[0] = true;
+                            stamp.time = System.currentTimeMillis();
+                            stamp.open.decrementAndGet();
+                        }
+                        break;
+                    default:
+                }
+            }
+        });
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return primary.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        primary.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        primary.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return primary.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return primary.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return iface.isInstance(this) ? iface.cast(this) : primary.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || primary.isWrapperFor(iface);
+    }
+
+    /**
+     * 主库写入状态, 可在线程间共享
+     */
+    private static class WriteStamp {
+        /**
+         * 借出未关闭的主库连接数
+         */
+        final AtomicInteger open = new AtomicInteger();
+        /**
+         * 最近一次借出、提交或关闭主库连接的时间
+         */
+        volatile long time;
+
+        /**
+         * 是否持有主库连接或在时间窗口内写入过
+         *
+         * @param now
+         * @param window
+         * @return
+         */
+        boolean isRecent(long now, long window) {
+            return open.get() > 0 || now - time < window;
+        }
+    }
+
+    /**
+     * 从库及其状态
+     */
+    private class Replica {
+        final DataSource dataSource;
+        /**
+         * 借出的连接数, 只在{@link Strategy#LEAST_ACTIVE}策略下统计
+         */
+        final AtomicInteger active = new AtomicInteger();
+        /**
+         * 摘除的截止时间
+         */
+        volatile long ejectedUntil;
+
+        Replica(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        /**
+         * 获取连接, 按借出连接数选择时返回统计关闭的代理连接
+         *
+         * @return
+         * @throws SQLException
+         */
+        Connection getConnection() throws SQLException {
+            Connection connection = dataSource.getConnection();
+            if (strategy != Strategy.LEAST_ACTIVE) {
+                return connection;
+            }
+            active.incrementAndGet();
+            boolean[] closed = new boolean[1];
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class[]{Connection.class}, (proxy, method, args) -> {
+                if (method.getName().equals("close") && !closed[0]) {
+                    closed[0] = true;
+                    active.decrementAndGet();
+                }
+                try {
+                    return method.invoke(connection, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            });
+        }
+    }
+}
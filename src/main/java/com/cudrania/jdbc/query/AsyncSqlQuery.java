@@ -0,0 +1,63 @@
+package com.cudrania.jdbc.query;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 异步数据库访问接口, 查询在有界的执行器中运行, 并发数不超过连接池的最大连接数<br>
+ * 适用于同时发起多个互不依赖的查询, 由{@link SqlQuery#async()}获取
+ *
+ * @author skyfalling
+ */
+public interface AsyncSqlQuery {
+
+    /**
+     * 异步执行更新语句
+     *
+     * @return
+     */
+    CompletableFuture<Integer> executeUpdate();
+
+    /**
+     * 异步执行查询,返回ResultSetHandler接口实例对象rsh对查询的处理结果
+     *
+     * @param rsh
+     * @return
+     */
+    <T> CompletableFuture<T> executeQuery(ResultSetHandler<T> rsh);
+
+    /**
+     * 异步获取由Map&lt;String, Object&gt;对象表示的查询结果
+     *
+     * @return
+     */
+    CompletableFuture<List<Map<String, Object>>> getRows();
+
+    /**
+     * 异步获取由Class&lt;T&gt;对象表示的查询结果
+     *
+     * @param clazz
+     * @return
+     */
+    <T> CompletableFuture<List<T>> getRows(Class<T> clazz);
+
+    /**
+     * 异步获取查询结果中从第start条开始共size条的数据, 其中start起始值为1
+     *
+     * @param start
+     * @param size
+     * @return
+     */
+    CompletableFuture<List<Map<String, Object>>> getRows(int start, int size);
+
+    /**
+     * 异步获取查询结果中从第start条开始共size条的数据, 其中start起始值为1
+     *
+     * @param clazz
+     * @param start
+     * @param size
+     * @return
+     */
+    <T> CompletableFuture<List<T>> getRows(Class<T> clazz, int start, int size);
+}
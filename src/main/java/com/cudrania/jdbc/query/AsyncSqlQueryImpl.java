@@ -0,0 +1,52 @@
+package com.cudrania.jdbc.query;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * 异步数据库访问接口实现, 在指定的执行器中调用同步接口
+ *
+ * @author skyfalling
+ */
+class AsyncSqlQueryImpl implements AsyncSqlQuery {
+
+    private final SqlQuery query;
+    private final Executor executor;
+
+    AsyncSqlQueryImpl(SqlQuery query, Executor executor) {
+        this.query = query;
+        this.executor = executor;
+    }
+
+    @Override
+    public CompletableFuture<Integer> executeUpdate() {
+        return CompletableFuture.supplyAsync(query::executeUpdate, executor);
+    }
+
+    @Override
+    public <T> CompletableFuture<T> executeQuery(ResultSetHandler<T> rsh) {
+        return CompletableFuture.supplyAsync(() -> query.executeQuery(rsh), executor);
+    }
+
+    @Override
+    public CompletableFuture<List<Map<String, Object>>> getRows() {
+        return CompletableFuture.supplyAsync(query::getRows, executor);
+    }
+
+    @Override
+    public <T> CompletableFuture<List<T>> getRows(Class<T> clazz) {
+        return CompletableFuture.supplyAsync(() -> query.getRows(clazz), executor);
+    }
+
+    @Override
+    public CompletableFuture<List<Map<String, Object>>> getRows(int start, int size) {
+        return CompletableFuture.supplyAsync(() -> query.getRows(start, size), executor);
+    }
+
+    @Override
+    public <T> CompletableFuture<List<T>> getRows(Class<T> clazz, int start, int size) {
+        return CompletableFuture.supplyAsync(() -> query.getRows(clazz, start, size), executor);
+    }
+}
@@ -0,0 +1,318 @@
+package com.cudrania.jdbc.query;
+
+import com.cudrania.jdbc.table.DataTable;
+import com.cudrania.jdbc.table.DataTableFactory;
+import com.cudrania.jdbc.table.FieldProperty;
+import lombok.SneakyThrows;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 将结果集映射为实体对象的{@link RowMapper}实现<br>
+ * 创建时根据结果集的列标签解析出匹配字段的列索引和赋值方法, 逐行映射时只按索引取值和赋值, 基本类型字段不经过装箱<br>
+ * 取值或赋值失败时直接抛出异常, 不会跳过字段继续映射<br>
+ * 实例按(实体类型, 列标签)缓存, 该类是线程安全的
+ *
+ * @param <T>
+ * @author skyfalling
+ */
+final class BeanRowMapper<T> implements RowMapper<T> {
+
+    /**
+     * 缓存的最大数量, 超过时清空缓存
+     */
+    private static final int MAX_CACHE_SIZE = 1024;
+    /**
+     * 按(实体类型, 列标签)缓存的实例
+     */
+    private static final Map<Key, BeanRowMapper<?>> cache = new ConcurrentHashMap<>();
+
+    /**
+     * 无参构造方法句柄, 类型为()Object
+     */
+    private final MethodHandle constructor;
+    /**
+     * 匹配字段的列索引, 从1开始
+     */
+    private final int[] indexes;
+    /**
+     * 列的取值和赋值方法
+     */
+    private final ColumnBinder[] binders;
+
+    @SneakyThrows
+    private BeanRowMapper(Class<T> clazz, String[] labels) {
+        Constructor<T> ctor = clazz.getConstructor();
+        ctor.setAccessible(true);
+        this.constructor = MethodHandles.lookup().unreflectConstructor(ctor).asType(MethodType.methodType(Object.class));
+        DataTable table = DataTableFactory.get(clazz);
+        List<Integer> indexes = new ArrayList<>();
+        List<ColumnBinder> binders = new ArrayList<>();
+        for (int i = 0; i < labels.length; i++) {
+            FieldProperty field = table.getField(labels[i]);
+            if (field != null) {
+                indexes.add(i + 1);
+                binders.add(binder(field));
+            }
+        }
+        this.indexes = indexes.stream().mapToInt(Integer::intValue).toArray();
+        this.binders = binders.toArray(new ColumnBinder[0]);
+    }
+
+    /**
+     * 获取实体类型与结果集对应的实例
+     *
+     * @param clazz
+     * @param meta
+     * @param <T>
+     * @return
+     * @throws SQLException
+     */
+    static <T> BeanRowMapper<T> of(Class<T> clazz, ResultSetMetaData meta) throws SQLException {
+        String[] labels = new String[meta.getColumnCount()];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = meta.getColumnLabel(i + 1);
+        }
+        Key key = new Key(clazz, labels);
+        BeanRowMapper<?> mapper = cache.get(key);
+        if (mapper == null) {
+            if (cache.size() >= MAX_CACHE_SIZE) {
+                cache.clear();
+            }
+            mapper = cache.computeIfAbsent(key, k -> new BeanRowMapper<>(clazz, labels));
+        }
+        return (BeanRowMapper<T>) mapper;
+    }
+
+    @Override
+    @SneakyThrows
+    public T mapRow(ResultSet resultSet) throws SQLException {
+        Object bean = constructor.invokeExact();
+        for (int i = 0; i < indexes.length; i++) {
+            binders[i].bind(resultSet, indexes[i], bean);
+        }
+        return (T) bean;
+    }
+
+    /**
+     * 根据字段类型选择取值和赋值方法, int/long/double/boolean类型的字段直接按基本类型取值和赋值
+     *
+     * @param field
+     * @return
+     */
+    private static ColumnBinder binder(FieldProperty field) {
+        Class type = field.getType();
+        if (type == int.class) {
+            return (resultSet, index, bean) -> field.setInt(bean, resultSet.getInt(index));
+        } else if (type == long.class) {
+            return (resultSet, index, bean) -> field.setLong(bean, resultSet.getLong(index));
+        } else if (type == double.class) {
+            return (resultSet, index, bean) -> field.setDouble(bean, resultSet.getDouble(index));
+        } else if (type == boolean.class) {
+            return (resultSet, index, bean) -> field.setBoolean(bean, resultSet.getBoolean(index));
+        }
+        ColumnReader reader = reader(type);
+        MethodHandle setter = field.getSetterHandle();
+        return new ColumnBinder() {
+            @Override
+            @SneakyThrows
+            public void bind(ResultSet resultSet, int index, Object bean) throws SQLException {
+                Object value = reader.read(resultSet, index);
+                if (value != null) {
+                    setter.invokeExact(bean, value);
+                }
+            }
+        };
+    }
+
+
+    /**
+     * 根据字段类型选择结果集的取值方法<br>
+     * 基本类型的包装类按基本类型取值, 列值为NULL时返回null; 其他类型在此处一次性解析以字符串为参数的构造方法
+     *
+     * @param type
+     * @return
+     */
+    static ColumnReader reader(Class type) {
+        if (type == Integer.class) {
+            return (resultSet, index) -> {
+                int value = resultSet.getInt(index);
+                return resultSet.wasNull() ? null : value;
+            };
+        } else if (type == Long.class) {
+            return (resultSet, index) -> {
+                long value = resultSet.getLong(index);
+                return resultSet.wasNull() ? null : value;
+            };
+        } else if (type == Double.class) {
+            return (resultSet, index) -> {
+                double value = resultSet.getDouble(index);
+                return resultSet.wasNull() ? null : value;
+            };
+        } else if (type == Float.class) {
+            return (resultSet, index) -> {
+                float value = resultSet.getFloat(index);
+                return resultSet.wasNull() ? null : value;
+            };
+        } else if (type == Short.class) {
+            return (resultSet, index) -> {
+                short value = resultSet.getShort(index);
+                return resultSet.wasNull() ? null : value;
+            };
+        } else if (type == Byte.class) {
+            return (resultSet, index) -> {
+                byte value = resultSet.getByte(index);
+                return resultSet.wasNull() ? null : value;
+            };
+        } else if (type == Boolean.class) {
+            return (resultSet, index) -> {
+                boolean value = resultSet.getBoolean(index);
+                return resultSet.wasNull() ? null : value;
+            };
+        } else if (type.isAssignableFrom(Array.class)) {
+            return ResultSet::getArray;
+        } else if (type.isAssignableFrom(BigDecimal.class)) {
+            return ResultSet::getBigDecimal;
+        } else if (type.isAssignableFrom(InputStream.class)) {
+            return ResultSet::getBinaryStream;
+        } else if (type.isAssignableFrom(Blob.class)) {
+            return ResultSet::getBlob;
+        } else if (type.isAssignableFrom(boolean.class)) {
+            return ResultSet::getBoolean;
+        } else if (type.isAssignableFrom(byte.class)) {
+            return ResultSet::getByte;
+        } else if (type.isAssignableFrom(byte[].class)) {
+            return ResultSet::getBytes;
+        } else if (type.isAssignableFrom(Reader.class)) {
+            return ResultSet::getCharacterStream;
+        } else if (type.isAssignableFrom(Clob.class)) {
+            return ResultSet::getClob;
+        } else if (type.isAssignableFrom(Date.class)) {
+            return ResultSet::getDate;
+        } else if (type.isAssignableFrom(double.class)) {
+            return ResultSet::getDouble;
+        } else if (type.isAssignableFrom(float.class)) {
+            return ResultSet::getFloat;
+        } else if (type.isAssignableFrom(int.class)) {
+            return ResultSet::getInt;
+        } else if (type.isAssignableFrom(long.class)) {
+            return ResultSet::getLong;
+        } else if (type.isAssignableFrom(Ref.class)) {
+            return ResultSet::getRef;
+        } else if (type.isAssignableFrom(short.class)) {
+            return ResultSet::getShort;
+        } else if (type.isAssignableFrom(SQLXML.class)) {
+            return ResultSet::getSQLXML;
+        } else if (type.isAssignableFrom(String.class)) {
+            return ResultSet::getString;
+        } else if (type.isAssignableFrom(Time.class)) {
+            return ResultSet::getTime;
+        } else if (type.isAssignableFrom(Timestamp.class)) {
+            return ResultSet::getTimestamp;
+        } else if (type.isAssignableFrom(URL.class)) {
+            return ResultSet::getURL;
+        }
+        // 用字符串构造的对象实例
+        MethodHandle constructor = stringConstructor(type);
+        return new ColumnReader() {
+            @Override
+            @SneakyThrows
+            public Object read(ResultSet resultSet, int index) throws SQLException {
+                String value = resultSet.getString(index);
+                if (value == null) {
+                    return null;
+                }
+                if (constructor == null) {
+                    throw new IllegalArgumentException("no constructor of " + type.getName() + " accepts a string");
+                }
+                return constructor.invokeExact(value);
+            }
+        };
+    }
+
+    /**
+     * 查找以字符串为唯一参数的公有构造方法, 优先参数类型为String的构造方法, 返回类型为(String)Object的句柄, 不存在时返回null
+     *
+     * @param type
+     * @return
+     */
+    private static MethodHandle stringConstructor(Class<?> type) {
+        Constructor<?> matched = null;
+        for (Constructor<?> constructor : type.getConstructors()) {
+            Class<?>[] parameterTypes = constructor.getParameterTypes();
+            if (parameterTypes.length == 1 && parameterTypes[0].isAssignableFrom(String.class)
+                    && (matched == null || parameterTypes[0] == String.class)) {
+                matched = constructor;
+            }
+        }
+        if (matched == null) {
+            return null;
+        }
+        try {
+            return MethodHandles.publicLookup().unreflectConstructor(matched)
+                    .asType(MethodType.methodType(Object.class, String.class));
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+
+
+    /**
+     * 按列索引取值
+     */
+    @FunctionalInterface
+    interface ColumnReader {
+        Object read(ResultSet resultSet, int index) throws SQLException;
+    }
+
+    /**
+     * 按列索引取值并赋值给实体对象
+     */
+    @FunctionalInterface
+    interface ColumnBinder {
+        void bind(ResultSet resultSet, int index, Object bean) throws SQLException;
+    }
+
+    /**
+     * 缓存键
+     */
+    private static final class Key {
+        private final Class<?> type;
+        private final String[] labels;
+        private final int hash;
+
+        Key(Class<?> type, String[] labels) {
+            this.type = type;
+            this.labels = labels;
+            this.hash = type.hashCode() * 31 + Arrays.hashCode(labels);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return type == key.type && Arrays.equals(labels, key.labels);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
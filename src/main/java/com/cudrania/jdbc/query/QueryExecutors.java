@@ -0,0 +1,129 @@
+package com.cudrania.jdbc.query;
+
+import com.cudrania.jdbc.datasource.PooledDataSource;
+import com.cudrania.jdbc.datasource.RoutingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Method;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 异步查询的执行器, 每个数据源共用一个<br>
+ * 运行在Java 21及以上版本时每个查询使用一个虚拟线程, 否则使用固定大小的守护线程池, 空闲的线程会自动退出;
+ * 同一数据源上并发执行的查询数不超过连接池的最大连接数, 无法获取时为{@link #DEFAULT_CONCURRENCY}<br>
+ * 最大连接数依次从{@link PooledDataSource}, 读写分离数据源的主库, 以及数据源的{@link #POOL_SIZE_GETTERS}方法获取
+ *
+ * @author skyfalling
+ */
+class QueryExecutors {
+
+    /**
+     * 默认的最大并发数
+     */
+    static final int DEFAULT_CONCURRENCY = Runtime.getRuntime().availableProcessors() * 2;
+
+    /**
+     * 每个查询一个虚拟线程的执行器, 不支持时为null
+     */
+    private static final ExecutorService virtualThreads = virtualThreads();
+
+    /**
+     * 常见连接池获取最大连接数的方法, 依次为HikariCP, DBCP2, Druid和Tomcat JDBC
+     */
+    private static final String[] POOL_SIZE_GETTERS = {"getMaximumPoolSize", "getMaxTotal", "getMaxActive"};
+
+    private static final Map<DataSource, Executor> executors = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * 获取数据源对应的执行器
+     *
+     * @param dataSource
+     * @return
+     */
+    static Executor of(DataSource dataSource) {
+        return executors.computeIfAbsent(dataSource, ds -> create(concurrency(ds)));
+    }
+
+    /**
+     * 创建最大并发数为concurrency的执行器
+     *
+     * @param concurrency
+     * @return
+     */
+    static Executor create(int concurrency) {
+        if (virtualThreads != null) {
+            Semaphore permits = new Semaphore(concurrency);
+            return command -> virtualThreads.execute(() -> {
+                permits.acquireUninterruptibly();
+                try {
+                    command.run();
+                } finally {
+                    permits.release();
+                }
+            });
+        }
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(concurrency, concurrency, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "sql-query-async-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * 数据源的最大连接数
+     *
+     * @param dataSource
+     * @return
+     */
+    private static int concurrency(DataSource dataSource) {
+        try {
+            if (dataSource.isWrapperFor(PooledDataSource.class)) {
+                return dataSource.unwrap(PooledDataSource.class).getMaximumPoolSize();
+            }
+        } catch (SQLException e) {
+            //不支持时按其他方式获取
+        }
+        if (dataSource instanceof RoutingDataSource) {
+            return concurrency(((RoutingDataSource) dataSource).getPrimary());
+        }
+        for (String name : POOL_SIZE_GETTERS) {
+            try {
+                Method method = dataSource.getClass().getMethod(name);
+                Object size = method.invoke(dataSource);
+                if (size instanceof Integer && (Integer) size > 0) {
+                    return (Integer) size;
+                }
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                //方法不存在或不可访问时继续尝试
+            }
+        }
+        return DEFAULT_CONCURRENCY;
+    }
+
+    /**
+     * 通过反射创建虚拟线程执行器, 兼容Java 21以下的版本
+     *
+     * @return
+     */
+    private static ExecutorService virtualThreads() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
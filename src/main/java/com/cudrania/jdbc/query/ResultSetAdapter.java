@@ -2,18 +2,13 @@ package com.cudrania.jdbc.query;
 
 import com.cudrania.core.collection.map.CaseInsensitiveMap;
 import com.cudrania.core.exception.ExceptionChecker;
-import com.cudrania.core.reflection.Reflections;
-import com.cudrania.jdbc.table.DataTable;
-import com.cudrania.jdbc.table.DataTableFactory;
-import com.cudrania.jdbc.table.FieldProperty;
 
-import java.io.InputStream;
-import java.io.Reader;
-import java.math.BigDecimal;
-import java.net.URL;
-import java.sql.*;
-import java.util.Date;
-import java.util.*;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * ResultSet对象的转换类
@@ -125,7 +120,7 @@ public class ResultSetAdapter {
     public static <T> T getFirstRow(ResultSet resultSet, Class<T> clazz) {
         try {
             if (resultSet.next()) {
-                return getBean(clazz, resultSet);
+                return RowMapper.bean(clazz, resultSet).mapRow(resultSet);
             }
             return null;
         } catch (Exception e) {
@@ -168,8 +163,9 @@ public class ResultSetAdapter {
     public static <T> List<T> getRows(ResultSet resultSet, Class<T> clazz) {
         try {
             List<T> list = new ArrayList<T>();
+            RowMapper<T> mapper = RowMapper.bean(clazz, resultSet);
             while (resultSet.next()) {
-                list.add(getBean(clazz, resultSet));
+                list.add(mapper.mapRow(resultSet));
             }
             return list;
         } catch (Exception e) {
@@ -192,9 +188,10 @@ public class ResultSetAdapter {
         beforeRow(resultSet, start);
         try {
             List<T> list = new ArrayList<T>();
+            RowMapper<T> mapper = RowMapper.bean(clazz, resultSet);
             int num = 0;
-            while (resultSet.next() && num++ < size) {
-                list.add(getBean(clazz, resultSet));
+            while (num++ < size && resultSet.next()) {
+                list.add(mapper.mapRow(resultSet));
             }
             return list;
         } catch (Exception e) {
@@ -217,7 +214,7 @@ public class ResultSetAdapter {
             ResultSetMetaData meta = resultSet.getMetaData();
             int columnCount = meta.getColumnCount();
             int num = 0;
-            while (resultSet.next() && num++ < size) {
+            while (num++ < size && resultSet.next()) {
                 Map<String, Object> map = new CaseInsensitiveMap<String, Object>();
                 for (int i = 1; i <= columnCount; i++) {
                     map.put(meta.getColumnLabel(i), resultSet.getObject(i));
@@ -244,8 +241,9 @@ public class ResultSetAdapter {
     public static <T> Map<Object, T> getRowsMap(ResultSet resultSet, int index, Class<T> clazz) {
         try {
             Map<Object, T> map = new HashMap<Object, T>();
+            RowMapper<T> mapper = RowMapper.bean(clazz, resultSet);
             while (resultSet.next()) {
-                map.put(resultSet.getObject(index), getBean(clazz, resultSet));
+                map.put(resultSet.getObject(index), mapper.mapRow(resultSet));
             }
             return map;
         } catch (Exception e) {
@@ -301,12 +299,9 @@ public class ResultSetAdapter {
         ExceptionChecker.throwIf(rowNo < 1, "the value of rowNo cannot be low than 1: " + rowNo);
         try {
             if (resultSet.getType() == ResultSet.TYPE_FORWARD_ONLY) {
-                if (rowNo > 1) {
-                    int index = 0;
-                    while (resultSet.next()) {
-                        index++;
-                        if (index < rowNo - 1) continue;
-                    }
+                int index = 0;
+                while (index < rowNo - 1 && resultSet.next()) {
+                    index++;
                 }
             } else {
                 if (rowNo > 1) {
@@ -338,27 +333,6 @@ public class ResultSetAdapter {
     }
 
 
-    /**
-     * 获取查询结果的列名称
-     *
-     * @param resultSet
-     * @return
-     */
-    private static List<String> getColumnsName(ResultSet resultSet) {
-        try {
-            List<String> columns = new ArrayList<String>();
-            ResultSetMetaData meta = resultSet.getMetaData();
-            int count = meta.getColumnCount();
-            for (int i = 1; i <= count; i++) {
-                columns.add(meta.getColumnLabel(i));
-            }
-            return columns;
-        } catch (Exception e) {
-            throw ExceptionChecker.throwException(e);
-        }
-    }
-
-
     /**
      * 将查询字段赋值到实体对象中
      *
@@ -366,19 +340,11 @@ public class ResultSetAdapter {
      * @param resultSet
      */
     protected static <T> T getBean(Class<T> beanClass, ResultSet resultSet) {
-        T bean = Reflections.newInstance(beanClass);
-        DataTable table = DataTableFactory.get(bean.getClass());
-        final List<String> columns = getColumnsName(resultSet);
-        for (String column : columns) {
-            FieldProperty field = table.getField(column);
-            if (field != null) {
-                Object value = getFieldValue(field.getType(), column, resultSet);
-                if (value != null) {
-                    field.setValue(bean, value);
-                }
-            }
+        try {
+            return RowMapper.bean(beanClass, resultSet).mapRow(resultSet);
+        } catch (Exception e) {
+            throw ExceptionChecker.throwException(e);
         }
-        return bean;
     }
 
     /**
@@ -392,54 +358,7 @@ public class ResultSetAdapter {
     protected static Object getFieldValue(Class type, String fieldName, ResultSet resultSet) {
         Object value = null;
         try {
-            // 获取参数类型
-            if (type.isAssignableFrom(Array.class)) {
-                value = resultSet.getArray(fieldName);
-            } else if (type.isAssignableFrom(BigDecimal.class)) {
-                value = resultSet.getBigDecimal(fieldName);
-            } else if (type.isAssignableFrom(InputStream.class)) {
-                value = resultSet.getBinaryStream(fieldName);
-            } else if (type.isAssignableFrom(Blob.class)) {
-                value = resultSet.getBlob(fieldName);
-            } else if (type.isAssignableFrom(boolean.class)) {
-                value = resultSet.getBoolean(fieldName);
-            } else if (type.isAssignableFrom(byte.class)) {
-                value = resultSet.getByte(fieldName);
-            } else if (type.isAssignableFrom(byte[].class)) {
-                value = resultSet.getBytes(fieldName);
-            } else if (type.isAssignableFrom(Reader.class)) {
-                value = resultSet.getCharacterStream(fieldName);
-            } else if (type.isAssignableFrom(Clob.class)) {
-                value = resultSet.getClob(fieldName);
-            } else if (type.isAssignableFrom(Date.class)) {
-                value = resultSet.getDate(fieldName);
-            } else if (type.isAssignableFrom(double.class)) {
-                value = resultSet.getDouble(fieldName);
-            } else if (type.isAssignableFrom(float.class)) {
-                value = resultSet.getFloat(fieldName);
-            } else if (type.isAssignableFrom(int.class)) {
-                value = resultSet.getInt(fieldName);
-            } else if (type.isAssignableFrom(long.class)) {
-                value = resultSet.getLong(fieldName);
-            } else if (type.isAssignableFrom(Ref.class)) {
-                value = resultSet.getRef(fieldName);
-            } else if (type.isAssignableFrom(short.class)) {
-                value = resultSet.getShort(fieldName);
-            } else if (type.isAssignableFrom(SQLXML.class)) {
-                value = resultSet.getSQLXML(fieldName);
-            } else if (type.isAssignableFrom(String.class)) {
-                value = resultSet.getString(fieldName);
-            } else if (type.isAssignableFrom(Time.class)) {
-                value = resultSet.getTime(fieldName);
-            } else if (type.isAssignableFrom(Timestamp.class)) {
-                value = resultSet.getTimestamp(fieldName);
-            } else if (type.isAssignableFrom(URL.class)) {
-                value = resultSet.getURL(fieldName);
-            } else {
-                // 用字符串构造的对象实例
-                String args = resultSet.getString(fieldName);
-                value = Reflections.newInstance(type, args);
-            }
+            value = BeanRowMapper.reader(type).read(resultSet, resultSet.findColumn(fieldName));
         } catch (Exception e) {
             e.printStackTrace();
         }
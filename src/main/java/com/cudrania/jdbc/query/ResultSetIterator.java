@@ -0,0 +1,95 @@
+package com.cudrania.jdbc.query;
+
+import com.cudrania.core.exception.ExceptionChecker;
+import com.cudrania.core.io.Closer;
+
+import java.sql.ResultSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 按需读取结果集的迭代器, 每次只从游标中读取一行<br>
+ * 迭代器持有结果集及其所属的语句和连接, 直到读取完毕或调用{@link #close()}时才释放
+ *
+ * @param <T>
+ * @author skyfalling
+ */
+class ResultSetIterator<T> implements Iterator<T>, AutoCloseable {
+
+    private final ResultSet resultSet;
+    private final RowMapper<T> mapper;
+    /**
+     * 释放结果集、语句和连接
+     */
+    private final Runnable release;
+    /**
+     * 游标是否已指向下一行
+     */
+    private boolean fetched;
+    private boolean closed;
+
+    ResultSetIterator(ResultSet resultSet, RowMapper<T> mapper, Runnable release) {
+        this.resultSet = resultSet;
+        this.mapper = mapper;
+        this.release = release;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (closed) {
+            return false;
+        }
+        if (!fetched) {
+            try {
+                fetched = resultSet.next();
+            } catch (Exception e) {
+                close();
+                throw ExceptionChecker.throwException(e);
+            }
+            if (!fetched) {
+                close();
+            }
+        }
+        return fetched;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        fetched = false;
+        try {
+            return mapper.mapRow(resultSet);
+        } catch (Exception e) {
+            close();
+            throw ExceptionChecker.throwException(e);
+        }
+    }
+
+    /**
+     * 释放结果集、语句和连接, 可以重复调用
+     */
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            Closer.close(resultSet);
+            release.run();
+        }
+    }
+
+    /**
+     * 转换为顺序流, 关闭流时释放资源
+     *
+     * @return
+     */
+    Stream<T> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED), false)
+                .onClose(this::close);
+    }
+}
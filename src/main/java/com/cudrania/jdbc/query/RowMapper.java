@@ -0,0 +1,66 @@
+package com.cudrania.jdbc.query;
+
+import com.cudrania.core.collection.map.CaseInsensitiveMap;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * 结果集的行映射接口, 将结果集的当前行转换为对象
+ *
+ * @param <T>
+ * @author skyfalling
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+
+    /**
+     * 转换结果集的当前行, 不移动游标
+     *
+     * @param resultSet
+     * @return
+     * @throws SQLException
+     */
+    T mapRow(ResultSet resultSet) throws SQLException;
+
+
+    /**
+     * 获取将结果集映射为实体对象的RowMapper<br>
+     * 列索引、取值方法和setter方法在创建时一次性解析, 并按(实体类型, 结果集的列)缓存,
+     * 逐行映射时不再读取结果集元数据, 也不做反射查找
+     *
+     * @param clazz     实体类型
+     * @param resultSet 结果集, 只读取元数据
+     * @param <T>
+     * @return
+     * @throws SQLException
+     */
+    static <T> RowMapper<T> bean(Class<T> clazz, ResultSet resultSet) throws SQLException {
+        return BeanRowMapper.of(clazz, resultSet.getMetaData());
+    }
+
+    /**
+     * 获取将结果集映射为Map&lt;String, Object&gt;对象的RowMapper, 键为列标签且不区分大小写<br>
+     * 列标签在创建时一次性读取
+     *
+     * @param resultSet 结果集, 只读取元数据
+     * @return
+     * @throws SQLException
+     */
+    static RowMapper<Map<String, Object>> map(ResultSet resultSet) throws SQLException {
+        ResultSetMetaData meta = resultSet.getMetaData();
+        String[] labels = new String[meta.getColumnCount()];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = meta.getColumnLabel(i + 1);
+        }
+        return rs -> {
+            Map<String, Object> map = new CaseInsensitiveMap<>();
+            for (int i = 0; i < labels.length; i++) {
+                map.put(labels[i], rs.getObject(i + 1));
+            }
+            return map;
+        };
+    }
+}
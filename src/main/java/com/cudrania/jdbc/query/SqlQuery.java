@@ -1,9 +1,13 @@
 package com.cudrania.jdbc.query;
 
+import com.cudrania.jdbc.sql.SqlDialect;
 import com.cudrania.jdbc.sql.SqlStatement;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
 
 
 /**
@@ -98,7 +102,8 @@ public interface SqlQuery {
 
     /**
      * 获取查询结果中从第start条开始共size条的数据<br>
-     * 其中start起始值为1
+     * 其中start起始值为1, 查询语句按数据库方言改写为分页查询, 由数据库完成跳过和截取;
+     * 语句已包含行数限制或加锁子句, 以及SQL Server上不含ORDER BY时不改写, 在结果集上跳过前start-1条
      *
      * @param start
      * @param size
@@ -108,7 +113,8 @@ public interface SqlQuery {
 
     /**
      * 获取查询结果中从第start条开始共size条的数据<br>
-     * 其中start起始值为1
+     * 其中start起始值为1, 查询语句按数据库方言改写为分页查询, 由数据库完成跳过和截取;
+     * 语句已包含行数限制或加锁子句, 以及SQL Server上不含ORDER BY时不改写, 在结果集上跳过前start-1条
      *
      * @param clazz
      * @param start
@@ -119,11 +125,99 @@ public interface SqlQuery {
 
     /**
      * 返回查询结果记录的数目<br>
+     * 查询语句被改写为SELECT COUNT(*)查询, 不会读取查询结果; 语句包含加锁子句, 以及SQL Server上包含ORDER BY时不改写, 逐行读取结果计数
      *
      * @return
      */
     int getRowsCount();
 
+    /**
+     * 以流的形式逐行读取由Map&lt;String, Object&gt;对象表示的查询结果<br>
+     * 结果集使用只进只读游标按需读取, 流持有数据库连接直到读取完毕或被关闭, 应在try-with-resources中使用
+     *
+     * @return
+     */
+    Stream<Map<String, Object>> stream();
+
+    /**
+     * 以流的形式逐行读取由Class&lt;T&gt;对象表示的查询结果<br>
+     * 结果集使用只进只读游标按需读取, 流持有数据库连接直到读取完毕或被关闭, 应在try-with-resources中使用
+     *
+     * @param clazz
+     * @return
+     */
+    <T> Stream<T> stream(Class<T> clazz);
+
+    /**
+     * 以流的形式逐行读取查询结果, 每行数据由mapper转换<br>
+     * 结果集使用只进只读游标按需读取, 流持有数据库连接直到读取完毕或被关闭, 应在try-with-resources中使用
+     *
+     * @param mapper
+     * @return
+     */
+    <T> Stream<T> stream(RowMapper<T> mapper);
+
+    /**
+     * 获取当前查询的异步接口, 在数据源共用的执行器中执行<br>
+     * 运行在Java 21及以上版本时使用虚拟线程, 同一数据源上的并发查询数不超过连接池的最大连接数; 会话中的查询不能异步执行<br>
+     * 最大连接数从内置连接池或HikariCP, DBCP2, Druid等连接池的配置读取, 无法获取时为CPU核数的2倍, 此时可通过{@link #async(Executor)}指定执行器
+     *
+     * @return
+     */
+    AsyncSqlQuery async();
+
+    /**
+     * 获取当前查询在指定执行器中执行的异步接口<br>
+     * 数据源为{@link com.cudrania.jdbc.datasource.RoutingDataSource}时, 异步查询沿用当前线程的写后读状态
+     *
+     * @param executor
+     * @return
+     */
+    AsyncSqlQuery async(Executor executor);
+
+    /**
+     * 设置查询每次从数据库获取的行数, 小于等于0时使用驱动的默认值<br>
+     * 对于MySQL驱动, 需要设置为Integer.MIN_VALUE才能逐行读取
+     *
+     * @param fetchSize
+     * @return
+     */
+    SqlQuery withFetchSize(int fetchSize);
+
+    /**
+     * 设置数据库方言, 用于分页和计数查询; 未设置时根据数据库产品名称自动选择
+     *
+     * @param dialect
+     * @return
+     */
+    SqlQuery withDialect(SqlDialect dialect);
+
+    /**
+     * 设置是否复用PreparedStatement对象<br>
+     * 开启后按物理连接缓存预编译语句, 同一连接上再次执行相同的SQL时只重新绑定参数; 流式查询不使用缓存
+     *
+     * @param enabled
+     * @return
+     */
+    SqlQuery withStatementCache(boolean enabled);
+
+    /**
+     * 设置批量插入和更新时每批的最大行数, 默认为1000
+     *
+     * @param batchSize
+     * @return
+     */
+    SqlQuery withBatchSize(int batchSize);
+
+    /**
+     * 设置批量插入时是否将每批改写为一条多行VALUES的insert语句<br>
+     * 需要数据库支持insert into t(a,b) values(?,?),(?,?)语法, 且每批的参数个数不能超过驱动的限制
+     *
+     * @param enabled
+     * @return
+     */
+    SqlQuery withMultiValues(boolean enabled);
+
     /**
      * 以索引值为index的列为键值,将查询结果映射成Map&lt;Object,T&gt;对象<br>
      *
@@ -167,6 +261,28 @@ public interface SqlQuery {
      */
     <T> void delete(T bean, String... conditionFields);
 
+    /**
+     * 批量插入实体对象, 只写入非空字段<br>
+     * 非空字段相同的连续对象共用一条SQL语句, 按{@link #withBatchSize(int)}分批提交;
+     * 开启{@link #withMultiValues(boolean)}时每批改写为一条多行VALUES的insert语句
+     *
+     * @param beans 实体对象
+     * @param <T>
+     * @return 每批影响的行数, 驱动未返回行数时为{@link java.sql.Statement#SUCCESS_NO_INFO}
+     */
+    <T> int[] insertAll(Collection<T> beans);
+
+    /**
+     * 批量按条件字段更新实体对象, 属性值为空的字段不更新<br>
+     * SQL语句相同的连续对象按{@link #withBatchSize(int)}分批提交
+     *
+     * @param beans           实体对象
+     * @param conditionFields 条件字段,不分大小写
+     * @param <T>
+     * @return 每批影响的行数, 驱动未返回行数时为{@link java.sql.Statement#SUCCESS_NO_INFO}
+     */
+    <T> int[] updateAll(Collection<T> beans, String... conditionFields);
+
     /**
      * 批量执行SQL语句
      *
@@ -3,6 +3,7 @@ package com.cudrania.jdbc.query;
 import com.cudrania.jdbc.sql.SqlStatement;
 
 import javax.sql.DataSource;
+import java.util.function.Function;
 
 /**
  * 数据库访问接口实现,该类是线程安全的
@@ -39,4 +40,29 @@ public class SqlQueryBuilder {
     public SqlQuery build() {
         return build(null);
     }
+
+
+    /**
+     * 打开固定使用一个连接的数据库会话, 使用完毕后需要关闭
+     *
+     * @return
+     */
+    public SqlSession openSession() {
+        return new SqlSession(dataSource);
+    }
+
+    /**
+     * 在一个事务中执行操作, 正常返回时提交, 抛出异常时回滚
+     *
+     * @param action
+     * @param <T>
+     * @return
+     */
+    public <T> T transaction(Function<SqlSession, T> action) {
+        try (SqlSession session = openSession()) {
+            T result = action.apply(session);
+            session.commit();
+            return result;
+        }
+    }
 }
@@ -2,13 +2,22 @@ package com.cudrania.jdbc.query;
 
 import com.cudrania.core.exception.ExceptionChecker;
 import com.cudrania.core.io.Closer;
+import com.cudrania.jdbc.datasource.RoutingDataSource;
 import com.cudrania.jdbc.sql.DataField;
+import com.cudrania.jdbc.sql.EntityBatch;
+import com.cudrania.jdbc.sql.SqlDialect;
 import com.cudrania.jdbc.sql.SqlStatement;
 
 import javax.sql.DataSource;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 import static com.cudrania.jdbc.sql.SqlGenerator.*;
 
@@ -26,6 +35,30 @@ class SqlQueryImpl implements SqlQuery {
      * SqlStatement对象
      */
     protected SqlStatement sqlStatement;
+    /**
+     * 每次从数据库获取的行数
+     */
+    protected int fetchSize;
+    /**
+     * 数据库方言, 为null时根据连接自动选择
+     */
+    protected SqlDialect dialect;
+    /**
+     * 是否复用PreparedStatement对象
+     */
+    protected boolean statementCache;
+    /**
+     * 批量插入和更新时每批的最大行数
+     */
+    protected int batchSize = 1000;
+    /**
+     * 批量插入时是否改写为多行VALUES语句
+     */
+    protected boolean multiValues;
+    /**
+     * 所属的会话, 不为null时固定使用会话的连接
+     */
+    protected SqlSession session;
 
     /**
      * 指定数据源和SQL语句
@@ -33,8 +66,20 @@ class SqlQueryImpl implements SqlQuery {
      * @param dataSource
      */
     public SqlQueryImpl(DataSource dataSource, SqlStatement sqlStatement) {
+        this(dataSource, sqlStatement, null);
+    }
+
+    /**
+     * 指定数据源、SQL语句和所属的会话
+     *
+     * @param dataSource
+     * @param sqlStatement
+     * @param session
+     */
+    SqlQueryImpl(DataSource dataSource, SqlStatement sqlStatement, SqlSession session) {
         this.dataSource = dataSource;
         this.sqlStatement = sqlStatement;
+        this.session = session;
     }
 
 
@@ -50,7 +95,55 @@ class SqlQueryImpl implements SqlQuery {
 
     @Override
     public SqlQuery create(SqlStatement sqlStatement) {
-        return new SqlQueryImpl(dataSource, sqlStatement);
+        return new SqlQueryImpl(dataSource, sqlStatement, session).withFetchSize(fetchSize).withDialect(dialect).withStatementCache(statementCache)
+                .withBatchSize(batchSize).withMultiValues(multiValues);
+    }
+
+    @Override
+    public SqlQuery withDialect(SqlDialect dialect) {
+        this.dialect = dialect;
+        return this;
+    }
+
+    @Override
+    public SqlQuery withStatementCache(boolean enabled) {
+        this.statementCache = enabled;
+        return this;
+    }
+
+    @Override
+    public AsyncSqlQuery async() {
+        return async(QueryExecutors.of(dataSource));
+    }
+
+    @Override
+    public AsyncSqlQuery async(Executor executor) {
+        if (session != null) {
+            throw new IllegalStateException("queries in a session cannot be executed asynchronously");
+        }
+        if (dataSource instanceof RoutingDataSource) {
+            executor = ((RoutingDataSource) dataSource).propagate(executor);
+        }
+        return new AsyncSqlQueryImpl(this, executor);
+    }
+
+    @Override
+    public SqlQuery withBatchSize(int batchSize) {
+        ExceptionChecker.throwIf(batchSize < 1, "the value of batchSize cannot be low than 1: " + batchSize);
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    @Override
+    public SqlQuery withMultiValues(boolean enabled) {
+        this.multiValues = enabled;
+        return this;
+    }
+
+    @Override
+    public SqlQuery withFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+        return this;
     }
 
     @Override
@@ -95,17 +188,58 @@ class SqlQueryImpl implements SqlQuery {
 
     @Override
     public List<Map<String, Object>> getRows(final int start, final int size) {
-        return executeQuery(resultSet -> ResultSetAdapter.getRows(resultSet, start, size));
+        return getPage(start, size, ResultSetAdapter::getRows);
     }
 
     @Override
     public <T> List<T> getRows(final Class<T> clazz, final int start, final int size) {
-        return executeQuery(resultSet -> ResultSetAdapter.getRows(resultSet, start, size, clazz));
+        return getPage(start, size, (resultSet, from, count) -> ResultSetAdapter.getRows(resultSet, from, count, clazz));
+    }
+
+    /**
+     * 分页查询, 语句能够按方言改写时由数据库完成跳过和截取, 否则在结果集上跳过
+     *
+     * @param start  起始值为1
+     * @param size
+     * @param reader 读取结果集中从第from条开始共count条的数据
+     * @param <T>
+     * @return
+     */
+    private <T> List<T> getPage(int start, int size, PageReader<T> reader) {
+        ExceptionChecker.throwIf(start < 1, "the value of start cannot be low than 1: " + start);
+        boolean[] paginated = new boolean[1];
+        return executeQuery(connection -> {
+            SqlDialect dialect = dialect(connection);
+            SqlStatement statement = getSqlStatement();
+            paginated[0] = dialect.canPaginate(statement.preparedSql());
+            return paginated[0] ? dialect.paginate(statement, start - 1, size) : statement;
+        }, resultSet -> reader.read(resultSet, paginated[0] ? 1 : start, size));
     }
 
     @Override
     public int getRowsCount() {
-        return executeQuery(resultSet -> ResultSetAdapter.getRowsCount(resultSet));
+        boolean[] counted = new boolean[1];
+        return executeQuery(connection -> {
+            SqlDialect dialect = dialect(connection);
+            SqlStatement statement = getSqlStatement();
+            counted[0] = dialect.canCount(statement.preparedSql());
+            return counted[0] ? dialect.count(statement) : statement;
+        }, resultSet -> counted[0] ? (resultSet.next() ? resultSet.getInt(1) : 0) : ResultSetAdapter.getRowsCount(resultSet));
+    }
+
+    @Override
+    public Stream<Map<String, Object>> stream() {
+        return stream0(RowMapper::map);
+    }
+
+    @Override
+    public <T> Stream<T> stream(Class<T> clazz) {
+        return stream0(resultSet -> RowMapper.bean(clazz, resultSet));
+    }
+
+    @Override
+    public <T> Stream<T> stream(RowMapper<T> mapper) {
+        return stream0(resultSet -> mapper);
     }
 
     @Override
@@ -133,21 +267,182 @@ class SqlQueryImpl implements SqlQuery {
         this.create(deleteSql(bean, conditionFields)).executeUpdate();
     }
 
+    @Override
+    public <T> int[] insertAll(Collection<T> beans) {
+        return executeBatch(beans, EntityBatch::insert, multiValues);
+    }
+
+    @Override
+    public <T> int[] updateAll(Collection<T> beans, String... conditionFields) {
+        return executeBatch(beans, type -> EntityBatch.update(type, conditionFields), false);
+    }
+
+    /**
+     * 分批执行实体对象的insert/update语句<br>
+     * 类型和非空字段相同的连续对象归为一批, 每批不超过batchSize行, 共用{@link EntityBatch}生成的预编译SQL并直接绑定字段值;
+     * 如果merge为true, 则每批合并为一条多行VALUES语句执行, 否则通过addBatch()提交
+     *
+     * @param beans   实体对象
+     * @param factory 根据实体类型创建语句生成器
+     * @param merge   是否合并为多行VALUES语句
+     * @param <T>
+     * @return 每批影响的行数
+     */
+    private <T> int[] executeBatch(Collection<T> beans, Function<Class<T>, EntityBatch<T>> factory, boolean merge) {
+        List<Integer> counts = new ArrayList<>();
+        Connection connection = null;
+        try {
+            connection = connection();
+            EntityBatch<T> batch = null;
+            BitSet key = null;
+            List<Object[]> chunk = new ArrayList<>();
+            for (T bean : beans) {
+                if (batch == null || batch.getType() != bean.getClass()) {
+                    if (!chunk.isEmpty()) {
+                        counts.add(executeChunk(connection, batch.template(key), chunk, merge));
+                        chunk.clear();
+                    }
+                    batch = factory.apply((Class<T>) bean.getClass());
+                }
+                Object[] values = batch.values(bean);
+                BitSet next = batch.key(values);
+                if (!chunk.isEmpty() && (chunk.size() == batchSize || !key.equals(next))) {
+                    counts.add(executeChunk(connection, batch.template(key), chunk, merge));
+                    chunk.clear();
+                }
+                if (next == null) {
+                    //字段值需要展开的对象单独执行
+                    counts.add(executeUpdate(connection, batch.statement(values)));
+                } else {
+                    key = next;
+                    chunk.add(values);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                counts.add(executeChunk(connection, batch.template(key), chunk, merge));
+            }
+            return counts.stream().mapToInt(Integer::intValue).toArray();
+        } catch (Exception e) {
+            throw ExceptionChecker.throwException(e);
+        } finally {
+            releaseConnection(connection);
+        }
+    }
+
+    /**
+     * 执行一批非空字段相同的实体对象
+     *
+     * @param connection
+     * @param template   语句模板
+     * @param chunk      实体对象的字段值
+     * @param merge      是否合并为多行VALUES语句
+     * @return 影响的行数
+     * @throws SQLException
+     */
+    private int executeChunk(Connection connection, EntityBatch.Template template, List<Object[]> chunk, boolean merge) throws SQLException {
+        PreparedStatement stmt = null;
+        try {
+            if (merge && chunk.size() > 1) {
+                stmt = prepare(connection, template.multiValuesSql(chunk.size()), statementCache);
+                int offset = 0;
+                for (Object[] values : chunk) {
+                    bind(stmt, offset, template, values);
+                    offset += template.getIndexes().length;
+                }
+                return stmt.executeUpdate();
+            }
+            stmt = prepare(connection, template.getSql(), statementCache);
+            for (Object[] values : chunk) {
+                bind(stmt, 0, template, values);
+                stmt.addBatch();
+            }
+            int total = 0;
+            for (int count : stmt.executeBatch()) {
+                if (count == Statement.SUCCESS_NO_INFO) {
+                    return Statement.SUCCESS_NO_INFO;
+                }
+                total += count;
+            }
+            return total;
+        } finally {
+            release(stmt);
+        }
+    }
+
+    /**
+     * 在指定连接上执行更新语句
+     *
+     * @param connection
+     * @param sqlStatement
+     * @return 影响的行数
+     * @throws SQLException
+     */
+    private int executeUpdate(Connection connection, SqlStatement sqlStatement) throws SQLException {
+        PreparedStatement stmt = null;
+        try {
+            stmt = prepare(connection, sqlStatement, statementCache);
+            return stmt.executeUpdate();
+        } finally {
+            release(stmt);
+        }
+    }
+
 
     @Override
     public <T> T executeQuery(ResultSetHandler<T> rsh) {
+        return executeQuery(connection -> getSqlStatement(), rsh::handle);
+    }
+
+    /**
+     * 执行由连接决定的查询语句, 如按数据库方言改写的分页查询
+     *
+     * @param statement 根据连接生成查询语句
+     * @param handler   处理查询结果
+     * @param <T>
+     * @return
+     */
+    private <T> T executeQuery(StatementFactory statement, ResultHandler<T> handler) {
         PreparedStatement stmt = null;
         ResultSet rs = null;
         Connection connection = null;
         try {
-            connection = connection();
-            stmt = prepare(connection);
-            return rsh.handle((rs = stmt.executeQuery()));
+            connection = connection(true);
+            stmt = prepare(connection, statement.create(connection), statementCache);
+            return handler.handle((rs = stmt.executeQuery()));
         } catch (Exception e) {
             throw ExceptionChecker.throwException(e);
         } finally {
+            Closer.close(rs);
+            release(stmt);
+            releaseConnection(connection);
+        }
+    }
+
+    /**
+     * 执行查询并返回按需读取的流, 连接在流读取完毕或被关闭时释放
+     *
+     * @param factory 根据结果集创建RowMapper
+     * @param <T>
+     * @return
+     */
+    private <T> Stream<T> stream0(MapperFactory<T> factory) {
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        Connection connection = null;
+        try {
+            connection = connection(true);
+            stmt = prepare(connection);
+            rs = stmt.executeQuery();
+            Statement statement = stmt;
+            Connection conn = connection;
+            return new ResultSetIterator<>(rs, factory.create(rs), () -> {
+                Closer.close(statement);
+                releaseConnection(conn);
+            }).stream();
+        } catch (Exception e) {
             Closer.close(rs, stmt);
             releaseConnection(connection);
+            throw ExceptionChecker.throwException(e);
         }
     }
 
@@ -157,12 +452,12 @@ class SqlQueryImpl implements SqlQuery {
         Connection connection = null;
         try {
             connection = connection();
-            stmt = prepare(connection);
+            stmt = prepare(connection, getSqlStatement(), statementCache);
             return stmt.executeUpdate();
         } catch (Exception e) {
             throw ExceptionChecker.throwException(e);
         } finally {
-            Closer.close(stmt);
+            release(stmt);
             releaseConnection(connection);
         }
     }
@@ -213,25 +508,42 @@ class SqlQueryImpl implements SqlQuery {
     }
 
     /**
-     * 获取数据库连接,可以调用{@link #releaseConnection(java.sql.Connection)}方法释放连接
+     * 获取数据库连接,可以调用{@link #releaseConnection(java.sql.Connection)}方法释放连接<br>
+     * 属于会话的查询总是返回会话固定使用的连接
      *
      * @return
      */
     public Connection connection() {
+        return connection(false);
+    }
+
+    /**
+     * 获取数据库连接, 对于{@link RoutingDataSource}只读操作优先使用从库
+     *
+     * @param readOnly 是否只读操作
+     * @return
+     */
+    protected Connection connection(boolean readOnly) {
+        if (session != null) {
+            return session.connection();
+        }
         try {
-            return dataSource.getConnection();
+            return readOnly && dataSource instanceof RoutingDataSource ?
+                    ((RoutingDataSource) dataSource).getConnection(true) : dataSource.getConnection();
         } catch (SQLException e) {
             throw ExceptionChecker.throwException(e);
         }
     }
 
     /**
-     * 释放数据库连接
+     * 释放数据库连接, 会话的连接由会话关闭时释放
      *
      * @param connection
      */
     public void releaseConnection(Connection connection) {
-        Closer.close(connection);
+        if (session == null) {
+            Closer.close(connection);
+        }
     }
 
     /**
@@ -242,17 +554,155 @@ class SqlQueryImpl implements SqlQuery {
      * @throws SQLException
      */
     protected PreparedStatement prepare(Connection connection) throws SQLException {
-        SqlStatement sqlStatement = getSqlStatement();
-        PreparedStatement stmt = connection.prepareStatement(sqlStatement.preparedSql());
-        int i = 1;
-        for (DataField field : sqlStatement.preparedParameters()) {
-            if (field.type == null || field.type == DataField.GENERIC_TYPE) {
-                stmt.setObject(i++, field.value);
-            } else {
-                stmt.setObject(i++, field.value, field.type.getVendorTypeNumber());
-            }
+        return prepare(connection, getSqlStatement());
+    }
+
+    /**
+     * 创建指定SQL语句的PreparedStatement对象
+     *
+     * @param connection
+     * @param sqlStatement
+     * @return
+     * @throws SQLException
+     */
+    protected PreparedStatement prepare(Connection connection, SqlStatement sqlStatement) throws SQLException {
+        return prepare(connection, sqlStatement, false);
+    }
+
+    /**
+     * 创建指定SQL语句的PreparedStatement对象, 可以从连接的语句缓存中获取
+     *
+     * @param connection
+     * @param sqlStatement
+     * @param cached       是否使用语句缓存
+     * @return
+     * @throws SQLException
+     */
+    private PreparedStatement prepare(Connection connection, SqlStatement sqlStatement, boolean cached) throws SQLException {
+        PreparedStatement stmt = prepare(connection, sqlStatement.preparedSql(), cached);
+        bind(stmt, sqlStatement.preparedParameters());
+        return stmt;
+    }
+
+    /**
+     * 创建未绑定参数的预编译语句
+     *
+     * @param connection
+     * @param sql
+     * @param cached     是否使用语句缓存
+     * @return
+     * @throws SQLException
+     */
+    private PreparedStatement prepare(Connection connection, String sql, boolean cached) throws SQLException {
+        PreparedStatement stmt = cached ? StatementCache.prepare(connection, sql)
+                : connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        if (fetchSize > 0 || fetchSize == Integer.MIN_VALUE) {
+            stmt.setFetchSize(fetchSize);
+        } else if (cached) {
+            stmt.setFetchSize(0);
         }
         return stmt;
     }
 
+    /**
+     * 绑定预编译语句的参数
+     *
+     * @param stmt
+     * @param parameters
+     * @throws SQLException
+     */
+    private static void bind(PreparedStatement stmt, DataField[] parameters) throws SQLException {
+        int i = 1;
+        for (DataField field : parameters) {
+            bind(stmt, i++, field.value, field.type);
+        }
+    }
+
+    /**
+     * 按语句模板的字段索引绑定一行字段值
+     *
+     * @param stmt
+     * @param offset   已绑定的参数个数
+     * @param template
+     * @param values   实体对象的字段值
+     * @throws SQLException
+     */
+    private static void bind(PreparedStatement stmt, int offset, EntityBatch.Template template, Object[] values) throws SQLException {
+        int[] indexes = template.getIndexes();
+        SQLType[] types = template.getTypes();
+        for (int i = 0; i < indexes.length; i++) {
+            bind(stmt, offset + i + 1, values[indexes[i]], types[i]);
+        }
+    }
+
+    private static void bind(PreparedStatement stmt, int index, Object value, SQLType type) throws SQLException {
+        if (type == null || type == DataField.GENERIC_TYPE) {
+            stmt.setObject(index, value);
+        } else {
+            stmt.setObject(index, value, type.getVendorTypeNumber());
+        }
+    }
+
+
+    /**
+     * 释放语句, 缓存的语句保留给后续查询复用
+     *
+     * @param stmt
+     */
+    private void release(Statement stmt) {
+        if (!statementCache) {
+            Closer.close(stmt);
+        }
+    }
+
+
+    /**
+     * 获取数据库方言, 未设置时根据数据库产品名称选择
+     *
+     * @param connection
+     * @return
+     * @throws SQLException
+     */
+    protected SqlDialect dialect(Connection connection) throws SQLException {
+        return dialect != null ? dialect : SqlDialect.of(connection.getMetaData().getDatabaseProductName());
+    }
+
+    /**
+     * 根据连接生成SQL语句
+     */
+    @FunctionalInterface
+    private interface StatementFactory {
+        SqlStatement create(Connection connection) throws SQLException;
+    }
+
+    /**
+     * 处理查询结果, 允许抛出SQLException
+     *
+     * @param <T>
+     */
+    @FunctionalInterface
+    private interface ResultHandler<T> {
+        T handle(ResultSet resultSet) throws SQLException;
+    }
+
+    /**
+     * 读取结果集中的一页数据
+     *
+     * @param <T>
+     */
+    @FunctionalInterface
+    private interface PageReader<T> {
+        List<T> read(ResultSet resultSet, int start, int size);
+    }
+
+    /**
+     * 根据结果集创建RowMapper
+     *
+     * @param <T>
+     */
+    @FunctionalInterface
+    private interface MapperFactory<T> {
+        RowMapper<T> create(ResultSet resultSet) throws SQLException;
+    }
+
 }
@@ -0,0 +1,193 @@
+package com.cudrania.jdbc.query;
+
+import com.cudrania.core.exception.ExceptionChecker;
+import com.cudrania.core.io.Closer;
+import com.cudrania.jdbc.datasource.RoutingDataSource;
+import com.cudrania.jdbc.sql.SqlStatement;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * 数据库会话, 在多次查询之间固定使用同一个数据库连接, 并将其中的更新操作合并为一个事务<br>
+ * 连接在第一次执行查询时获取并关闭自动提交, 调用{@link #commit()}提交, 调用{@link #close()}时回滚未提交的更新并释放连接<br>
+ * 该类不是线程安全的, 同一会话只能在一个线程中使用
+ * <pre>
+ * try (SqlSession session = queryBuilder.openSession()) {
+ *     session.build(sql1).executeUpdate();
+ *     session.build(sql2).executeUpdate();
+ *     session.commit();
+ * }
+ * </pre>
+ *
+ * @author skyfalling
+ */
+public class SqlSession extends SqlQueryBuilder implements AutoCloseable {
+
+    /**
+     * 固定使用的连接, 第一次执行查询时获取
+     */
+    private Connection connection;
+    /**
+     * 是否只读
+     */
+    private boolean readOnly;
+    /**
+     * 事务隔离级别, 小于0时使用连接的默认值
+     */
+    private int isolation = -1;
+    /**
+     * 连接的原始设置, 释放连接时恢复
+     */
+    private boolean originalAutoCommit;
+    private boolean originalReadOnly;
+    private int originalIsolation;
+    private boolean closed;
+
+    /**
+     * 指定数据源
+     *
+     * @param dataSource
+     */
+    public SqlSession(DataSource dataSource) {
+        super(dataSource);
+    }
+
+    /**
+     * 设置会话是否只读, 只能在执行查询前设置<br>
+     * 只读提示由驱动决定是否生效, 通常可以避免写锁或将查询路由到只读节点
+     *
+     * @param readOnly
+     * @return
+     */
+    public SqlSession withReadOnly(boolean readOnly) {
+        checkNotStarted();
+        this.readOnly = readOnly;
+        return this;
+    }
+
+    /**
+     * 设置事务隔离级别, 只能在执行查询前设置
+     *
+     * @param isolation {@link Connection#TRANSACTION_READ_COMMITTED}等
+     * @return
+     */
+    public SqlSession withIsolation(int isolation) {
+        checkNotStarted();
+        this.isolation = isolation;
+        return this;
+    }
+
+    /**
+     * 是否只读
+     *
+     * @return
+     */
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * 创建使用当前会话连接的查询对象
+     */
+    @Override
+    public SqlQuery build(SqlStatement sqlStatement) {
+        return new SqlQueryImpl(dataSource, sqlStatement, this);
+    }
+
+    /**
+     * 获取会话固定使用的连接, 第一次调用时从数据源获取
+     *
+     * @return
+     */
+    public Connection connection() {
+        if (closed) {
+            throw new IllegalStateException("session is closed");
+        }
+        if (connection == null) {
+            Connection conn = null;
+            try {
+                conn = readOnly && dataSource instanceof RoutingDataSource ?
+                        ((RoutingDataSource) dataSource).getConnection(true) : dataSource.getConnection();
+                originalAutoCommit = conn.getAutoCommit();
+                originalReadOnly = conn.isReadOnly();
+                originalIsolation = conn.getTransactionIsolation();
+                if (readOnly != originalReadOnly) {
+                    conn.setReadOnly(readOnly);
+                }
+                if (isolation >= 0 && isolation != originalIsolation) {
+                    conn.setTransactionIsolation(isolation);
+                }
+                if (originalAutoCommit) {
+                    conn.setAutoCommit(false);
+                }
+            } catch (SQLException e) {
+                Closer.close(conn);
+                throw ExceptionChecker.throwException(e);
+            }
+            connection = conn;
+        }
+        return connection;
+    }
+
+    /**
+     * 提交当前事务, 之后的操作在新的事务中执行
+     */
+    public void commit() {
+        if (connection != null) {
+            try {
+                connection.commit();
+            } catch (SQLException e) {
+                throw ExceptionChecker.throwException(e);
+            }
+        }
+    }
+
+    /**
+     * 回滚当前事务
+     */
+    public void rollback() {
+        if (connection != null) {
+            try {
+                connection.rollback();
+            } catch (SQLException e) {
+                throw ExceptionChecker.throwException(e);
+            }
+        }
+    }
+
+    /**
+     * 回滚未提交的更新, 恢复连接的原始设置并释放连接, 可以重复调用
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (connection != null) {
+            try {
+                connection.rollback();
+                connection.setAutoCommit(originalAutoCommit);
+                if (readOnly != originalReadOnly) {
+                    connection.setReadOnly(originalReadOnly);
+                }
+                if (isolation >= 0 && isolation != originalIsolation) {
+                    connection.setTransactionIsolation(originalIsolation);
+                }
+            } catch (SQLException e) {
+                throw ExceptionChecker.throwException(e);
+            } finally {
+                Closer.close(connection);
+                connection = null;
+            }
+        }
+    }
+
+    private void checkNotStarted() {
+        if (connection != null || closed) {
+            throw new IllegalStateException("session has already started");
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.cudrania.jdbc.query;
+
+import com.cudrania.core.io.Closer;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按物理连接缓存的PreparedStatement<br>
+ * 语句在物理连接上预编译, 连接池回收代理连接后仍然有效; 每个连接按SQL缓存最近使用的语句, 被淘汰的语句随即关闭,
+ * 出现新的物理连接时清除已关闭连接的缓存<br>
+ * 缓存的语句持有其所属连接的引用, 因此不能用WeakHashMap按连接缓存
+ *
+ * @author skyfalling
+ */
+class StatementCache {
+
+    /**
+     * 每个连接缓存的最大语句数
+     */
+    static final int MAX_CACHE_SIZE = 128;
+
+    private static final Map<Connection, Map<String, PreparedStatement>> caches = new ConcurrentHashMap<>();
+
+    /**
+     * 获取连接上与SQL对应的PreparedStatement, 不存在或已关闭时重新创建<br>
+     * 返回的语句不能由调用方关闭
+     *
+     * @param connection
+     * @param sql
+     * @return
+     * @throws SQLException
+     */
+    static PreparedStatement prepare(Connection connection, String sql) throws SQLException {
+        Connection physical = physical(connection);
+        Map<String, PreparedStatement> statements = caches.get(physical);
+        if (statements == null) {
+            purge();
+            statements = caches.computeIfAbsent(physical, c -> lru());
+        }
+        PreparedStatement stmt = statements.get(sql);
+        if (stmt != null && !stmt.isClosed()) {
+            stmt.clearParameters();
+            return stmt;
+        }
+        stmt = physical.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        statements.put(sql, stmt);
+        return stmt;
+    }
+
+    /**
+     * 清除已关闭连接的缓存
+     */
+    private static void purge() {
+        caches.keySet().removeIf(connection -> {
+            try {
+                return connection.isClosed();
+            } catch (SQLException e) {
+                return true;
+            }
+        });
+    }
+
+    /**
+     * 获取代理连接对应的物理连接, 不支持时返回连接本身
+     *
+     * @param connection
+     * @return
+     */
+    private static Connection physical(Connection connection) {
+        try {
+            if (connection.isWrapperFor(Connection.class)) {
+                Connection physical = connection.unwrap(Connection.class);
+                if (physical != null) {
+                    return physical;
+                }
+            }
+        } catch (SQLException e) {
+            //不支持时使用连接本身
+        }
+        return connection;
+    }
+
+    /**
+     * 按访问顺序淘汰的语句缓存, 淘汰时关闭语句
+     *
+     * @return
+     */
+    private static Map<String, PreparedStatement> lru() {
+        return Collections.synchronizedMap(new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() > MAX_CACHE_SIZE) {
+                    Closer.close(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        });
+    }
+}
@@ -0,0 +1,232 @@
+package com.cudrania.jdbc.sql;
+
+import com.cudrania.jdbc.table.DataTable;
+import com.cudrania.jdbc.table.FieldProperty;
+import lombok.Getter;
+
+import java.sql.SQLType;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.cudrania.jdbc.table.DataTableFactory.get;
+
+/**
+ * 同一类型实体对象的批量insert/update语句生成<p>
+ * 每个实体对象的字段值按{@link DataTable#getFields()}的顺序只读取一次, 参与生成SQL的字段(写入的非空字段和值非空的条件字段)
+ * 按{@link FieldProperty#getIndex()}记为{@link #key(Object[])}; key相同的实体对象共用{@link #template(BitSet)}生成的预编译SQL,
+ * 直接按模板的字段索引绑定字段值, 不再逐个生成{@link SqlStatement}
+ *
+ * @param <T>
+ * @author skyfalling
+ */
+public class EntityBatch<T> {
+
+    private final DataTable<T> table;
+    /**
+     * update语句的条件字段, insert语句时为null
+     */
+    private final List<FieldProperty> conditionFields;
+    /**
+     * 条件字段的索引集合
+     */
+    private final BitSet conditionIndexes = new BitSet();
+    private final Map<BitSet, Template> templates = new HashMap<>();
+
+    private EntityBatch(Class<T> type, List<FieldProperty> conditionFields) {
+        this.table = get(type);
+        this.conditionFields = conditionFields;
+        if (conditionFields != null) {
+            for (FieldProperty field : conditionFields) {
+                conditionIndexes.set(field.getIndex());
+            }
+        }
+    }
+
+    /**
+     * 批量insert语句, 只写入非空字段
+     *
+     * @param type 实体类型
+     * @param <T>
+     * @return
+     */
+    public static <T> EntityBatch<T> insert(Class<T> type) {
+        return new EntityBatch<>(type, null);
+    }
+
+    /**
+     * 批量update语句, 属性值为空的字段不更新; 如果条件字段为空,按照主键更新
+     *
+     * @param type            实体类型
+     * @param conditionFields 条件字段
+     * @param <T>
+     * @return
+     */
+    public static <T> EntityBatch<T> update(Class<T> type, String... conditionFields) {
+        DataTable<T> table = get(type);
+        return new EntityBatch<>(type, conditionFields.length == 0 ? table.getKeyFields() : SqlGenerator.properties(table, conditionFields));
+    }
+
+    /**
+     * 实体类型
+     *
+     * @return
+     */
+    public Class<T> getType() {
+        return table.getType();
+    }
+
+    /**
+     * 按字段索引读取实体对象的全部字段值
+     *
+     * @param entity
+     * @return
+     */
+    public Object[] values(T entity) {
+        List<FieldProperty> fields = table.getFields();
+        Object[] values = new Object[fields.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = fields.get(i).getValue(entity);
+        }
+        return values;
+    }
+
+    /**
+     * 参与生成SQL的字段索引集合<br>
+     * 字段值为数组或集合时会展开为多个参数, 无法按字段绑定, 返回null
+     *
+     * @param values 由{@link #values(Object)}读取的字段值
+     * @return
+     */
+    public BitSet key(Object[] values) {
+        BitSet key = new BitSet(values.length);
+        for (int i = 0; i < values.length; i++) {
+            Object value = values[i];
+            if (value != null) {
+                if (value instanceof Collection || value.getClass().isArray()) {
+                    return null;
+                }
+                key.set(i);
+            }
+        }
+        return key;
+    }
+
+    /**
+     * 获取key对应的语句模板, 每个key只生成一次
+     *
+     * @param key
+     * @return
+     */
+    public Template template(BitSet key) {
+        return templates.computeIfAbsent(key, this::createTemplate);
+    }
+
+    /**
+     * 根据字段值生成完整的SqlStatement, 用于无法按字段绑定的实体对象
+     *
+     * @param values
+     * @return
+     */
+    public SqlStatement statement(Object[] values) {
+        List<FieldProperty> fields = table.getFields();
+        if (conditionFields == null) {
+            return SqlGenerator.insertSql(table.getName(), dataFields(values, fields, false));
+        }
+        List<FieldProperty> updateFields = new ArrayList<>(fields);
+        updateFields.removeAll(conditionFields);
+        return SqlGenerator.updateSql(table.getName(), dataFields(values, updateFields, false), dataFields(values, conditionFields, true));
+    }
+
+    private Template createTemplate(BitSet key) {
+        List<FieldProperty> fields = table.getFields();
+        List<FieldProperty> bound = new ArrayList<>(key.cardinality());
+        List<DataField> columns = new ArrayList<>();
+        for (int i = key.nextSetBit(0); i >= 0; i = key.nextSetBit(i + 1)) {
+            if (!conditionIndexes.get(i)) {
+                bound.add(fields.get(i));
+                columns.add(new DataField(fields.get(i).getName(), null));
+            }
+        }
+        if (conditionFields == null) {
+            return new Template(table.getName(), SqlGenerator.insertSql(table.getName(), columns).preparedSql(), bound, columns);
+        }
+        List<DataField> conditions = new ArrayList<>(conditionFields.size());
+        for (FieldProperty field : conditionFields) {
+            //值为null的条件字段生成is null, 不绑定参数
+            boolean notNull = key.get(field.getIndex());
+            if (notNull) {
+                bound.add(field);
+            }
+            conditions.add(new DataField(field.getName(), notNull ? "" : null));
+        }
+        return new Template(table.getName(), SqlGenerator.updateSql(table.getName(), columns, conditions).preparedSql(), bound, null);
+    }
+
+    private static List<DataField> dataFields(Object[] values, List<FieldProperty> fields, boolean includeNull) {
+        List<DataField> dataFields = new ArrayList<>(fields.size());
+        for (FieldProperty field : fields) {
+            Object value = values[field.getIndex()];
+            if (includeNull || value != null) {
+                dataFields.add(new DataField(field.getName(), value, field.getSqlType()));
+            }
+        }
+        return dataFields;
+    }
+
+    /**
+     * 一组非空字段对应的预编译语句模板
+     */
+    public static class Template {
+        private final String tableName;
+        /**
+         * 单行的预编译SQL
+         */
+        @Getter
+        private final String sql;
+        /**
+         * 按参数顺序排列的字段索引
+         */
+        @Getter
+        private final int[] indexes;
+        /**
+         * 按参数顺序排列的字段类型
+         */
+        @Getter
+        private final SQLType[] types;
+        /**
+         * insert语句的字段, 用于生成多行VALUES语句; update语句时为null
+         */
+        private final List<DataField> columns;
+        private final Map<Integer, String> multiValues = new HashMap<>();
+
+        Template(String tableName, String sql, List<FieldProperty> fields, List<DataField> columns) {
+            this.tableName = tableName;
+            this.sql = sql;
+            this.columns = columns;
+            this.indexes = new int[fields.size()];
+            this.types = new SQLType[fields.size()];
+            for (int i = 0; i < indexes.length; i++) {
+                indexes[i] = fields.get(i).getIndex();
+                types[i] = fields.get(i).getSqlType();
+            }
+        }
+
+        /**
+         * 获取rows行的多行VALUES insert语句, 每行参数按{@link #getIndexes()}依次排列
+         *
+         * @param rows
+         * @return
+         */
+        public String multiValuesSql(int rows) {
+            if (columns == null) {
+                throw new UnsupportedOperationException("multi-row values are only supported by insert statements");
+            }
+            return multiValues.computeIfAbsent(rows, n -> SqlGenerator.insertSql(tableName, Collections.nCopies(n, columns)).preparedSql());
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.cudrania.jdbc.sql;
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * 数据库方言, 用于将查询语句改写为分页查询和计数查询<br>
+ * 改写只在语句末尾追加分页子句或将语句作为子查询, 对于无法安全改写的语句, {@link #canPaginate(String)}和{@link #canCount(String)}返回false,
+ * 调用方应改为读取原语句的结果集完成跳过和计数
+ *
+ * @author skyfalling
+ */
+public enum SqlDialect {
+
+    /**
+     * LIMIT ? OFFSET ?, 适用于MySQL、MariaDB、PostgreSQL、H2、SQLite、HSQLDB等
+     */
+    LIMIT_OFFSET {
+        @Override
+        public SqlStatement paginate(SqlStatement statement, long offset, int limit) {
+            return statement.wrap("", " LIMIT ? OFFSET ?", limit, offset);
+        }
+    },
+    /**
+     * SQL:2008标准的OFFSET ? ROWS FETCH NEXT ? ROWS ONLY, 适用于Oracle 12c+、DB2、Derby等
+     */
+    OFFSET_FETCH {
+        @Override
+        public SqlStatement paginate(SqlStatement statement, long offset, int limit) {
+            return statement.wrap("", " OFFSET ? ROWS FETCH NEXT ? ROWS ONLY", offset, limit);
+        }
+    },
+    /**
+     * SQL Server 2012+, 分页语法同{@link #OFFSET_FETCH}<br>
+     * SQL Server要求分页查询包含ORDER BY子句, 且子查询中不能包含ORDER BY子句
+     */
+    SQL_SERVER {
+        @Override
+        public SqlStatement paginate(SqlStatement statement, long offset, int limit) {
+            return OFFSET_FETCH.paginate(statement, offset, limit);
+        }
+
+        @Override
+        public boolean canPaginate(String sql) {
+            return super.canPaginate(sql) && Patterns.ORDER_BY.matcher(sql).find();
+        }
+
+        @Override
+        public boolean canCount(String sql) {
+            return super.canCount(sql) && !Patterns.ORDER_BY.matcher(sql).find();
+        }
+    };
+
+    /**
+     * 将查询语句改写为分页查询, 由数据库完成跳过和截取
+     *
+     * @param statement 查询语句
+     * @param offset    跳过的记录数, 从0开始
+     * @param limit     最多返回的记录数
+     * @return
+     */
+    public abstract SqlStatement paginate(SqlStatement statement, long offset, int limit);
+
+    /**
+     * 判断查询语句能否改写为分页查询<br>
+     * 已包含LIMIT/OFFSET/FETCH/TOP等行数限制, 或以FOR UPDATE等加锁子句结尾的语句不能在末尾追加分页子句
+     *
+     * @param sql 预编译的查询语句
+     * @return
+     */
+    public boolean canPaginate(String sql) {
+        return !Patterns.LIMITED.matcher(sql).find() && !Patterns.LOCKING.matcher(sql).find();
+    }
+
+    /**
+     * 判断查询语句能否作为子查询改写为计数查询<br>
+     * 包含FOR UPDATE等加锁子句的语句不能作为子查询
+     *
+     * @param sql 预编译的查询语句
+     * @return
+     */
+    public boolean canCount(String sql) {
+        return !Patterns.LOCKING.matcher(sql).find();
+    }
+
+    /**
+     * 将查询语句改写为计数查询
+     *
+     * @param statement 查询语句
+     * @return
+     */
+    public SqlStatement count(SqlStatement statement) {
+        return statement.wrap("SELECT COUNT(*) FROM (", ") t_count");
+    }
+
+    /**
+     * 根据数据库产品名称选择方言, 即{@link java.sql.DatabaseMetaData#getDatabaseProductName()}的返回值
+     *
+     * @param productName
+     * @return
+     */
+    public static SqlDialect of(String productName) {
+        String name = productName == null ? "" : productName.toLowerCase(Locale.ROOT);
+        if (name.contains("sql server")) {
+            return SQL_SERVER;
+        }
+        if (name.contains("oracle") || name.contains("db2") || name.contains("derby")) {
+            return OFFSET_FETCH;
+        }
+        return LIMIT_OFFSET;
+    }
+
+    /**
+     * 判断语句能否改写的正则表达式, 只按关键字匹配, 字符串常量中出现关键字时按不能改写处理
+     */
+    private static class Patterns {
+        static final Pattern LIMITED = Pattern.compile("\\b(limit|offset|fetch\\s+(first|next)|top)\\b", Pattern.CASE_INSENSITIVE);
+        static final Pattern LOCKING = Pattern.compile("\\b(for\\s+(update|share|no\\s+key\\s+update|key\\s+share)|lock\\s+in\\s+share\\s+mode)\\b", Pattern.CASE_INSENSITIVE);
+        static final Pattern ORDER_BY = Pattern.compile("\\border\\s+by\\b", Pattern.CASE_INSENSITIVE);
+    }
+}
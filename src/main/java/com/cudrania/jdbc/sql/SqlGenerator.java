@@ -1,15 +1,14 @@
 package com.cudrania.jdbc.sql;
 
-import com.cudrania.core.arrays.ArrayUtils;
 import com.cudrania.jdbc.table.DataTable;
+import com.cudrania.jdbc.table.FieldProperty;
 
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
-import java.util.stream.Collectors;
 
-import static com.cudrania.core.exception.ExceptionChecker.throwIf;
 import static com.cudrania.jdbc.table.DataTableFactory.get;
 
 /**
@@ -35,7 +34,7 @@ public class SqlGenerator {
      */
     public static <T> SqlStatement selectByKey(T entity) {
         DataTable<T> table = get(entity.getClass());
-        return selectSql(entity, table.getKeys());
+        return selectSql(table.getName(), getFields(entity, table.getKeyFields(), true));
     }
 
     /**
@@ -49,7 +48,7 @@ public class SqlGenerator {
      */
     public static <T> SqlStatement selectSql(T entity, String... conditionFields) {
         DataTable<T> table = get(entity.getClass());
-        List<DataField> dataFields = getFields(entity, conditionFields.length > 0 ? conditionFields : table.getFieldNames(), conditionFields.length > 0);
+        List<DataField> dataFields = conditionFields.length > 0 ? getFields(entity, conditionFields, true) : getFields(entity, table.getFields(), false);
         return selectSql(table.getName(), dataFields);
     }
 
@@ -86,11 +85,43 @@ public class SqlGenerator {
      */
     public static <T> SqlStatement insertSql(T entity) {
         DataTable<T> table = get(entity.getClass());
-        List<DataField> fields = getFields(entity, table.getFieldNames(), false);
+        List<DataField> fields = getFields(entity, table.getFields(), false);
         return insertSql(table.getName(), fields);
     }
 
 
+    /**
+     * 构建多行insert语句, 各实体对象的类型和非空字段必须相同<p>
+     * 形如: insert into table (a,b) values(?,?),(?,?)
+     *
+     * @param entities 实体对象
+     * @param <T>
+     * @return
+     */
+    public static <T> SqlStatement insertSql(Collection<T> entities) {
+        if (entities.isEmpty()) {
+            throw new IllegalArgumentException("required at least one entity to insert");
+        }
+        Iterator<T> iterator = entities.iterator();
+        T first = iterator.next();
+        DataTable<T> table = get(first.getClass());
+        List<List<DataField>> rows = new ArrayList<>(entities.size());
+        rows.add(getFields(first, table.getFields(), false));
+        while (iterator.hasNext()) {
+            T entity = iterator.next();
+            if (entity.getClass() != first.getClass()) {
+                throw new IllegalArgumentException("entities of different types: " + first.getClass().getName() + ", " + entity.getClass().getName());
+            }
+            List<DataField> fields = getFields(entity, table.getFields(), false);
+            if (!sameNames(rows.get(0), fields)) {
+                throw new IllegalArgumentException("entities with different non-null fields cannot be inserted in one statement");
+            }
+            rows.add(fields);
+        }
+        return insertSql(table.getName(), rows);
+    }
+
+
     /**
      * 构建insert语句,允许null字段
      *
@@ -99,25 +130,49 @@ public class SqlGenerator {
      * @return
      */
     public static SqlStatement insertSql(String tableName, Collection<DataField> fields) {
-        assert !fields.isEmpty() : "required at least one field to insert";
+        return insertSql(tableName, Collections.singletonList(fields));
+    }
+
+
+    /**
+     * 构建多行insert语句,允许null字段<p>
+     * 字段名取自第一行, 各行字段的个数和顺序必须相同
+     *
+     * @param tableName 表名
+     * @param rows      每行的字段列表
+     * @return
+     */
+    public static SqlStatement insertSql(String tableName, List<? extends Collection<DataField>> rows) {
+        assert !rows.isEmpty() && !rows.get(0).isEmpty() : "required at least one field to insert";
         SqlStatement sqlStatement = new SqlStatement("insert into").append(tableName);
         StringBuilder nameString = new StringBuilder("(");
-        StringBuilder valueString = new StringBuilder("values(");
+        StringBuilder valueString = new StringBuilder("values");
+        List<Object> values = new ArrayList<>();
 
-        Iterator<DataField> iterator = fields.iterator();
+        Iterator<DataField> iterator = rows.get(0).iterator();
         while (iterator.hasNext()) {
-            DataField field = iterator.next();
-            nameString.append(field.name);
-            valueString.append("?");
+            nameString.append(iterator.next().name);
             if (iterator.hasNext()) {
                 nameString.append(SqlOperator.Comma);
+            }
+        }
+        for (Collection<DataField> fields : rows) {
+            if (fields.size() != rows.get(0).size()) {
+                throw new IllegalArgumentException("required the same number of fields in each row");
+            }
+            if (!values.isEmpty()) {
                 valueString.append(SqlOperator.Comma);
             }
+            valueString.append("(");
+            for (int i = 0; i < fields.size(); i++) {
+                valueString.append(i > 0 ? SqlOperator.Comma + "?" : "?");
+            }
+            valueString.append(")");
+            values.addAll(fields);
         }
 
         nameString.append(")");
-        valueString.append(")");
-        return sqlStatement.append(nameString.toString()).append(valueString.toString(), fields.toArray(new Object[0]));
+        return sqlStatement.append(nameString.toString()).append(valueString.toString(), values.toArray(new Object[0]));
     }
 
 
@@ -131,7 +186,7 @@ public class SqlGenerator {
      */
     public static <T> SqlStatement updateSql(T entity, String... conditionFields) {
         DataTable<T> table = get(entity.getClass());
-        return updateByFields(table, entity, conditionFields.length == 0 ? table.getKeys() : conditionFields);
+        return updateByFields(table, entity, conditionFields.length == 0 ? table.getKeyFields() : properties(table, conditionFields));
     }
 
     /**
@@ -143,9 +198,9 @@ public class SqlGenerator {
      * @param <T>
      * @return
      */
-    private static <T> SqlStatement updateByFields(DataTable<T> table, T entity, String[] conditionFields) {
-
-        String[] updateFields = ArrayUtils.subtract(table.getFieldNames(), conditionFields, String.class);
+    private static <T> SqlStatement updateByFields(DataTable<T> table, T entity, List<FieldProperty> conditionFields) {
+        List<FieldProperty> updateFields = new ArrayList<>(table.getFields());
+        updateFields.removeAll(conditionFields);
         //条件字段
         List<DataField> conditions = getFields(entity, conditionFields, true);
         //更新字段
@@ -163,7 +218,9 @@ public class SqlGenerator {
      * @return
      */
     public static SqlStatement updateSql(String tableName, Collection<DataField> updateFields, Collection<DataField> conditionFields) {
-        throwIf(updateFields.isEmpty(), "required at least one field to update");
+        if (updateFields.isEmpty()) {
+            throw new IllegalArgumentException("required at least one field to update");
+        }
         SqlStatement sqlStatement = new SqlStatement("update").append(tableName).append("set");
         Iterator<DataField> iterator = updateFields.iterator();
         while (iterator.hasNext()) {
@@ -186,7 +243,7 @@ public class SqlGenerator {
      */
     public static <T> SqlStatement deleteByKey(T entity) {
         DataTable table = get(entity.getClass());
-        return deleteSql(table.getName(), getFields(entity, table.getKeys(), true));
+        return deleteSql(table.getName(), getFields(entity, table.getKeyFields(), true));
     }
 
 
@@ -200,7 +257,7 @@ public class SqlGenerator {
      */
     public static <T> SqlStatement deleteSql(T entity, String... conditionFields) {
         DataTable table = get(entity.getClass());
-        List<DataField> dataFields = getFields(entity, conditionFields.length > 0 ? conditionFields : table.getFieldNames(), conditionFields.length > 0);
+        List<DataField> dataFields = conditionFields.length > 0 ? getFields(entity, conditionFields, true) : getFields(entity, table.getFields(), false);
         return deleteSql(table.getName(), dataFields);
     }
 
@@ -233,13 +290,65 @@ public class SqlGenerator {
     }
 
 
+    /**
+     * 判断两组字段的名称和顺序是否相同
+     *
+     * @param fields
+     * @param others
+     * @return
+     */
+    private static boolean sameNames(List<DataField> fields, List<DataField> others) {
+        if (fields.size() != others.size()) {
+            return false;
+        }
+        for (int i = 0; i < fields.size(); i++) {
+            if (!fields.get(i).name.equals(others.get(i).name)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private static List<DataField> getFields(Object entity, String[] fields, boolean includeNull) {
-        DataTable table = get(entity.getClass());
-        return Arrays.stream(fields)
-                .map(table::getField)
-                .map(f -> new DataField(f.getName(), f.getValue(entity), f.getSqlType()))
-                .filter(f -> includeNull || f.value != null)
-                .collect(Collectors.toList());
+        return getFields(entity, properties(get(entity.getClass()), fields), includeNull);
+    }
+
+    /**
+     * 按字段列表取值, 字段值通过{@link FieldProperty}的方法句柄读取
+     *
+     * @param entity
+     * @param fields
+     * @param includeNull 是否包含null字段
+     * @return
+     */
+    private static List<DataField> getFields(Object entity, List<FieldProperty> fields, boolean includeNull) {
+        List<DataField> dataFields = new ArrayList<>(fields.size());
+        for (FieldProperty field : fields) {
+            Object value = field.getValue(entity);
+            if (includeNull || value != null) {
+                dataFields.add(new DataField(field.getName(), value, field.getSqlType()));
+            }
+        }
+        return dataFields;
+    }
+
+    /**
+     * 查找字段名称对应的字段
+     *
+     * @param table
+     * @param fieldNames
+     * @return
+     */
+    static List<FieldProperty> properties(DataTable table, String[] fieldNames) {
+        List<FieldProperty> fields = new ArrayList<>(fieldNames.length);
+        for (String fieldName : fieldNames) {
+            FieldProperty field = table.getField(fieldName);
+            if (field == null) {
+                throw new IllegalArgumentException("no such field declared in table[" + table.getType() + "]: " + fieldName);
+            }
+            fields.add(field);
+        }
+        return fields;
     }
 
 
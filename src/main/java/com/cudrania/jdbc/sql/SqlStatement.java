@@ -30,26 +30,6 @@ import java.util.Map.Entry;
  */
 public class SqlStatement {
 
-    /**
-     * Set of characters that qualify as parameter separators,
-     * indicating that a parameter name in a SQL String has ended.
-     */
-    private static final char[] PARAMETER_SEPARATORS =
-            new char[]{'"', '\'', ':', '&', ',', ';', '(', ')', '|', '=', '+', '-', '*', '%', '/', '\\', '<', '>', '^'};
-
-    /**
-     * Set of characters that qualify as comment or quotes starting characters.
-     */
-    private static final String[] START_SKIP =
-            new String[]{"'", "\"", "--", "/*"};
-
-    /**
-     * Set of characters that at are the corresponding comment or quotes ending characters.
-     */
-    private static final String[] STOP_SKIP =
-            new String[]{"'", "\"", "\n", "*/"};
-
-
     /**
      * SQL语句占位符?对应的参数值
      */
@@ -157,6 +137,32 @@ public class SqlStatement {
     }
 
 
+    /**
+     * 在解析后的SQL语句前后拼接SQL片段, 生成新的SqlStatement, 用于分页和计数等查询改写<br>
+     * 当前语句不会被重新解析, 参数保持不变; 后缀中的"?"按顺序绑定suffixParameters, 末尾的";"会被去除
+     *
+     * @param prefix           前缀
+     * @param suffix           后缀, 可以包含"?"占位符
+     * @param suffixParameters 后缀的参数值
+     * @return
+     */
+    public SqlStatement wrap(String prefix, String suffix, Object... suffixParameters) {
+        String sql = preparedSql();
+        while (sql.endsWith(";")) {
+            sql = sql.substring(0, sql.length() - 1).trim();
+        }
+        //以行注释结尾时, 后缀需要另起一行
+        String separator = sql.lastIndexOf("--") > sql.lastIndexOf('\n') ? "\n" : "";
+        SqlStatement statement = new SqlStatement();
+        statement.preparedSql.append(prefix).append(sql).append(separator).append(suffix).append(" ");
+        statement.originalSql.append(prefix).append(originalSql()).append(separator).append(suffix).append(" ");
+        statement.preparedParameters.addAll(preparedParameters);
+        for (Object parameter : suffixParameters) {
+            statement.preparedParameters.add(new DataField(null, parameter));
+        }
+        return statement;
+    }
+
     /**
      * 将statement解析后的SQL语句和SQL参数追加到当前SqlStatement中
      *
@@ -292,70 +298,14 @@ public class SqlStatement {
      * @param parameters
      */
     private void parseSql(String sql, Map<String, Object> parameters) {
-        //这里统计参数个数
-        int totalCount = 0;
-        int lastIndex = 0;
-        String sqlToUse = sql;
-        char[] statement = sql.toCharArray();
-        int escapes = 0;
-        int i = 0;
-        while (i < statement.length) {
-            int skipToPosition;
-            while (i < statement.length) {
-                skipToPosition = skipCommentsAndQuotes(statement, i);
-                if (i == skipToPosition) {
-                    break;
-                } else {
-                    i = skipToPosition;
-                }
-            }
-            if (i >= statement.length) {
-                break;
-            }
-            char c = statement[i];
-            int j = i + 1;
-            if (c == ':' || c == '&') {
-                if (j < statement.length && statement[j] == ':' && c == ':') {
-                    // Postgres-style "::" casting operator - to be skipped.
-                    i = i + 2;
-                    continue;
-                }
-                while (j < statement.length && !isParameterSeparator(statement[j])) {
-                    j++;
-                }
-                if (j - i > 1) {
-                    String paramName = sql.substring(i + 1, j);
-                    Object paramValue = parameters.get(paramName);
-                    totalCount++;
-                    preparedSql.append(sqlToUse, lastIndex, i - escapes);
-                    substituteNamedParameter(preparedSql, paramName, paramValue, preparedParameters);
-                    lastIndex = j - escapes;
-                }
-                i = j - 1;
-            } else {
-                if (c == '\\') {
-                    if (j < statement.length && statement[j] == ':') {
-                        // this is an escaped : and should be skipped
-                        sqlToUse = sqlToUse.substring(0, i - escapes) + sqlToUse.substring(i - escapes + 1);
-                        escapes++;
-                        i = i + 2;
-                        continue;
-                    }
-                }
-                if (c == '?') {
-                    String paramName = String.valueOf(totalCount);
-                    Object paramValue = parameters.get(paramName);
-                    totalCount++;
-                    preparedSql.append(sqlToUse, lastIndex, i - escapes);
-                    substituteNamedParameter(preparedSql, null, paramValue, preparedParameters);
-                    lastIndex = j - escapes;
-                }
-            }
-            i++;
+        SqlTemplate template = SqlTemplate.of(sql);
+        for (int i = 0; i < template.keys.length; i++) {
+            preparedSql.append(template.segments[i]);
+            substituteNamedParameter(preparedSql, template.names[i], parameters.get(template.keys[i]), preparedParameters);
         }
-        preparedSql.append(sqlToUse, lastIndex, sqlToUse.length());
+        preparedSql.append(template.segments[template.keys.length]);
 
-        originalSql.append(sqlToUse);
+        originalSql.append(template.originalSql);
     }
 
 
@@ -390,68 +340,4 @@ public class SqlStatement {
         }
     }
 
-    /**
-     * Skip over comments and quoted names present in an SQL statement
-     *
-     * @param statement character array containing SQL statement
-     * @param position  current position of statement
-     * @return next position to process after any comments or quotes are skipped
-     */
-    private static int skipCommentsAndQuotes(char[] statement, int position) {
-        for (int i = 0; i < START_SKIP.length; i++) {
-            if (statement[position] == START_SKIP[i].charAt(0)) {
-                boolean match = true;
-                for (int j = 1; j < START_SKIP[i].length(); j++) {
-                    if (!(statement[position + j] == START_SKIP[i].charAt(j))) {
-                        match = false;
-                        break;
-                    }
-                }
-                if (match) {
-                    int offset = START_SKIP[i].length();
-                    for (int m = position + offset; m < statement.length; m++) {
-                        if (statement[m] == STOP_SKIP[i].charAt(0)) {
-                            boolean endMatch = true;
-                            int endPos = m;
-                            for (int n = 1; n < STOP_SKIP[i].length(); n++) {
-                                if (m + n >= statement.length) {
-                                    // last comment not closed properly
-                                    return statement.length;
-                                }
-                                if (!(statement[m + n] == STOP_SKIP[i].charAt(n))) {
-                                    endMatch = false;
-                                    break;
-                                }
-                                endPos = m + n;
-                            }
-                            if (endMatch) {
-                                // found character sequence ending comment or quote
-                                return endPos + 1;
-                            }
-                        }
-                    }
-                    // character sequence ending comment or quote not found
-                    return statement.length;
-                }
-            }
-        }
-        return position;
-    }
-
-    /**
-     * Determine whether a parameter name ends at the current position,
-     * that is, whether the given character qualifies as a separator.
-     */
-    private static boolean isParameterSeparator(char c) {
-        if (Character.isWhitespace(c)) {
-            return true;
-        }
-        for (char separator : PARAMETER_SEPARATORS) {
-            if (c == separator) {
-                return true;
-            }
-        }
-        return false;
-    }
-
 }
@@ -0,0 +1,229 @@
+package com.cudrania.jdbc.sql;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 解析后的SQL模板, 由参数之间的SQL片段和参数引用组成<br>
+ * 模板只与SQL文本有关, 与参数值无关, 按SQL文本缓存在有界的LRU缓存中; 参数值的展开(如数组展开为(?,?...))在{@link SqlStatement}中完成
+ *
+ * @author skyfalling
+ */
+final class SqlTemplate {
+
+    /**
+     * 缓存的最大模板数
+     */
+    static final int MAX_CACHE_SIZE = 1024;
+
+    /**
+     * Set of characters that qualify as parameter separators,
+     * indicating that a parameter name in a SQL String has ended.
+     */
+    private static final char[] PARAMETER_SEPARATORS =
+            new char[]{'"', '\'', ':', '&', ',', ';', '(', ')', '|', '=', '+', '-', '*', '%', '/', '\\', '<', '>', '^'};
+
+    /**
+     * Set of characters that qualify as comment or quotes starting characters.
+     */
+    private static final String[] START_SKIP =
+            new String[]{"'", "\"", "--", "/*"};
+
+    /**
+     * Set of characters that at are the corresponding comment or quotes ending characters.
+     */
+    private static final String[] STOP_SKIP =
+            new String[]{"'", "\"", "\n", "*/"};
+
+    /**
+     * 按SQL文本缓存的模板, 按访问顺序淘汰
+     */
+    private static final Map<String, SqlTemplate> cache = Collections.synchronizedMap(
+            new LinkedHashMap<String, SqlTemplate>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, SqlTemplate> eldest) {
+                    return size() > MAX_CACHE_SIZE;
+                }
+            });
+
+    /**
+     * 参数之间的SQL片段, 比参数多一个
+     */
+    final String[] segments;
+    /**
+     * 参数值的查找键, 命名参数为参数名, "?"为其在全部参数中的序号
+     */
+    final String[] keys;
+    /**
+     * 参数名称, "?"参数为null
+     */
+    final String[] names;
+    /**
+     * 去除转义符之后的原始SQL
+     */
+    final String originalSql;
+
+    private SqlTemplate(String[] segments, String[] keys, String[] names, String originalSql) {
+        this.segments = segments;
+        this.keys = keys;
+        this.names = names;
+        this.originalSql = originalSql;
+    }
+
+    /**
+     * 获取SQL文本对应的模板
+     *
+     * @param sql
+     * @return
+     */
+    static SqlTemplate of(String sql) {
+        SqlTemplate template = cache.get(sql);
+        if (template == null) {
+            template = parse(sql);
+            cache.put(sql, template);
+        }
+        return template;
+    }
+
+    /**
+     * 解析SQL语句,找出形如[:x]和?的参数位置
+     *
+     * @param sql
+     * @return
+     */
+    private static SqlTemplate parse(String sql) {
+        List<String> segments = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        //这里统计参数个数
+        int totalCount = 0;
+        int lastIndex = 0;
+        String sqlToUse = sql;
+        char[] statement = sql.toCharArray();
+        int escapes = 0;
+        int i = 0;
+        while (i < statement.length) {
+            int skipToPosition;
+            while (i < statement.length) {
+                skipToPosition = skipCommentsAndQuotes(statement, i);
+                if (i == skipToPosition) {
+                    break;
+                } else {
+                    i = skipToPosition;
+                }
+            }
+            if (i >= statement.length) {
+                break;
+            }
+            char c = statement[i];
+            int j = i + 1;
+            if (c == ':' || c == '&') {
+                if (j < statement.length && statement[j] == ':' && c == ':') {
+                    // Postgres-style "::" casting operator - to be skipped.
+                    i = i + 2;
+                    continue;
+                }
+                while (j < statement.length && !isParameterSeparator(statement[j])) {
+                    j++;
+                }
+                if (j - i > 1) {
+                    String paramName = sql.substring(i + 1, j);
+                    totalCount++;
+                    segments.add(sqlToUse.substring(lastIndex, i - escapes));
+                    keys.add(paramName);
+                    names.add(paramName);
+                    lastIndex = j - escapes;
+                }
+                i = j - 1;
+            } else {
+                if (c == '\\') {
+                    if (j < statement.length && statement[j] == ':') {
+                        // this is an escaped : and should be skipped
+                        sqlToUse = sqlToUse.substring(0, i - escapes) + sqlToUse.substring(i - escapes + 1);
+                        escapes++;
+                        i = i + 2;
+                        continue;
+                    }
+                }
+                if (c == '?') {
+                    String paramName = String.valueOf(totalCount);
+                    totalCount++;
+                    segments.add(sqlToUse.substring(lastIndex, i - escapes));
+                    keys.add(paramName);
+                    names.add(null);
+                    lastIndex = j - escapes;
+                }
+            }
+            i++;
+        }
+        segments.add(sqlToUse.substring(lastIndex));
+        return new SqlTemplate(segments.toArray(new String[0]), keys.toArray(new String[0]), names.toArray(new String[0]), sqlToUse);
+    }
+
+    /**
+     * Skip over comments and quoted names present in an SQL statement
+     *
+     * @param statement character array containing SQL statement
+     * @param position  current position of statement
+     * @return next position to process after any comments or quotes are skipped
+     */
+    private static int skipCommentsAndQuotes(char[] statement, int position) {
+        for (int i = 0; i < START_SKIP.length; i++) {
+            if (statement[position] == START_SKIP[i].charAt(0)) {
+                boolean match = true;
+                for (int j = 1; j < START_SKIP[i].length(); j++) {
+                    if (!(statement[position + j] == START_SKIP[i].charAt(j))) {
+                        match = false;
+                        break;
+                    }
+                }
+                if (match) {
+                    int offset = START_SKIP[i].length();
+                    for (int m = position + offset; m < statement.length; m++) {
+                        if (statement[m] == STOP_SKIP[i].charAt(0)) {
+                            boolean endMatch = true;
+                            int endPos = m;
+                            for (int n = 1; n < STOP_SKIP[i].length(); n++) {
+                                if (m + n >= statement.length) {
+                                    // last comment not closed properly
+                                    return statement.length;
+                                }
+                                if (!(statement[m + n] == STOP_SKIP[i].charAt(n))) {
+                                    endMatch = false;
+                                    break;
+                                }
+                                endPos = m + n;
+                            }
+                            if (endMatch) {
+                                // found character sequence ending comment or quote
+                                return endPos + 1;
+                            }
+                        }
+                    }
+                    // character sequence ending comment or quote not found
+                    return statement.length;
+                }
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Determine whether a parameter name ends at the current position,
+     * that is, whether the given character qualifies as a separator.
+     */
+    private static boolean isParameterSeparator(char c) {
+        if (Character.isWhitespace(c)) {
+            return true;
+        }
+        for (char separator : PARAMETER_SEPARATORS) {
+            if (c == separator) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,10 +1,13 @@
 package com.cudrania.jdbc.table;
 
+import java.util.List;
+
 /**
  * 基于类定义的表结构信息<p>
  * 表名称按优先级依次取: 指定名称&gt;@Table&gt;类名称<p>
  * 字段名按优先级依次取: @Column&gt;@Property&gt;getter方法<p>
  * 另外,字段的getter和setter方法名必须保持一致,且getter方法的返回类型为setter的参数类型<p>
+ * 字段按名称排序, 可通过{@link FieldProperty#getIndex()}按索引访问, 字段列表在创建后不可修改<p>
  *
  * @author skyfalling
  */
@@ -45,5 +48,39 @@ public interface DataTable<T> {
      */
     FieldProperty getField(String fieldName);
 
+    /**
+     * 获取按名称排序的字段列表, 返回的列表不可修改
+     *
+     * @return
+     */
+    List<FieldProperty> getFields();
+
+    /**
+     * 获取主键字段列表, 返回的列表不可修改
+     *
+     * @return
+     */
+    List<FieldProperty> getKeyFields();
+
+    /**
+     * 按索引获取字段
+     *
+     * @param index 字段索引, 即{@link FieldProperty#getIndex()}
+     * @return
+     */
+    default FieldProperty getField(int index) {
+        return getFields().get(index);
+    }
+
+    /**
+     * 获取字段的索引, 如果不存在,返回-1
+     *
+     * @param fieldName
+     * @return
+     */
+    default int indexOf(String fieldName) {
+        FieldProperty field = getField(fieldName);
+        return field == null ? -1 : field.getIndex();
+    }
 
 }
@@ -1,5 +1,6 @@
 package com.cudrania.jdbc.table;
 
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -71,6 +72,16 @@ public class DataTableFactory {
             public FieldProperty getField(String fieldName) {
                 return dataTable.getField(fieldName);
             }
+
+            @Override
+            public List<FieldProperty> getFields() {
+                return dataTable.getFields();
+            }
+
+            @Override
+            public List<FieldProperty> getKeyFields() {
+                return dataTable.getKeyFields();
+            }
         };
     }
 
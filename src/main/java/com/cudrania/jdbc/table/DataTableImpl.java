@@ -5,10 +5,13 @@ import com.cudrania.core.reflection.BeanProperty;
 import lombok.Getter;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
 
 import static com.cudrania.core.exception.ExceptionChecker.throwIf;
 import static com.cudrania.core.exception.ExceptionChecker.throwIfNull;
@@ -32,14 +35,24 @@ class DataTableImpl<T> implements DataTable<T> {
     @Getter
     private Class<T> type;
     /**
-     * 字段属性列表
+     * 按名称排序的字段列表
      */
-    private Map<String, FieldProperty> fieldProperties = new TreeMap<>();
-
+    @Getter
+    private final List<FieldProperty> fields;
+    /**
+     * 主键字段列表
+     */
+    @Getter
+    private final List<FieldProperty> keyFields;
+    /**
+     * 字段名称到字段的映射
+     */
+    private final Map<String, FieldProperty> fieldProperties = new HashMap<>();
     /**
-     * 主键字段
+     * 字段名称和主键名称, 返回时复制
      */
-    private List<String> keyFields = new ArrayList<>();
+    private final String[] fieldNames;
+    private final String[] keys;
 
 
     /**
@@ -50,24 +63,49 @@ class DataTableImpl<T> implements DataTable<T> {
     public DataTableImpl(Class<T> entityClass) {
         this.type = entityClass;
         this.name = TableHelper.getTableName(entityClass);
-        beanProperties(entityClass).forEach(this::addFieldProperty);
-        if (keyFields.isEmpty() && getField("id") != null) {
-            keyFields.add(fieldProperty("id").getName());
+        Map<String, BeanProperty> properties = new TreeMap<>();
+        Map<String, Column> columns = new HashMap<>();
+        List<String> keyNames = new ArrayList<>();
+        for (BeanProperty property : beanProperties(entityClass)) {
+            if (property.isIgnore()) {
+                continue;
+            }
+            Column column = TableHelper.getColumnName(property);
+            String columnName = column.value();
+            throwIf(properties.containsKey(columnName), "duplicate field declared in table[" + type + "]: " + columnName);
+            properties.put(columnName, property);
+            columns.put(columnName, column);
+            if (property.getGetter().isAnnotationPresent(Id.class) || property.getField().isAnnotationPresent(Id.class)) {
+                keyNames.add(columnName);
+            }
+        }
+        List<FieldProperty> fields = new ArrayList<>(properties.size());
+        properties.forEach((columnName, property) -> {
+            FieldProperty field = new FieldProperty(columns.get(columnName), fields.size(), property.getGetter().getReturnType(), property.getGetter(), property.getSetter());
+            fields.add(field);
+            fieldProperties.put(columnName, field);
+        });
+        if (keyNames.isEmpty() && getField("id") != null) {
+            keyNames.add(fieldProperty("id").getName());
         }
-        if (keyFields.isEmpty()) {
+        if (keyNames.isEmpty()) {
             logger.warning("no id field defined in table[" + type + "]");
         }
+        this.fields = Collections.unmodifiableList(fields);
+        this.keyFields = Collections.unmodifiableList(keyNames.stream().map(fieldProperties::get).collect(Collectors.toList()));
+        this.fieldNames = properties.keySet().toArray(new String[0]);
+        this.keys = keyNames.toArray(new String[0]);
     }
 
 
     @Override
     public String[] getFieldNames() {
-        return fieldProperties.keySet().toArray(new String[0]);
+        return fieldNames.clone();
     }
 
     @Override
     public String[] getKeys() {
-        return keyFields.toArray(new String[0]);
+        return keys.clone();
     }
 
     @Override
@@ -87,23 +125,5 @@ class DataTableImpl<T> implements DataTable<T> {
         return fieldProperty;
     }
 
-    /**
-     * 添加字段属性方法
-     *
-     * @param property
-     */
-    private void addFieldProperty(BeanProperty property) {
-        if (property.isIgnore()) {
-            return;
-        }
-        Column column = TableHelper.getColumnName(property);
-        String columnName = column.value();
-        throwIf(fieldProperties.containsKey(columnName), "duplicate field declared in table[" + type + "]: " + columnName);
-        fieldProperties.put(columnName, new FieldProperty(column, property.getGetter().getReturnType(), property.getGetter(), property.getSetter()));
-        if (property.getGetter().isAnnotationPresent(Id.class) || property.getField().isAnnotationPresent(Id.class)) {
-            this.keyFields.add(columnName);
-        }
-    }
-
 
-}
\ No newline at end of file
+}
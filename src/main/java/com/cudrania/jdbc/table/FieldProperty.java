@@ -1,15 +1,18 @@
 package com.cudrania.jdbc.table;
 
 import lombok.Getter;
+import lombok.SneakyThrows;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.sql.SQLType;
 
-import static com.cudrania.core.reflection.Reflections.invoke;
-
 /**
  * 字段相关属性信息,包括名称,sqlType类型,getter和setter方法<p>
- * 字段的getter和setter方法名必须保持一致,且getter方法的返回类型为setter的参数类型
+ * 字段的getter和setter方法名必须保持一致,且getter方法的返回类型为setter的参数类型<p>
+ * 取值和赋值通过创建时生成的方法句柄完成, 基本类型字段可通过{@link #getInt(Object)}/{@link #setInt(Object, int)}等方法避免装箱
  */
 
 public class FieldProperty<T> implements Comparable<FieldProperty<T>> {
@@ -17,33 +20,217 @@ public class FieldProperty<T> implements Comparable<FieldProperty<T>> {
     private final String name;
     @Getter
     private final Class<T> type;
-    private final Method getter;
-    private final Method setter;
     @Getter
     private final SQLType sqlType;
+    /**
+     * 字段在{@link DataTable#getFields()}中的索引, 不属于任何表时为-1
+     */
+    @Getter
+    private final int index;
+    /**
+     * getter方法句柄, 类型为(Object)Object
+     */
+    private final MethodHandle getterHandle;
+    /**
+     * setter方法句柄, 类型为(Object, Object)void
+     */
+    private final MethodHandle setterHandle;
+    /**
+     * 基本类型字段的getter方法句柄, 类型为(Object)type, 非基本类型时为null
+     */
+    private final MethodHandle primitiveGetter;
+    /**
+     * 基本类型字段的setter方法句柄, 类型为(Object, type)void, 非基本类型时为null
+     */
+    private final MethodHandle primitiveSetter;
 
     public FieldProperty(String name, Class<T> type, SQLType sqlType, Method getter, Method setter) {
-        this.name = name;
-        this.type = type;
-        this.getter = getter;
-        this.setter = setter;
-        this.sqlType = sqlType;
+        this(name, -1, type, sqlType, getter, setter);
     }
 
     public FieldProperty(Column column, Class<T> type, Method getter, Method setter) {
-        this(column.value(), type, column.sqlType(), getter, setter);
+        this(column.value(), -1, type, column.sqlType(), getter, setter);
     }
 
+    FieldProperty(Column column, int index, Class<T> type, Method getter, Method setter) {
+        this(column.value(), index, type, column.sqlType(), getter, setter);
+    }
+
+    private FieldProperty(String name, int index, Class<T> type, SQLType sqlType, Method getter, Method setter) {
+        this.name = name;
+        this.index = index;
+        this.type = type;
+        this.sqlType = sqlType;
+        MethodHandle get = unreflect(getter);
+        MethodHandle set = unreflect(setter);
+        this.getterHandle = get == null ? null : get.asType(MethodType.methodType(Object.class, Object.class));
+        this.setterHandle = set == null ? null : set.asType(MethodType.methodType(void.class, Object.class, Object.class));
+        boolean primitive = type.isPrimitive();
+        this.primitiveGetter = get == null || !primitive ? null : get.asType(MethodType.methodType(type, Object.class));
+        this.primitiveSetter = set == null || !primitive ? null : set.asType(MethodType.methodType(void.class, Object.class, type));
+    }
+
+    @SneakyThrows
     public void setValue(Object obj, T value) {
-        invoke(setter, obj, value);
+        setterHandle.invokeExact(obj, (Object) value);
     }
 
+    @SneakyThrows
     public T getValue(Object obj) {
-        return (T) invoke(getter, obj);
+        return (T) getterHandle.invokeExact(obj);
+    }
+
+    /**
+     * 获取int类型的字段值, 非int类型的字段按{@link Number#intValue()}转换
+     *
+     * @param obj
+     * @return
+     */
+    @SneakyThrows
+    public int getInt(Object obj) {
+        if (type == int.class) {
+            return (int) primitiveGetter.invokeExact(obj);
+        }
+        return ((Number) getValue(obj)).intValue();
+    }
+
+    /**
+     * 获取long类型的字段值, 非long类型的字段按{@link Number#longValue()}转换
+     *
+     * @param obj
+     * @return
+     */
+    @SneakyThrows
+    public long getLong(Object obj) {
+        if (type == long.class) {
+            return (long) primitiveGetter.invokeExact(obj);
+        }
+        return ((Number) getValue(obj)).longValue();
+    }
+
+    /**
+     * 获取double类型的字段值, 非double类型的字段按{@link Number#doubleValue()}转换
+     *
+     * @param obj
+     * @return
+     */
+    @SneakyThrows
+    public double getDouble(Object obj) {
+        if (type == double.class) {
+            return (double) primitiveGetter.invokeExact(obj);
+        }
+        return ((Number) getValue(obj)).doubleValue();
+    }
+
+    /**
+     * 获取boolean类型的字段值
+     *
+     * @param obj
+     * @return
+     */
+    @SneakyThrows
+    public boolean getBoolean(Object obj) {
+        if (type == boolean.class) {
+            return (boolean) primitiveGetter.invokeExact(obj);
+        }
+        return (Boolean) getValue(obj);
+    }
+
+    /**
+     * 设置int类型的字段值
+     *
+     * @param obj
+     * @param value
+     */
+    @SneakyThrows
+    public void setInt(Object obj, int value) {
+        if (type == int.class) {
+            primitiveSetter.invokeExact(obj, value);
+        } else {
+            setterHandle.invokeExact(obj, (Object) value);
+        }
+    }
+
+    /**
+     * 设置long类型的字段值
+     *
+     * @param obj
+     * @param value
+     */
+    @SneakyThrows
+    public void setLong(Object obj, long value) {
+        if (type == long.class) {
+            primitiveSetter.invokeExact(obj, value);
+        } else {
+            setterHandle.invokeExact(obj, (Object) value);
+        }
+    }
+
+    /**
+     * 设置double类型的字段值
+     *
+     * @param obj
+     * @param value
+     */
+    @SneakyThrows
+    public void setDouble(Object obj, double value) {
+        if (type == double.class) {
+            primitiveSetter.invokeExact(obj, value);
+        } else {
+            setterHandle.invokeExact(obj, (Object) value);
+        }
+    }
+
+    /**
+     * 设置boolean类型的字段值
+     *
+     * @param obj
+     * @param value
+     */
+    @SneakyThrows
+    public void setBoolean(Object obj, boolean value) {
+        if (type == boolean.class) {
+            primitiveSetter.invokeExact(obj, value);
+        } else {
+            setterHandle.invokeExact(obj, (Object) value);
+        }
+    }
+
+    /**
+     * 获取setter方法句柄, 类型为(Object, Object)void, 适用于需要反复赋值的场景
+     *
+     * @return
+     */
+    public MethodHandle getSetterHandle() {
+        return setterHandle;
+    }
+
+    /**
+     * 获取getter方法句柄, 类型为(Object)Object
+     *
+     * @return
+     */
+    public MethodHandle getGetterHandle() {
+        return getterHandle;
     }
 
     @Override
     public int compareTo(FieldProperty o) {
         return this.name.compareTo(o.name);
     }
-}
\ No newline at end of file
+
+    /**
+     * 创建方法句柄, 方法为null时返回null
+     *
+     * @param method
+     * @return
+     */
+    @SneakyThrows
+    private static MethodHandle unreflect(Method method) {
+        if (method == null) {
+            return null;
+        }
+        method.setAccessible(true);
+        return MethodHandles.lookup().unreflect(method);
+    }
+}
@@ -0,0 +1,224 @@
+package com.cudrania.test.database;
+
+import com.cudrania.core.collection.wrapper.Wrappers;
+import com.cudrania.jdbc.datasource.DataSourceBuilder;
+import com.cudrania.jdbc.datasource.PooledDataSource;
+import com.cudrania.jdbc.query.SqlQueryBuilder;
+import com.cudrania.jdbc.query.SqlSession;
+import com.cudrania.jdbc.sql.SqlStatement;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 基于H2内存数据库的连接池测试
+ *
+ * @author skyfalling
+ */
+public class TestPooledDataSource {
+
+    private PooledDataSource dataSource;
+
+    @BeforeEach
+    public void setUp() {
+        Map<String, Object> map = Wrappers.<String, Object>map()
+                .$put("type", DataSourceBuilder.POOLED)
+                .$put("jdbc-url", "jdbc:h2:mem:pool;DB_CLOSE_DELAY=-1")
+                .$put("username", "sa")
+                .$put("password", "sa")
+                .$put("minimum-idle", 2)
+                .$put("maximum-pool-size", 4)
+                .$put("connection-timeout", 200L)
+                .$put("housekeeping-period", 100L);
+        DataSourceBuilder builder = new DataSourceBuilder();
+        builder.addProperties(map);
+        dataSource = (PooledDataSource) builder.build();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    @Test
+    public void testBorrow() throws Exception {
+        Connection connection = dataSource.getConnection();
+        Connection physical = connection.unwrap(Connection.class);
+        connection.setAutoCommit(false);
+        Assertions.assertEquals(1, dataSource.getActiveConnections());
+        connection.close();
+        connection.close();
+        Assertions.assertTrue(connection.isClosed());
+        Assertions.assertThrows(Exception.class, () -> connection.createStatement());
+        Assertions.assertEquals(0, dataSource.getActiveConnections());
+
+        //最近归还的连接优先借出, 且恢复了默认设置
+        try (Connection again = dataSource.getConnection()) {
+            Assertions.assertSame(physical, again.unwrap(Connection.class));
+            Assertions.assertTrue(again.getAutoCommit());
+        }
+
+        List<Connection> connections = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            connections.add(dataSource.getConnection());
+        }
+        long begin = System.currentTimeMillis();
+        Assertions.assertThrows(SQLTransientConnectionException.class, () -> dataSource.getConnection());
+        Assertions.assertTrue(System.currentTimeMillis() - begin >= 200);
+        Assertions.assertEquals(1, dataSource.getTimeoutCount());
+        Assertions.assertEquals(4, dataSource.getTotalConnections());
+        for (Connection c : connections) {
+            c.close();
+        }
+        Assertions.assertEquals(4, dataSource.getIdleConnections());
+    }
+
+    @Test
+    public void testValidation() throws Exception {
+        Connection physical;
+        try (Connection connection = dataSource.getConnection()) {
+            physical = connection.unwrap(Connection.class);
+        }
+        physical.close();
+        Thread.sleep(600);
+        //空闲连接失效后借出时被替换
+        try (Connection connection = dataSource.getConnection(); Statement stmt = connection.createStatement()) {
+            Assertions.assertNotSame(physical, connection.unwrap(Connection.class));
+            Assertions.assertTrue(stmt.execute("select 1"));
+        }
+        //后台线程补足最小空闲连接
+        Thread.sleep(300);
+        Assertions.assertTrue(dataSource.getIdleConnections() >= 2);
+    }
+
+    @Test
+    public void testStatement() throws Exception {
+        Statement unclosed;
+        Connection physical;
+        try (Connection connection = dataSource.getConnection()) {
+            physical = connection.unwrap(Connection.class);
+            unclosed = connection.prepareStatement("select 1");
+            Assertions.assertSame(connection, unclosed.getConnection());
+        }
+        //归还时关闭未关闭的语句
+        Assertions.assertTrue(unclosed.isClosed());
+
+        //语句抛出连接类错误后, 连接归还时被关闭
+        try (Connection connection = dataSource.getConnection(); Statement stmt = connection.createStatement()) {
+            Assertions.assertSame(physical, connection.unwrap(Connection.class));
+            stmt.execute("CREATE ALIAS IF NOT EXISTS LINK_FAILURE FOR '" + getClass().getName() + ".linkFailure'");
+            Assertions.assertThrows(SQLException.class, () -> stmt.executeQuery("select LINK_FAILURE()"));
+        }
+        Assertions.assertTrue(physical.isClosed());
+        try (Connection connection = dataSource.getConnection()) {
+            Assertions.assertNotSame(physical, connection.unwrap(Connection.class));
+        }
+    }
+
+    private static final AtomicInteger running = new AtomicInteger();
+    private static final AtomicInteger maxRunning = new AtomicInteger();
+    private static volatile CountDownLatch started;
+    private static volatile CountDownLatch release;
+
+    public static int hold() throws InterruptedException {
+        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+        try {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return 0;
+        } finally {
+            running.decrementAndGet();
+        }
+    }
+
+    public static int linkFailure() throws SQLException {
+        throw new SQLException("communications link failure", "08S01");
+    }
+
+    @Test
+    public void testConcurrent() throws Exception {
+        dataSource.setConnectionTimeout(5000);
+        SqlQueryBuilder queryBuilder = new SqlQueryBuilder(dataSource);
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                futures.add(executor.submit(() -> {
+                    int sum = 0;
+                    for (int j = 0; j < 200; j++) {
+                        sum += (Integer) queryBuilder.build(new SqlStatement("select ?", 1)).getColumns(1).get(0);
+                    }
+                    return sum;
+                }));
+            }
+            for (Future<Integer> future : futures) {
+                Assertions.assertEquals(200, future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        Assertions.assertEquals(0, dataSource.getActiveConnections());
+        Assertions.assertTrue(dataSource.getTotalConnections() <= 4);
+        Assertions.assertEquals(3200, dataSource.getBorrowCount());
+        System.out.println(String.format("average wait: %d ns, max wait: %d ns", dataSource.getAverageWaitNanos(), dataSource.getMaxWaitNanos()));
+
+        for (int round = 0; round < 3; round++) {
+            long begin = System.nanoTime();
+            for (int i = 0; i < 100000; i++) {
+                dataSource.getConnection().close();
+            }
+            System.out.println(String.format("borrow and return: %d ns/op", (System.nanoTime() - begin) / 100000));
+        }
+    }
+
+    @Test
+    public void testAsync() throws Exception {
+        dataSource.setConnectionTimeout(5000);
+        SqlQueryBuilder queryBuilder = new SqlQueryBuilder(dataSource);
+        queryBuilder.build(new SqlStatement("CREATE ALIAS IF NOT EXISTS HOLD FOR '" + getClass().getName() + ".hold'")).executeUpdate();
+        //并发数受限于最大连接数4, 前4个查询阻塞期间其余查询不执行, 也不在连接池中等待
+        started = new CountDownLatch(4);
+        release = new CountDownLatch(1);
+        running.set(0);
+        maxRunning.set(0);
+        List<CompletableFuture<List<Map<String, Object>>>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            futures.add(queryBuilder.build(new SqlStatement("select ? as id, HOLD()", i)).async().getRows());
+        }
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        Assertions.assertEquals(4, running.get());
+        Assertions.assertEquals(0, dataSource.getWaitingThreads());
+        release.countDown();
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        Assertions.assertEquals(4, maxRunning.get());
+        for (int i = 0; i < 8; i++) {
+            Assertions.assertEquals(i, futures.get(i).join().get(0).get("id"));
+        }
+        Assertions.assertEquals(0, dataSource.getTimeoutCount());
+        Assertions.assertEquals(0, dataSource.getWaitingThreads());
+
+        CompletableFuture<Integer> failed = queryBuilder.build(new SqlStatement("select * from not_exists")).async().executeUpdate();
+        Assertions.assertThrows(CompletionException.class, failed::join);
+        try (SqlSession session = queryBuilder.openSession()) {
+            Assertions.assertThrows(IllegalStateException.class, () -> session.build().async());
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.cudrania.test.database;
+
+import com.cudrania.core.collection.wrapper.Wrappers;
+import com.cudrania.jdbc.datasource.DataSourceBuilder;
+import com.cudrania.jdbc.datasource.RoutingDataSource;
+import com.cudrania.jdbc.query.SqlQueryBuilder;
+import com.cudrania.jdbc.query.SqlSession;
+import com.cudrania.jdbc.sql.SqlStatement;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 基于H2内存数据库的读写分离测试, 每个库的server表记录库名
+ *
+ * @author skyfalling
+ */
+public class TestRoutingDataSource {
+
+    private static LinkedHashMap<String, DataSource> dataSources;
+
+    @BeforeAll
+    public static void setUpAll() {
+        DataSourceBuilder builder = new DataSourceBuilder();
+        for (String name : new String[]{"primary", "replica1", "replica2"}) {
+            builder.addProperties(name, Wrappers.<String, Object>map()
+                    .$put("type", org.h2.jdbcx.JdbcDataSource.class)
+                    .$put("url", "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1")
+                    .$put("user", "sa")
+                    .$put("password", "sa"));
+        }
+        dataSources = builder.buildAll();
+        dataSources.forEach((name, dataSource) -> {
+            SqlQueryBuilder queryBuilder = new SqlQueryBuilder(dataSource);
+            queryBuilder.build(new SqlStatement("CREATE TABLE server (name VARCHAR(64))")).executeUpdate();
+            queryBuilder.build(new SqlStatement("insert into server values(?)", name)).executeUpdate();
+        });
+    }
+
+    @Test
+    public void testRouting() {
+        RoutingDataSource routing = RoutingDataSource.of(dataSources, "primary").withReadAfterWrite(0);
+        SqlQueryBuilder queryBuilder = new SqlQueryBuilder(routing);
+        Assertions.assertEquals(Arrays.asList("replica1", "replica2", "replica1", "replica2"),
+                Arrays.asList(server(queryBuilder), server(queryBuilder), server(queryBuilder), server(queryBuilder)));
+        //写操作使用主库
+        Assertions.assertEquals(1, queryBuilder.build(new SqlStatement("update server set name = name")).executeUpdate());
+
+        try (SqlSession session = queryBuilder.openSession()) {
+            Assertions.assertEquals("primary", server(session));
+            Assertions.assertEquals("primary", server(session));
+        }
+        try (SqlSession session = queryBuilder.openSession().withReadOnly(true)) {
+            String replica = server(session);
+            Assertions.assertTrue(replica.startsWith("replica"));
+            Assertions.assertEquals(replica, server(session));
+        }
+    }
+
+    @Test
+    public void testReadAfterWrite() throws Exception {
+        RoutingDataSource routing = RoutingDataSource.of(dataSources, "primary").withReadAfterWrite(200);
+        SqlQueryBuilder queryBuilder = new SqlQueryBuilder(routing);
+        Assertions.assertTrue(server(queryBuilder).startsWith("replica"));
+        queryBuilder.build(new SqlStatement("update server set name = name")).executeUpdate();
+        Assertions.assertEquals("primary", server(queryBuilder));
+        Thread.sleep(250);
+        Assertions.assertTrue(server(queryBuilder).startsWith("replica"));
+    }
+
+    @Test
+    public void testLongWrite() throws Exception {
+        RoutingDataSource routing = RoutingDataSource.of(dataSources, "primary").withReadAfterWrite(100);
+        SqlQueryBuilder queryBuilder = new SqlQueryBuilder(routing);
+        //写事务持续时间超过时间窗口, 提交后的读操作仍然使用主库
+        try (Connection connection = routing.getConnection()) {
+            connection.setAutoCommit(false);
+            connection.createStatement().executeUpdate("update server set name = name");
+            Thread.sleep(150);
+            Assertions.assertEquals("primary", server(queryBuilder));
+            connection.commit();
+            Thread.sleep(150);
+            Assertions.assertEquals("primary", server(queryBuilder));
+        }
+        Assertions.assertEquals("primary", server(queryBuilder));
+        Thread.sleep(150);
+        Assertions.assertTrue(server(queryBuilder).startsWith("replica"));
+    }
+
+    @Test
+    public void testAsyncReadAfterWrite() throws Exception {
+        RoutingDataSource routing = RoutingDataSource.of(dataSources, "primary").withReadAfterWrite(1000);
+        SqlQueryBuilder queryBuilder = new SqlQueryBuilder(routing);
+        queryBuilder.build(new SqlStatement("update server set name = name")).executeUpdate();
+        SqlStatement select = new SqlStatement("select name from server");
+        Assertions.assertEquals("primary", queryBuilder.build(select).async().getRows().get().get(0).get("name"));
+        //其他线程未写入过, 读操作使用从库
+        String name = CompletableFuture.supplyAsync(() -> server(queryBuilder)).get();
+        Assertions.assertTrue(name.startsWith("replica"));
+    }
+
+    @Test
+    public void testEjection() throws Exception {
+        DataSource broken = (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{DataSource.class}, (proxy, method, args) -> {
+            throw new SQLException("connection refused", "08001");
+        });
+        RoutingDataSource routing = new RoutingDataSource(dataSources.get("primary"), Arrays.asList(broken, dataSources.get("replica1")))
+                .withReadAfterWrite(0);
+        SqlQueryBuilder queryBuilder = new SqlQueryBuilder(routing);
+        for (int i = 0; i < 4; i++) {
+            Assertions.assertEquals("replica1", server(queryBuilder));
+        }
+        Assertions.assertEquals(1, routing.getAvailableReplicas());
+
+        //全部从库不可用时使用主库
+        routing = new RoutingDataSource(dataSources.get("primary"), Arrays.asList(broken));
+        Assertions.assertEquals("primary", server(new SqlQueryBuilder(routing)));
+        Assertions.assertEquals(0, routing.getAvailableReplicas());
+    }
+
+    @Test
+    public void testLeastActive() throws Exception {
+        RoutingDataSource routing = RoutingDataSource.of(dataSources, "primary")
+                .withReadAfterWrite(0).withStrategy(RoutingDataSource.Strategy.LEAST_ACTIVE);
+        SqlQueryBuilder queryBuilder = new SqlQueryBuilder(routing);
+        try (Connection ignored = routing.getConnection(true)) {
+            String other = server(queryBuilder);
+            for (int i = 0; i < 3; i++) {
+                Assertions.assertEquals(other, server(queryBuilder));
+            }
+        }
+    }
+
+    private static String server(SqlQueryBuilder queryBuilder) {
+        return (String) queryBuilder.build(new SqlStatement("select name from server")).getColumns(1).get(0);
+    }
+}
@@ -2,9 +2,17 @@ package com.cudrania.test.database;
 
 import com.cudrania.core.collection.wrapper.Wrappers;
 import com.cudrania.jdbc.sql.SqlStatement;
+import com.cudrania.jdbc.table.DataTable;
+import com.cudrania.jdbc.table.DataTableFactory;
+import com.cudrania.jdbc.table.FieldProperty;
 import com.cudrania.test.bean.User;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
 import static com.cudrania.jdbc.sql.SqlGenerator.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
@@ -46,5 +54,46 @@ public class TestSqlGenerator {
 
     }
 
+    @Test
+    public void testDataTable() {
+        DataTable<User> table = DataTableFactory.get(User.class);
+        List<FieldProperty> fields = table.getFields();
+        Assertions.assertEquals(Arrays.asList("password", "user_id", "user_name", "uuid"),
+                fields.stream().map(FieldProperty::getName).collect(Collectors.toList()));
+        Assertions.assertArrayEquals(new String[]{"password", "user_id", "user_name", "uuid"}, table.getFieldNames());
+        for (int i = 0; i < fields.size(); i++) {
+            Assertions.assertEquals(i, fields.get(i).getIndex());
+            Assertions.assertSame(fields.get(i), table.getField(i));
+            Assertions.assertEquals(i, table.indexOf(fields.get(i).getName()));
+        }
+        Assertions.assertEquals(-1, table.indexOf("not_exists"));
+        Assertions.assertEquals(1, table.getKeyFields().size());
+        Assertions.assertSame(table.getField("uuid"), table.getKeyFields().get(0));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> fields.remove(0));
+        //指定表名时共用字段信息
+        Assertions.assertSame(fields, DataTableFactory.get("users_bak", User.class).getFields());
+
+        User user = new User("skyfalling", "who");
+        FieldProperty id = table.getField("uuid");
+        id.setInt(user, 7);
+        Assertions.assertEquals(7, user.getId());
+        Assertions.assertEquals(7, id.getInt(user));
+        Assertions.assertEquals(7L, id.getLong(user));
+        Assertions.assertEquals(7, id.getValue(user));
+        id.setValue(user, 8);
+        Assertions.assertEquals(8, user.getId());
+        FieldProperty name = table.getField("user_name");
+        name.setValue(user, "what");
+        Assertions.assertEquals("what", name.getValue(user));
+
+        for (int round = 0; round < 3; round++) {
+            long begin = System.nanoTime();
+            for (int i = 0; i < 100000; i++) {
+                updateSql(user);
+            }
+            System.out.println(String.format("updateSql: %d ns/op", (System.nanoTime() - begin) / 100000));
+        }
+    }
+
 
 }
@@ -0,0 +1,401 @@
+package com.cudrania.test.database;
+
+import com.cudrania.core.collection.wrapper.Wrappers;
+import com.cudrania.jdbc.datasource.DataSourceBuilder;
+import com.cudrania.jdbc.query.ResultSetAdapter;
+import com.cudrania.jdbc.query.RowMapper;
+import com.cudrania.jdbc.query.SqlQueryBuilder;
+import com.cudrania.jdbc.query.SqlSession;
+import com.cudrania.jdbc.sql.EntityBatch;
+import com.cudrania.jdbc.sql.SqlDialect;
+import com.cudrania.jdbc.sql.SqlGenerator;
+import com.cudrania.jdbc.sql.SqlStatement;
+import com.cudrania.jdbc.table.Id;
+import com.cudrania.jdbc.table.Table;
+import com.cudrania.test.bean.User;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigInteger;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 基于H2内存数据库的查询测试
+ *
+ * @author skyfalling
+ */
+public class TestSqlQuery {
+
+    private static final int ROWS = 10000;
+
+    private static SqlQueryBuilder queryBuilder;
+    private static DataSource dataSource;
+    /**
+     * 当前未关闭的连接数
+     */
+    private static final AtomicInteger openConnections = new AtomicInteger();
+
+    @BeforeAll
+    public static void setUpAll() {
+        Map<String, Object> map = Wrappers.<String, Object>map()
+                .$put("type", org.h2.jdbcx.JdbcDataSource.class)
+                .$put("url", "jdbc:h2:mem:query;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1")
+                .$put("user", "sa")
+                .$put("password", "sa");
+        DataSourceBuilder builder = new DataSourceBuilder();
+        builder.addProperties(map);
+        dataSource = builder.build();
+        queryBuilder = new SqlQueryBuilder(counting(dataSource));
+        queryBuilder.build(new SqlStatement("CREATE TABLE users (" +
+                "uuid BIGINT NOT NULL AUTO_INCREMENT," +
+                " user_id VARCHAR(64) NOT NULL DEFAULT '-1'," +
+                " user_name VARCHAR(64) NOT NULL DEFAULT ''," +
+                " password VARCHAR(64) NOT NULL DEFAULT ''," +
+                " PRIMARY KEY (uuid))")).executeUpdate();
+        Object[][] parameters = new Object[ROWS][];
+        for (int i = 0; i < ROWS; i++) {
+            parameters[i] = new Object[]{i + 1, "id" + (i + 1), "name" + (i + 1), "pwd"};
+        }
+        queryBuilder.build().executeBatch("insert into users(uuid,user_id,user_name,password) values(?,?,?,?)", parameters);
+    }
+
+    @Test
+    public void testRowMapper() {
+        SqlStatement sql = new SqlStatement("select * from users order by uuid");
+        List<User> users = queryBuilder.build(sql).getRows(User.class);
+        Assertions.assertEquals(ROWS, users.size());
+        for (int i = 0; i < ROWS; i++) {
+            User user = users.get(i);
+            Assertions.assertEquals(i + 1, user.getId());
+            Assertions.assertEquals("id" + (i + 1), user.getUserId());
+            Assertions.assertEquals("name" + (i + 1), user.getUserName());
+        }
+        User first = queryBuilder.build(new SqlStatement("select user_name, uuid from users where uuid = 2")).getFirstRow(User.class);
+        Assertions.assertEquals(2, first.getId());
+        Assertions.assertEquals("name2", first.getUserName());
+        Assertions.assertNull(first.getUserId());
+        //列类型不匹配时抛出异常, 而不是跳过字段
+        Assertions.assertThrows(Exception.class, () -> queryBuilder.build(new SqlStatement("select user_name as uuid from users")).getRows(User.class));
+
+        //NULL列映射为包装类型字段的null
+        queryBuilder.build(new SqlStatement("CREATE TABLE samples (id BIGINT, count INT, ratio DOUBLE, score REAL," +
+                " level SMALLINT, flag BOOLEAN, total VARCHAR(64))")).executeUpdate();
+        queryBuilder.build(new SqlStatement("insert into samples values (null, null, null, null, null, null, null)," +
+                " (1, 2, 0.5, 1.5, 3, true, '12345678901234567890')")).executeUpdate();
+        List<Sample> samples = queryBuilder.build(new SqlStatement("select * from samples order by id")).getRows(Sample.class);
+        Assertions.assertEquals(new Sample(), samples.get(0));
+        Sample sample = samples.get(1);
+        Assertions.assertEquals(1L, sample.getId());
+        Assertions.assertEquals(2, sample.getCount());
+        Assertions.assertEquals(0.5, sample.getRatio());
+        Assertions.assertEquals(1.5f, sample.getScore());
+        Assertions.assertEquals((short) 3, sample.getLevel());
+        Assertions.assertEquals(true, sample.getFlag());
+        Assertions.assertEquals(new BigInteger("12345678901234567890"), sample.getTotal());
+
+        RowMapper<User>[] mappers = queryBuilder.build(sql).executeQuery(resultSet -> {
+            try {
+                return new RowMapper[]{RowMapper.bean(User.class, resultSet), RowMapper.bean(User.class, resultSet)};
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Assertions.assertSame(mappers[0], mappers[1]);
+
+        for (int round = 0; round < 3; round++) {
+            long begin = System.nanoTime();
+            queryBuilder.build(sql).getRows(User.class);
+            System.out.println(String.format("getRows: %d ns/row", (System.nanoTime() - begin) / ROWS));
+        }
+    }
+
+
+    @Test
+    public void testStream() {
+        SqlStatement sql = new SqlStatement("select * from users order by uuid");
+        try (Stream<User> stream = queryBuilder.build(sql).withFetchSize(100).stream(User.class)) {
+            Assertions.assertEquals(1, openConnections.get());
+            List<User> users = stream.limit(10).collect(Collectors.toList());
+            Assertions.assertEquals(10, users.size());
+            Assertions.assertEquals("name10", users.get(9).getUserName());
+        }
+        Assertions.assertEquals(0, openConnections.get());
+
+        //读取完毕时自动释放连接
+        Iterator<Map<String, Object>> iterator = queryBuilder.build(sql).stream().iterator();
+        int count = 0;
+        while (iterator.hasNext()) {
+            Map<String, Object> row = iterator.next();
+            Assertions.assertEquals("id" + (++count), row.get("USER_ID"));
+        }
+        Assertions.assertEquals(ROWS, count);
+        Assertions.assertEquals(0, openConnections.get());
+
+        try (Stream<String> names = queryBuilder.build(sql).stream(resultSet -> resultSet.getString("user_name"))) {
+            Assertions.assertEquals(ROWS, names.filter(name -> name.startsWith("name")).count());
+        }
+        Assertions.assertEquals(0, openConnections.get());
+    }
+
+
+    @Test
+    public void testPaginate() {
+        SqlStatement sql = new SqlStatement("select * from users where uuid > ? order by uuid", 100);
+        List<User> page = queryBuilder.build(sql).getRows(User.class, 201, 20);
+        Assertions.assertEquals(20, page.size());
+        Assertions.assertEquals(301, page.get(0).getId());
+        Assertions.assertEquals(320, page.get(19).getId());
+        List<Map<String, Object>> last = queryBuilder.build(sql).getRows(ROWS - 109, 50);
+        Assertions.assertEquals(10, last.size());
+        Assertions.assertEquals(ROWS - 100, queryBuilder.build(sql).getRowsCount());
+        Assertions.assertEquals(ROWS, queryBuilder.build(new SqlStatement("select * from users;")).getRowsCount());
+
+        SqlStatement paged = SqlDialect.OFFSET_FETCH.paginate(sql, 200, 20);
+        Assertions.assertEquals("select * from users where uuid > 100 order by uuid OFFSET 200 ROWS FETCH NEXT 20 ROWS ONLY", paged.renderSql());
+        Assertions.assertEquals("SELECT COUNT(*) FROM (select * from users where uuid > 100 order by uuid) t_count", SqlDialect.LIMIT_OFFSET.count(sql).renderSql());
+
+        //只进游标跳过指定行数
+        List<User> skipped = queryBuilder.build(sql).executeQuery(resultSet -> ResultSetAdapter.getRows(resultSet, 201, 20, User.class));
+        Assertions.assertEquals(page, skipped);
+
+        //已有行数限制或加锁子句的语句不改写, 在结果集上跳过
+        SqlStatement limited = new SqlStatement("select * from users where uuid > ? order by uuid limit 300", 100);
+        Assertions.assertEquals(page, queryBuilder.build(limited).getRows(User.class, 201, 20));
+        Assertions.assertEquals(300, queryBuilder.build(limited).getRowsCount());
+        SqlStatement locking = new SqlStatement("select * from users where uuid > ? order by uuid for update", 100);
+        Assertions.assertEquals(page, queryBuilder.build(locking).getRows(User.class, 201, 20));
+        Assertions.assertEquals(ROWS - 100, queryBuilder.build(locking).getRowsCount());
+        Assertions.assertFalse(SqlDialect.LIMIT_OFFSET.canPaginate(limited.preparedSql()));
+        Assertions.assertFalse(SqlDialect.LIMIT_OFFSET.canCount(locking.preparedSql()));
+        Assertions.assertTrue(SqlDialect.LIMIT_OFFSET.canCount(limited.preparedSql()));
+        //SQL Server分页要求ORDER BY, 计数子查询不能包含ORDER BY
+        Assertions.assertEquals(SqlDialect.SQL_SERVER, SqlDialect.of("Microsoft SQL Server"));
+        Assertions.assertTrue(SqlDialect.SQL_SERVER.canPaginate(sql.preparedSql()));
+        Assertions.assertFalse(SqlDialect.SQL_SERVER.canCount(sql.preparedSql()));
+        Assertions.assertFalse(SqlDialect.SQL_SERVER.canPaginate("select * from users"));
+        Assertions.assertTrue(SqlDialect.SQL_SERVER.canCount("select * from users"));
+    }
+
+
+    @Test
+    public void testStatementCache() throws Exception {
+        try (Connection physical = dataSource.getConnection()) {
+            //每次返回同一物理连接的代理, 关闭代理不关闭物理连接
+            DataSource pinned = (DataSource) Proxy.newProxyInstance(TestSqlQuery.class.getClassLoader(), new Class[]{DataSource.class},
+                    (proxy, method, args) -> Proxy.newProxyInstance(TestSqlQuery.class.getClassLoader(), new Class[]{Connection.class}, (p, m, a) -> {
+                        switch (m.getName()) {
+                            case "close":
+                                return null;
+                            case "isWrapperFor":
+                                return true;
+                            case "unwrap":
+                                return physical;
+                            default:
+                                return invoke(m, physical, a);
+                        }
+                    }));
+            SqlQueryBuilder builder = new SqlQueryBuilder(pinned);
+            SqlStatement sql = new SqlStatement("select * from users where uuid = :id", Wrappers.map("id", 5));
+            Statement first = builder.build(sql).withStatementCache(true).executeQuery(TestSqlQuery::statement);
+            User user = builder.build(new SqlStatement("select * from users where uuid = :id", Wrappers.map("id", 6)))
+                    .withStatementCache(true).getFirstRow(User.class);
+            Assertions.assertEquals("name6", user.getUserName());
+            Statement second = builder.build(sql).withStatementCache(true).executeQuery(TestSqlQuery::statement);
+            Assertions.assertSame(first, second);
+            Assertions.assertFalse(second.isClosed());
+
+            Statement uncached = builder.build(sql).executeQuery(TestSqlQuery::statement);
+            Assertions.assertNotSame(first, uncached);
+            Assertions.assertTrue(uncached.isClosed());
+
+            for (int round = 0; round < 3; round++) {
+                for (boolean cached : new boolean[]{false, true}) {
+                    long begin = System.nanoTime();
+                    for (int i = 0; i < 10000; i++) {
+                        builder.build(new SqlStatement("select * from users where uuid = :id", Wrappers.map("id", i % ROWS + 1)))
+                                .withStatementCache(cached).getFirstRow(User.class);
+                    }
+                    System.out.println(String.format("getFirstRow(cache=%s): %d ns/op", cached, (System.nanoTime() - begin) / 10000));
+                }
+            }
+        }
+    }
+
+
+    @Test
+    public void testBatch() {
+        try {
+            List<User> users = new ArrayList<>();
+            for (int i = 1; i <= 2500; i++) {
+                User user = new User("id" + (ROWS + i), "name" + (ROWS + i));
+                user.setId(ROWS + i);
+                user.setPassword(i == 2001 ? null : "pwd");
+                users.add(user);
+            }
+            //非空字段不同时拆分批次
+            int[] counts = queryBuilder.build().withBatchSize(1000).insertAll(users);
+            Assertions.assertArrayEquals(new int[]{1000, 1000, 1, 499}, counts);
+            Assertions.assertEquals(0, openConnections.get());
+
+            List<User> more = new ArrayList<>();
+            for (int i = 1; i <= 1500; i++) {
+                User user = new User("id" + (ROWS * 2 + i), "name" + (ROWS * 2 + i));
+                user.setId(ROWS * 2 + i);
+                more.add(user);
+            }
+            counts = queryBuilder.build().withBatchSize(1000).withMultiValues(true).insertAll(more);
+            Assertions.assertArrayEquals(new int[]{1000, 500}, counts);
+            Assertions.assertEquals(4000, queryBuilder.build(new SqlStatement("select * from users where uuid > ?", ROWS)).getRowsCount());
+
+            users.forEach(user -> user.setUserName("bulk" + user.getId()));
+            counts = queryBuilder.build().updateAll(users);
+            Assertions.assertEquals(2500, Arrays.stream(counts).sum());
+            User user = queryBuilder.build(new SqlStatement("select * from users where uuid = ?", ROWS + 2001)).getFirstRow(User.class);
+            Assertions.assertEquals("bulk" + (ROWS + 2001), user.getUserName());
+            Assertions.assertEquals("", user.getPassword());
+
+            Assertions.assertEquals("insert into users (user_id,user_name,uuid) values(?,?,?),(?,?,?)",
+                    SqlGenerator.insertSql(more.subList(0, 2)).preparedSql());
+            Assertions.assertThrows(RuntimeException.class, () -> SqlGenerator.insertSql(users.subList(1999, 2001)));
+
+            //非空字段相同的对象共用一个语句模板
+            EntityBatch<User> batch = EntityBatch.insert(User.class);
+            BitSet key = batch.key(batch.values(users.get(0)));
+            Assertions.assertEquals(key, batch.key(batch.values(users.get(1))));
+            Assertions.assertNotEquals(key, batch.key(batch.values(users.get(2000))));
+            Assertions.assertSame(batch.template(key), batch.template(batch.key(batch.values(users.get(1)))));
+            Assertions.assertEquals(SqlGenerator.insertSql(users.get(0)).preparedSql(), batch.template(key).getSql());
+            Assertions.assertEquals(SqlGenerator.insertSql(more.subList(0, 2)).preparedSql(),
+                    EntityBatch.insert(User.class).template(batch.key(batch.values(more.get(0)))).multiValuesSql(2));
+            EntityBatch<User> update = EntityBatch.update(User.class, "password");
+            Assertions.assertEquals(SqlGenerator.updateSql(users.get(2000), "password").preparedSql(),
+                    update.template(update.key(update.values(users.get(2000)))).getSql());
+        } finally {
+            queryBuilder.build(new SqlStatement("delete from users where uuid > ?", ROWS)).executeUpdate();
+        }
+    }
+
+
+    @Test
+    public void testSession() throws Exception {
+        SqlStatement count = new SqlStatement("select * from users where uuid > ?", ROWS);
+        try {
+            try (SqlSession session = queryBuilder.openSession()) {
+                User user = new User("id0", "name0");
+                user.setId(ROWS + 1);
+                session.build().insert(user);
+                user.setId(ROWS + 2);
+                session.build().insert(user);
+                Assertions.assertEquals(2, session.build(count).getRowsCount());
+                Assertions.assertEquals(1, openConnections.get());
+                //未提交的更新对其他连接不可见
+                Assertions.assertEquals(0, queryBuilder.build(count).getRowsCount());
+            }
+            Assertions.assertEquals(0, openConnections.get());
+            Assertions.assertEquals(0, queryBuilder.build(count).getRowsCount());
+
+            int inserted = queryBuilder.transaction(session -> {
+                User user = new User("id0", "name0");
+                user.setId(ROWS + 1);
+                return session.build().insertAll(Arrays.asList(user)).length;
+            });
+            Assertions.assertEquals(1, inserted);
+            Assertions.assertEquals(1, queryBuilder.build(count).getRowsCount());
+
+            Assertions.assertThrows(IllegalStateException.class, () -> queryBuilder.transaction(session -> {
+                session.build(new SqlStatement("delete from users where uuid > ?", ROWS)).executeUpdate();
+                throw new IllegalStateException("rollback");
+            }));
+            Assertions.assertEquals(1, queryBuilder.build(count).getRowsCount());
+            Assertions.assertEquals(0, openConnections.get());
+
+            try (SqlSession session = queryBuilder.openSession().withReadOnly(true).withIsolation(Connection.TRANSACTION_SERIALIZABLE)) {
+                Connection connection = session.connection();
+                Assertions.assertTrue(session.isReadOnly());
+                Assertions.assertEquals(Connection.TRANSACTION_SERIALIZABLE, connection.getTransactionIsolation());
+                Assertions.assertSame(connection, session.connection());
+                Assertions.assertThrows(IllegalStateException.class, () -> session.withReadOnly(false));
+            }
+        } finally {
+            queryBuilder.build(new SqlStatement("delete from users where uuid > ?", ROWS)).executeUpdate();
+        }
+    }
+
+
+    /**
+     * 统计未关闭连接数的数据源
+     *
+     * @param dataSource
+     * @return
+     */
+    private static DataSource counting(DataSource dataSource) {
+        return (DataSource) Proxy.newProxyInstance(TestSqlQuery.class.getClassLoader(), new Class[]{DataSource.class}, (proxy, method, args) -> {
+            Object result = invoke(method, dataSource, args);
+            if (method.getName().equals("getConnection")) {
+                openConnections.incrementAndGet();
+                Connection connection = (Connection) result;
+                AtomicInteger closed = new AtomicInteger();
+                return Proxy.newProxyInstance(TestSqlQuery.class.getClassLoader(), new Class[]{Connection.class}, (p, m, a) -> {
+                    if (m.getName().equals("close") && closed.getAndIncrement() == 0) {
+                        openConnections.decrementAndGet();
+                    }
+                    return invoke(m, connection, a);
+                });
+            }
+            return result;
+        });
+    }
+
+    private static Statement statement(ResultSet resultSet) {
+        try {
+            return resultSet.getStatement();
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Object invoke(Method method, Object target, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * 字段均为包装类型的实体
+     */
+    @Table("samples")
+    @Data
+    @NoArgsConstructor
+    public static class Sample {
+
+        @Id
+        private Long id;
+        private Integer count;
+        private Double ratio;
+        private Float score;
+        private Short level;
+        private Boolean flag;
+        private BigInteger total;
+    }
+}
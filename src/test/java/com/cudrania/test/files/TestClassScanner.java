@@ -0,0 +1,77 @@
+package com.cudrania.test.files;
+
+import com.cudrania.core.io.ClassInfo;
+import com.cudrania.core.io.ClassScanner;
+import com.cudrania.core.io.Files;
+import com.cudrania.core.utils.TimeCounter;
+import com.cudrania.jdbc.table.Table;
+import com.cudrania.test.bean.User;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.lang.annotation.Retention;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author skyfalling
+ */
+public class TestClassScanner {
+
+    @Test
+    public void testDirectory() {
+        List<ClassInfo> infos = new ClassScanner().scanInfo("com.cudrania.test.bean");
+        ClassInfo user = infos.stream().filter(info -> info.getName().equals(User.class.getName())).findAny().get();
+        assertEquals("java.lang.Object", user.getSuperName());
+        assertTrue(user.hasAnnotation(Table.class));
+        assertTrue(user.isPublic());
+        assertFalse(user.isInterface());
+
+        List<Class> classes = new ClassScanner().withFilter(info -> info.hasAnnotation(Table.class)).scan("com.cudrania.test.bean");
+        assertEquals(Arrays.asList(User.class), classes);
+        //子包中的类名正确
+        assertTrue(new ClassScanner().scanInfo("com.cudrania").stream().anyMatch(info -> info.getName().equals(User.class.getName())));
+    }
+
+    @Test
+    public void testJar() throws Exception {
+        File indexDir = java.nio.file.Files.createTempDirectory("index").toFile();
+        try {
+            ClassScanner.clearCache();
+            ClassScanner scanner = new ClassScanner().withFilter(ClassInfo::isAnnotation).withIndexDir(indexDir);
+            List<ClassInfo> annotations = scanner.scanInfo("org.junit.jupiter.api");
+            ClassInfo test = annotations.stream().filter(info -> info.getName().equals(Test.class.getName())).findAny().get();
+            assertTrue(test.isInterface());
+            assertTrue(test.getInterfaces().contains("java.lang.annotation.Annotation"));
+            assertTrue(test.hasAnnotation(Retention.class));
+            assertEquals(1, indexDir.list().length);
+
+            //从索引文件读取
+            ClassScanner.clearCache();
+            assertEquals(names(annotations), names(scanner.scanInfo("org.junit.jupiter.api")));
+            assertEquals(names(annotations), scanner.scan("org.junit.jupiter.api").stream().map(Class::getName).collect(Collectors.toList()));
+        } finally {
+            Files.delete(indexDir);
+        }
+
+        TimeCounter tc = new TimeCounter();
+        for (int round = 0; round < 3; round++) {
+            ClassScanner.clearCache();
+            tc.start();
+            int count = new ClassScanner().scanInfo("org.junit").size();
+            tc.stop();
+            System.out.println("scanInfo time cost:" + tc.timePassed() + ", classes:" + count);
+            tc.start();
+            count = new ClassScanner().scanInfo("org.junit").size();
+            tc.stop();
+            System.out.println("cached scanInfo time cost:" + tc.timePassed() + ", classes:" + count);
+        }
+    }
+
+    private static List<String> names(List<ClassInfo> infos) {
+        return infos.stream().map(ClassInfo::getName).collect(Collectors.toList());
+    }
+}
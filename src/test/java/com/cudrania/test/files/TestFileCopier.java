@@ -0,0 +1,127 @@
+package com.cudrania.test.files;
+
+import com.cudrania.core.io.FileCopier;
+import com.cudrania.core.io.Files;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author skyfalling
+ */
+public class TestFileCopier {
+
+    private File root;
+    private File src;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        root = java.nio.file.Files.createTempDirectory("copier").toFile();
+        src = new File(root, "src");
+        Random random = new Random(1);
+        for (int i = 0; i < 200; i++) {
+            File file = Files.getFile(src.getPath(), "d" + i % 7, "e" + i % 3, "f" + i + ".bin");
+            Files.createParent(file);
+            byte[] bytes = new byte[random.nextInt(4096)];
+            random.nextBytes(bytes);
+            java.nio.file.Files.write(file.toPath(), bytes);
+        }
+        new File(src, "empty").mkdirs();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        Files.delete(root);
+    }
+
+    @Test
+    public void testCopy() throws Exception {
+        //复制后的文件保留源文件的权限, 而不是临时文件的rw-------
+        File restricted = Files.getFile(src.getPath(), "d1", "e1", "f1.bin");
+        Set<PosixFilePermission> permissions = PosixFilePermissions.fromString("rw-r-----");
+        java.nio.file.Files.setPosixFilePermissions(restricted.toPath(), permissions);
+        new FileCopier().copy(restricted, new File(root, "f1.bin"));
+        assertEquals(permissions, java.nio.file.Files.getPosixFilePermissions(new File(root, "f1.bin").toPath()));
+
+        File dest = new File(root, "dest");
+        AtomicInteger calls = new AtomicInteger();
+        FileCopier.CopyReport report = new FileCopier().withParallelism(4)
+                .withProgress((file, copied, completed, total) -> {
+                    assertEquals(200, total);
+                    calls.incrementAndGet();
+                })
+                .copy(src, dest);
+        assertEquals(200, report.getCopied());
+        assertEquals(200, calls.get());
+        assertTrue(new File(dest, "empty").isDirectory());
+        assertSameTree(src, dest);
+
+        //未变化的文件被跳过, 变化的文件重新复制
+        File changed = Files.getFile(src.getPath(), "d0", "e0", "f0.bin");
+        java.nio.file.Files.write(changed.toPath(), new byte[]{1, 2, 3});
+        report = new FileCopier().withSkipUnchanged(true).copy(src, dest);
+        assertEquals(1, report.getCopied());
+        assertEquals(199, report.getSkipped());
+        assertEquals(3, report.getBytes());
+        assertSameTree(src, dest);
+
+        //Files.copy覆盖目标路径
+        Files.copy(changed, dest);
+        assertTrue(dest.isFile());
+        assertArrayEquals(new byte[]{1, 2, 3}, Files.getBytes(dest));
+    }
+
+    @Test
+    public void testHardLink() throws Exception {
+        File dest = new File(root, "linked");
+        FileCopier.CopyReport report = new FileCopier().withHardLink(true).copy(src, dest);
+        assertEquals(200, report.getCopied());
+        assertSameTree(src, dest);
+
+        //再次创建硬链接时不会删除源文件
+        report = new FileCopier().withHardLink(true).copy(src, dest);
+        assertEquals(200, report.getCopied());
+        assertSameTree(src, dest);
+
+        //复制到硬链接的目标文件时不会清空源文件, 且目标文件不再与源文件共享内容
+        File file = Files.getFile(src.getPath(), "d0", "e0", "f0.bin");
+        File target = Files.getFile(dest.getPath(), "d0", "e0", "f0.bin");
+        assertTrue(java.nio.file.Files.isSameFile(file.toPath(), target.toPath()));
+        byte[] bytes = Files.getBytes(file);
+        assertTrue(bytes.length > 0);
+        report = new FileCopier().copy(src, dest);
+        assertEquals(200, report.getCopied());
+        assertArrayEquals(bytes, Files.getBytes(file));
+        assertSameTree(src, dest);
+        assertFalse(java.nio.file.Files.isSameFile(file.toPath(), target.toPath()));
+    }
+
+    private static void assertSameTree(File expected, File actual) throws Exception {
+        String[] names = expected.list();
+        Arrays.sort(names);
+        String[] actualNames = actual.list();
+        Arrays.sort(actualNames);
+        assertArrayEquals(names, actualNames);
+        for (String name : names) {
+            File file = new File(expected, name);
+            if (file.isDirectory()) {
+                assertSameTree(file, new File(actual, name));
+            } else {
+                assertArrayEquals(java.nio.file.Files.readAllBytes(file.toPath()), java.nio.file.Files.readAllBytes(new File(actual, name).toPath()));
+                assertEquals(file.lastModified(), new File(actual, name).lastModified());
+                assertEquals(java.nio.file.Files.getPosixFilePermissions(file.toPath()),
+                        java.nio.file.Files.getPosixFilePermissions(new File(actual, name).toPath()));
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.cudrania.test.files;
+
+import com.cudrania.core.io.FileSearcher;
+import com.cudrania.core.io.Files;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author skyfalling
+ */
+public class TestFileSearcher {
+
+    private File root;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        root = java.nio.file.Files.createTempDirectory("searcher").toFile();
+        for (String module : new String[]{"core", "jdbc", "web"}) {
+            for (int i = 0; i < 20; i++) {
+                touch(module + "/src/main/java/pkg" + i % 4 + "/Class" + i + ".java");
+                touch(module + "/target/classes/pkg" + i % 4 + "/Class" + i + ".class");
+            }
+            touch(module + "/pom.xml");
+        }
+        touch("README.md");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        Files.delete(root);
+    }
+
+    @Test
+    public void testFind() {
+        //目录和文件都会被查找, 每个模块41个文件和14个目录
+        assertEquals(3 * (41 + 14) + 1, FileSearcher.listAllFiles(root).size());
+        assertEquals(60, FileSearcher.findByName(root, ".*\\.java").size());
+        File first = FileSearcher.findFirst(root, file -> file.getName().equals("pom.xml"));
+        assertEquals("pom.xml", first.getName());
+        assertNull(FileSearcher.findFirst(root, file -> file.getName().equals("none")));
+    }
+
+    @Test
+    public void testPattern() {
+        //只在匹配的目录下查找, 不读取其他目录
+        Set<Path> visited = ConcurrentHashMap.newKeySet();
+        List<File> files = new FileSearcher(root).withPattern("core/src/**/*.java")
+                .withFilter((path, attrs) -> visited.add(path) && attrs.isRegularFile())
+                .findAll();
+        assertEquals(20, files.size());
+        assertTrue(visited.stream().allMatch(path -> root.toPath().relativize(path).startsWith("core")));
+
+        assertEquals(3, new FileSearcher(root).withPattern("*/pom.xml").findAll().size());
+        assertEquals(4, new FileSearcher(root).withGlob("{*/pom.xml,README.md}").withMaxDepth(2).findAll().size());
+        assertEquals(60, new FileSearcher(root).withGlob("**.class").findAll().size());
+
+        //跳过target目录
+        assertEquals(60, new FileSearcher(root)
+                .withPrune((path, attrs) -> path.getFileName().toString().equals("target"))
+                .withFilter((path, attrs) -> attrs.isRegularFile() && !path.toString().endsWith(".xml") && !path.toString().endsWith(".md"))
+                .findAll().size());
+    }
+
+    @Test
+    public void testParallel() {
+        Set<Path> sequential;
+        try (Stream<Path> stream = new FileSearcher(root).stream()) {
+            sequential = stream.collect(Collectors.toSet());
+        }
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        Set<Path> parallel = new FileSearcher(root).withParallel(true)
+                .withFilter((path, attrs) -> threads.add(Thread.currentThread().getName()) || true)
+                .stream().collect(Collectors.toSet());
+        assertEquals(sequential, parallel);
+        assertEquals(sequential.size(), new FileSearcher(root).withParallel(true).stream().count());
+        System.out.println("threads: " + threads.size());
+
+        //找到后停止查找
+        File any = new FileSearcher(root).withParallel(true).withPattern("**/Class7.class").findAny();
+        assertTrue(any.getPath().endsWith("Class7.class"));
+    }
+
+    private void touch(String path) throws Exception {
+        File file = new File(root, path);
+        Files.createParent(file);
+        file.createNewFile();
+    }
+}
@@ -1,12 +1,21 @@
 package com.cudrania.test.files;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.junit.jupiter.api.Test;
 
@@ -52,6 +61,101 @@ public class TestIo {
 
     }
 
+    @Test
+    public void testReadFully() throws Exception {
+        File file = ResourceLoader.getFile("all200000.txt");
+        byte[] expected = java.nio.file.Files.readAllBytes(file.toPath());
+        assert Arrays.equals(expected, Files.getBytes(file));
+        assert Arrays.equals(expected, Files.getBytes(new FileInputStream(file)));
+        assert Arrays.equals(expected, Files.getBytes(new ByteArrayInputStream(expected)));
+
+        ByteBuffer mapped = Files.map(file);
+        assert mapped.isReadOnly() && mapped.remaining() == expected.length;
+        byte[] bytes = new byte[expected.length];
+        mapped.get(bytes);
+        assert Arrays.equals(expected, bytes);
+        ByteBuffer part = Files.map(file, 10, 20);
+        assert part.remaining() == 20 && part.get(0) == expected[10];
+
+        //按行读取再拼接的结果
+        StringBuilder sb = new StringBuilder();
+        Files.readLines(file, s -> sb.append(s).append(Files.NEW_LINE));
+        assert sb.toString().equals(Files.read(file));
+        assert sb.toString().equals(Files.read(file, "UTF-8"));
+
+        File temp = File.createTempFile("read", ".txt");
+        temp.deleteOnExit();
+        String[][] cases = {{"", ""}, {"a", "a\n"}, {"a\n\nb\n", "a\n\nb\n"}, {"a\r\nb", "a\nb\n"}, {"中文\n", "中文\n"}};
+        for (String[] c : cases) {
+            java.nio.file.Files.write(temp.toPath(), c[0].getBytes(StandardCharsets.UTF_8));
+            assert c[1].replace("\n", Files.NEW_LINE).equals(Files.read(temp, "UTF-8")) : c[0];
+        }
+
+        TimeCounter tc = new TimeCounter();
+        for (int round = 0; round < 3; round++) {
+            tc.start();
+            for (int i = 0; i < 100; i++) {
+                Files.read(file);
+            }
+            tc.stop();
+            System.out.println("read time cost:" + tc.timePassed());
+        }
+    }
+
+    @Test
+    public void testLines() throws Exception {
+        File file = File.createTempFile("lines", ".txt");
+        file.deleteOnExit();
+        String[] endings = {"\n", "\r\n", "\r", "\n\n"};
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 300000; i++) {
+            sb.append("第").append(i).append("行, line ").append(i).append(endings[i % endings.length]);
+        }
+        sb.append("last");
+        java.nio.file.Files.write(file.toPath(), sb.toString().getBytes(StandardCharsets.UTF_8));
+        List<String> expected = Files.readLines(file, "UTF-8");
+
+        try (Stream<String> lines = Files.lines(file, "UTF-8")) {
+            assert expected.equals(lines.collect(Collectors.toList()));
+        }
+        try (Stream<String> lines = Files.lines(file, "UTF-8")) {
+            //文件按行边界拆分
+            assert lines.spliterator().trySplit() != null;
+        }
+        try (Stream<String> lines = Files.lines(file, "UTF-8")) {
+            assert expected.equals(lines.parallel().collect(Collectors.toList()));
+        }
+        try (Stream<String> lines = Files.lines(file, "UTF-16")) {
+            assert lines.count() > 0;
+        }
+
+        List<String> ordered = new ArrayList<>();
+        Files.readLinesParallel(file, ordered::add, "UTF-8", true);
+        assert expected.equals(ordered);
+        Queue<String> unordered = new ConcurrentLinkedQueue<>();
+        Files.readLinesParallel(file, unordered::add, "UTF-8", false);
+        List<String> sorted = new ArrayList<>(unordered);
+        Collections.sort(sorted);
+        List<String> expectedSorted = new ArrayList<>(expected);
+        Collections.sort(expectedSorted);
+        assert expectedSorted.equals(sorted);
+
+        TimeCounter tc = new TimeCounter();
+        for (int round = 0; round < 3; round++) {
+            tc.start();
+            LongAdder length = new LongAdder();
+            Files.readLines(file, s -> length.add(s.length()), "UTF-8");
+            tc.stop();
+            System.out.println("readLines time cost:" + tc.timePassed() + ", chars:" + length.sum());
+            tc.start();
+            LongAdder parallelLength = new LongAdder();
+            Files.readLinesParallel(file, s -> parallelLength.add(s.length()), "UTF-8", false);
+            tc.stop();
+            System.out.println("readLinesParallel time cost:" + tc.timePassed() + ", chars:" + parallelLength.sum());
+            assert length.sum() == parallelLength.sum();
+        }
+    }
+
     public static byte[] getBytes(File file) {
         try {
             return getBytes(new FileInputStream(file));
@@ -1,9 +1,17 @@
 package com.cudrania.test.math;
 
+import com.cudrania.algorithm.Calculator;
+import com.cudrania.algorithm.CompiledExpression;
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
 import static com.cudrania.algorithm.Calculator.calculate;
 
 
@@ -18,6 +26,63 @@ public class TestMath {
     })
     public void test(String expr, double res) {
         Assertions.assertEquals(res, calculate(expr));
+        Assertions.assertEquals(res, Calculator.compile(expr).eval());
+    }
+
+    @Test
+    public void testCompile() {
+        CompiledExpression expr = Calculator.compile("price * (1 - discount) + fee * (2 ** 3)");
+        Assertions.assertEquals(Arrays.asList("price", "discount", "fee"), expr.getVariables());
+        Assertions.assertFalse(expr.isConstant());
+        Assertions.assertEquals(100 * 0.8 + 8, expr.eval(100, 0.2, 1));
+        Map<String, Number> bindings = new HashMap<>();
+        bindings.put("price", 50);
+        bindings.put("discount", 0.5);
+        bindings.put("fee", 2);
+        Assertions.assertEquals(50 * 0.5 + 16, expr.eval(bindings));
+        Assertions.assertSame(expr, Calculator.compile("price * (1 - discount) + fee * (2 ** 3)"));
+        Assertions.assertTrue(Calculator.compile("(1 + 2) * 3 - -4").isConstant());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> expr.eval(1, 2));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> expr.eval(new HashMap<>()));
+    }
+
+    @Test
+    public void testGenerate() {
+        // 30个左右操作符的规则公式
+        String formula = "base * (1 + rate) ** years - fee * 12 + bonus / (1 + tax) "
+                + "- (base % 7) * discount + ((level | 3) << 2) - (level & 1) + (level ^ 5) "
+                + "+ (score - avg) * weight / (max - min + 1) - -penalty * 0.5 + (2 ** 3) * 1.5";
+        CompiledExpression interpreted = Calculator.compile(formula);
+        CompiledExpression generated = Calculator.compile(formula, true);
+        Assertions.assertTrue(generated.isGenerated());
+        Assertions.assertSame(generated, interpreted.generate());
+        int size = interpreted.getVariables().size();
+        Random random = new Random(3);
+        double[][] inputs = new double[1000][size];
+        for (double[] input : inputs) {
+            for (int i = 0; i < size; i++) {
+                input[i] = random.nextInt(100) + random.nextDouble();
+            }
+            Assertions.assertEquals(interpreted.eval(input), generated.eval(input));
+        }
+        for (int round = 0; round < 3; round++) {
+            System.out.println(String.format("interpreted: %d ns/op, generated: %d ns/op",
+                    benchmark(interpreted, inputs), benchmark(generated, inputs)));
+        }
+    }
+
+    private static long benchmark(CompiledExpression expression, double[][] inputs) {
+        int times = 1000;
+        double sum = 0;
+        long begin = System.nanoTime();
+        for (int t = 0; t < times; t++) {
+            for (double[] input : inputs) {
+                sum += expression.eval(input);
+            }
+        }
+        long cost = (System.nanoTime() - begin) / ((long) times * inputs.length);
+        Assertions.assertFalse(Double.isNaN(sum));
+        return cost;
     }
 
 }
@@ -1,7 +1,9 @@
 package com.cudrania.test.pipeline;
 
 
+import com.cudrania.core.pipeline.Pipeline;
 import com.cudrania.core.pipeline.Pipeline3;
+import com.cudrania.core.pipeline.PipelineTracer;
 import com.cudrania.core.pipeline.Pipelines;
 import com.cudrania.test.bean.Account;
 import com.cudrania.test.bean.Home;
@@ -9,6 +11,21 @@ import com.cudrania.test.bean.User;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
 public class PipeLineTest {
 
 
@@ -40,6 +57,182 @@ public class PipeLineTest {
     }
 
 
+    @Test
+    public void testConcurrent() throws Exception {
+        AllAbilities allAbilities = new AllAbilities();
+        Pipeline3<Long, String, String, Home> pipeline = Pipelines
+                .of(Inputs::input1, Inputs::input2, Inputs::input3)
+                .with(Inputs::input1, Inputs::input2)
+                .and(allAbilities::createAccount)
+                .as(Outputs::account)
+                .and(allAbilities::createUser)
+                .as(Outputs::user1)
+                .with(Outputs::account)
+                .and(allAbilities::createUser)
+                .as(Outputs::user2)
+                .with(Inputs::input3, Outputs::user1, Outputs::user2)
+                .and(allAbilities::createHome)
+                .end();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Home>> futures = IntStream.range(0, 500)
+                    .mapToObj(i -> executor.submit(() -> pipeline.eval((long) i, "user" + i, "city" + i)))
+                    .collect(Collectors.toList());
+            for (int i = 0; i < futures.size(); i++) {
+                Home home = futures.get(i).get();
+                Assertions.assertEquals("address:city" + i, home.getAddress());
+                Assertions.assertEquals("u-" + i, home.getUsers().get(0).getUserId());
+                Assertions.assertEquals("user" + i, home.getUsers().get(1).getUserName());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+
+    @Test
+    public void testAsync() throws Exception {
+        AllAbilities allAbilities = new AllAbilities();
+        //三个独立的查询都到达屏障后才能返回, 串行执行时第一个查询会等待超时
+        CyclicBarrier barrier = new CyclicBarrier(3);
+        Pipeline3<Long, String, String, Home> pipeline = Pipelines
+                .of(Inputs::input1, Inputs::input2, Inputs::input3)
+                .with(Inputs::input1, Inputs::input2)
+                .and((Long id, String name) -> lookup(barrier, allAbilities.createAccount(id, name)))
+                .as(Outputs::account)
+                .with(Inputs::input1, Inputs::input2)
+                .and((Long id, String name) -> lookup(barrier, new User("u-" + id, name)))
+                .as(Outputs::user1)
+                .with(Inputs::input2)
+                .and((String name) -> lookup(barrier, new User("v-" + name, name)))
+                .as(Outputs::user2)
+                .with(Inputs::input3, Outputs::user1, Outputs::user2)
+                .and(allAbilities::createHome)
+                .end();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            CompletableFuture<Home> future = pipeline.evalAsync(1000001L, "jack.wang", "china.beijing", executor);
+            Home home = future.get();
+            Assertions.assertEquals("address:china.beijing", home.getAddress());
+            Assertions.assertEquals("u-1000001", home.getUsers().get(0).getUserId());
+            Assertions.assertEquals("v-jack.wang", home.getUsers().get(1).getUserId());
+            Assertions.assertEquals(home, pipeline.evalAsync(1000001L, "jack.wang", "china.beijing", executor).get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+
+    @Test
+    public void testAsyncFailure() {
+        Pipeline3<Long, String, String, String> pipeline = Pipelines
+                .of(Inputs::input1, Inputs::input2, Inputs::input3)
+                .with(Inputs::input2)
+                .and((String name) -> {
+                    throw new IllegalArgumentException(name);
+                })
+                .with(Inputs::input3)
+                .and((String address) -> address)
+                .end();
+        CompletableFuture<String> future = pipeline.evalAsync(1L, "jack.wang", "china.beijing", Runnable::run);
+        Exception e = Assertions.assertThrows(Exception.class, future::join);
+        Assertions.assertEquals(IllegalArgumentException.class, e.getCause().getClass());
+    }
+
+
+    /**
+     * 模拟远程调用, 等待所有并发的调用都到达屏障后返回
+     */
+    private static <T> T lookup(CyclicBarrier barrier, T value) {
+        try {
+            barrier.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (BrokenBarrierException | TimeoutException e) {
+            throw new IllegalStateException("independent steps did not run concurrently", e);
+        }
+        return value;
+    }
+
+
+    @Test
+    public void testTracer() {
+        AllAbilities allAbilities = new AllAbilities();
+        List<String> traces = Collections.synchronizedList(new ArrayList<>());
+        PipelineTracer tracer = (depth, inputNames, inputs, outputNames, output, error, nanos) -> {
+            Assertions.assertTrue(nanos >= 0);
+            traces.add(depth + ":" + output.getClass().getSimpleName() + ":" + (error == null ? "" : error.getMessage()));
+        };
+        Pipeline3<Long, String, String, Home> pipeline = Pipelines
+                .of(Inputs::input1, Inputs::input2, Inputs::input3)
+                .with(Inputs::input1, Inputs::input2)
+                .and(allAbilities::createAccount)
+                .as(Outputs::account)
+                .and((Account account) -> {
+                    throw new IllegalStateException("user service down");
+                })
+                .failOver(e -> new User("guest", "guest"))
+                .as(Outputs::user1)
+                .with(Outputs::account)
+                .and(allAbilities::createUser)
+                .as(Outputs::user2)
+                .with(Inputs::input3, Outputs::user1, Outputs::user2)
+                .and(allAbilities::createHome)
+                .end(tracer);
+        Home home = pipeline.eval(1000001L, "jack.wang", "china.beijing");
+        Assertions.assertEquals("guest", home.getUsers().get(0).getUserId());
+        Assertions.assertEquals(Arrays.asList("1:Account:", "2:User:user service down", "3:User:", "4:Home:"), traces);
+        Pipelines.of(Inputs::input1).and(String::valueOf).end(PipelineTracer.logging()).eval(1L);
+    }
+
+
+    @Test
+    public void testBenchmark() {
+        Pipeline<Integer, Integer> pipeline = Pipelines.of(Integer.class)
+                .and(PipeLineTest::increase).and(PipeLineTest::increase).and(PipeLineTest::increase)
+                .and(PipeLineTest::increase).and(PipeLineTest::increase).and(PipeLineTest::increase)
+                .and(PipeLineTest::increase).and(PipeLineTest::increase).and(PipeLineTest::increase)
+                .and(PipeLineTest::increase)
+                .end();
+        Assertions.assertEquals(10, pipeline.eval(0));
+        int steps = 10;
+        for (int round = 0; round < 3; round++) {
+            long direct = benchmark(i -> increase(increase(increase(increase(increase(
+                    increase(increase(increase(increase(increase(i)))))))))), steps);
+            long lean = benchmark(pipeline::eval, steps);
+            System.out.println(String.format("direct: %d ns/step, pipeline: %d ns/step", direct, lean));
+        }
+    }
+
+    private static Integer increase(Integer i) {
+        return i + 1;
+    }
+
+    private static long benchmark(java.util.function.Function<Integer, Integer> function, int steps) {
+        int times = 1_000_000;
+        long sum = 0;
+        long begin = System.nanoTime();
+        for (int t = 0; t < times; t++) {
+            sum += function.apply(t & 1023);
+        }
+        long cost = (System.nanoTime() - begin) / ((long) times * steps);
+        Assertions.assertTrue(sum > 0);
+        return cost;
+    }
+
+
+    @Test
+    public void testUndefinedParam() {
+        AllAbilities allAbilities = new AllAbilities();
+        Assertions.assertThrows(IllegalStateException.class, () -> Pipelines
+                .of(Inputs::input1)
+                .with(Outputs::account)
+                .and(allAbilities::createUser)
+                .end());
+    }
+
+
     /**
      * 参数输入
      */
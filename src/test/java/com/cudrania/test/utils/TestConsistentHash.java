@@ -1,12 +1,16 @@
 package com.cudrania.test.utils;
 
 import com.cudrania.algorithm.ConsistentHash;
+import com.cudrania.algorithm.HashFunction;
+import com.cudrania.algorithm.HashRing;
 import com.cudrania.core.collection.map.CounterMap;
 import org.junit.jupiter.api.Test;
 
 import java.util.*;
 import java.util.Map.Entry;
 
+import static org.junit.jupiter.api.Assertions.*;
+
 public class TestConsistentHash {
 
 
@@ -47,6 +51,42 @@ public class TestConsistentHash {
     }
 
 
+    /**
+     * 测试哈希环节点变化时的数据迁移
+     */
+    @Test
+    public void testHashRing() {
+        List<String> keys = new ArrayList<String>(Arrays.asList("a", "b", "c", "d", "e"));
+        List<String> data = getAllData(100000);
+        HashRing<String> ring = new HashRing<>(keys, 160, HashFunction.xxHash64(17));
+        Map<String, String> before = new HashMap<>();
+        CounterMap<String> counterMap = new CounterMap<String>();
+        for (String d : data) {
+            String target = ring.getTarget(d);
+            before.put(d, target);
+            counterMap.increase(target);
+        }
+        System.out.println(counterMap);
+        assertEquals(keys.size(), counterMap.size());
+
+        assertTrue(ring.removeNode("c"));
+        assertFalse(ring.removeNode("c"));
+        for (String d : data) {
+            String target = ring.getTarget(d);
+            // 只有被移除节点上的数据发生迁移
+            if (!before.get(d).equals("c")) {
+                assertEquals(before.get(d), target);
+            } else {
+                assertNotEquals("c", target);
+            }
+        }
+        assertTrue(ring.addNode("c"));
+        for (String d : data) {
+            assertEquals(before.get(d), ring.getTarget(d));
+        }
+    }
+
+
     private static void test(Collection<String> list, List<String> keys, Map<String, List<String>> multiMap) {
         CounterMap<String> counterMap = new CounterMap<String>();
         ConsistentHash<String> hash = new ConsistentHash<>(keys);
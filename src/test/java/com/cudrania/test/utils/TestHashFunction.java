@@ -0,0 +1,117 @@
+package com.cudrania.test.utils;
+
+import com.cudrania.algorithm.HashFunction;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 校验{@link HashFunction}的内置实现与参考实现的结果一致
+ *
+ * @author skyfalling
+ */
+public class TestHashFunction {
+
+    /**
+     * MurmurHash3_x64_128的h1, 输入为SMHasher校验用的键{0, 1, ..., n-1}, 种子分别为0和256-n<br>
+     * 由参考实现计算, 该实现的SMHasher校验值为0x6384BA69
+     */
+    private static final long[][] MURMUR3 = {
+            {0, 0x0000000000000000L, 0xDA0D50EE3AEECD8DL},
+            {1, 0x4610ABE56EFF5CB5L, 0x2292C721292B5B0DL},
+            {2, 0x7CB3F5C58DAB264CL, 0xE8A78496B423EB2EL},
+            {3, 0xB872A12FEF53E6BEL, 0x22854010298671DCL},
+            {4, 0xE1C594AE0DDFAF10L, 0xF5E94928271DB487L},
+            {5, 0x41EE8CD4A6F94036L, 0x1104ADFF6E765DAAL},
+            {6, 0x66983ABBA4F5043CL, 0x8ED7EDF3D9470504L},
+            {7, 0xBD4C6987CA4B0D68L, 0x61EE315747702434L},
+            {8, 0x47A7E1BDD68E2FC8L, 0x150979E5A4BC3510L},
+            {9, 0xFBB4CB0F6E812D32L, 0x8EB2F8E524AD2C85L},
+            {10, 0xCFCA25E89E58E463L, 0x20FD74D38D777AA7L},
+            {11, 0xC57B4F47C7564F88L, 0x7EFF563164F7468EL},
+            {12, 0xB35DA7E69212A5CAL, 0x80AD192268DFFCE0L},
+            {13, 0x4B52D9F2C55F41C2L, 0xBE299D85AE1D7C75L},
+            {14, 0x5FA933EE35906D64L, 0xCFC431601913D5C4L},
+            {15, 0x47231598FD4925E9L, 0x4A5B4D6DC378941FL},
+            {16, 0x444924B591903F30L, 0x41D923EE417480A8L},
+            {17, 0x5C76F40F9FE7C20EL, 0x75EB935D92722768L},
+            {31, 0x053DD3E1A32CD094L, 0x913359760517B319L},
+            {32, 0xC66D9022B62F500FL, 0xF0AF23BB988B4FDFL},
+            {33, 0x7D41281BFABA4612L, 0x0DA879F1CED5CBAAL}
+    };
+
+    /**
+     * XXH64, 输入为xxhsum自检缓冲区的前n个字节, 种子分别为0和PRIME32(2654435761)<br>
+     * 长度0、1、4、14、222为xxhsum公布的自检值, 其余由参考实现计算
+     */
+    private static final long[][] XXH64 = {
+            {0, 0xEF46DB3751D8E999L, 0xAC75FDA2929B17EFL},
+            {1, 0xE934A84ADB052768L, 0x5014607643A9B4C3L},
+            {2, 0x5D48CD60A77E23FFL, 0x9E93152232D54A39L},
+            {3, 0xFF7E1959CB50794AL, 0xAA8584E83660F7D1L},
+            {4, 0x9136A0DCA57457EEL, 0xCAAB286BD8E9FDB5L},
+            {5, 0x9B046FB1397F09A5L, 0x2AF5249930F984ECL},
+            {6, 0xC72565B7154268A8L, 0xCA4C6723580E8EF6L},
+            {7, 0x6C83909A9F01ED25L, 0xF98D03B1AD6F9293L},
+            {8, 0xCDBCF538E71D1348L, 0xFE0C047A5353CDACL},
+            {9, 0x554B1AE991EDA6B6L, 0x7908265248F6D73FL},
+            {10, 0x5D00E7351392EA84L, 0x2A8AE16B86CD2F12L},
+            {11, 0x6345D5746F35DA70L, 0xEAA08A8C8BE3CCCFL},
+            {12, 0x0723BF50086EAD9AL, 0x8252819F4E506951L},
+            {13, 0xC2E5013E3C40BCF7L, 0x4DF437A291CB1039L},
+            {14, 0x8282DCC4994E35C8L, 0xC3BD6BF63DEB6DF0L},
+            {15, 0x180719316D622D84L, 0xD61105C20E91F99FL},
+            {16, 0x98C90B57FDFCB55CL, 0xC900AD2D536B607EL},
+            {17, 0x0D39A2D051A30C2CL, 0x495CD68A647C7A22L},
+            {31, 0x299B39A290E6D783L, 0xDA673D5FEB5C1D79L},
+            {32, 0x18B216492BB44B70L, 0xB3F33BDF93ADE409L},
+            {33, 0x55C8DC3E578F5B59L, 0xE92C292F64BC3071L},
+            {222, 0xB641AE8CB691C174L, 0x20CB8AB7AE10C14AL}
+    };
+
+    @Test
+    public void testMurmur3() {
+        for (long[] vector : MURMUR3) {
+            int n = (int) vector[0];
+            byte[] key = new byte[n];
+            for (int i = 0; i < n; i++) {
+                key[i] = (byte) i;
+            }
+            assertEquals(vector[1], HashFunction.murmur3(0).hash(key), "length " + n);
+            assertEquals(vector[2], HashFunction.murmur3(256 - n).hash(key), "length " + n);
+        }
+        //Guava Murmur3Hash128Test中的向量, 低64位按小端序为6c1b07bc7bbc4be3
+        assertEquals(0xE34BBC7BBC071B6CL, HashFunction.murmur3(0).hash("The quick brown fox jumps over the lazy dog"));
+    }
+
+    @Test
+    public void testXxHash64() {
+        byte[] buffer = sanityBuffer(222);
+        for (long[] vector : XXH64) {
+            int n = (int) vector[0];
+            byte[] data = new byte[n];
+            System.arraycopy(buffer, 0, data, 0, n);
+            assertEquals(vector[1], HashFunction.xxHash64(0).hash(data), "length " + n);
+            assertEquals(vector[2], HashFunction.xxHash64(2654435761L).hash(data), "length " + n);
+        }
+        assertEquals(0x44BC2CF5AD770999L, HashFunction.xxHash64(0).hash("abc".getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    /**
+     * xxhsum自检使用的伪随机缓冲区, 乘数为xxhsum中的PRIME64(11400714785074694797), 与XXH64的PRIME64_1不同
+     *
+     * @param length
+     * @return
+     */
+    private static byte[] sanityBuffer(int length) {
+        byte[] buffer = new byte[length];
+        long byteGen = 2654435761L;
+        for (int i = 0; i < length; i++) {
+            buffer[i] = (byte) (byteGen >>> 56);
+            byteGen *= 0x9E3779B185EBCA8DL;
+        }
+        return buffer;
+    }
+}
@@ -0,0 +1,170 @@
+package com.cudrania.test.utils;
+
+import com.cudrania.algorithm.BoundedLoadRouter;
+import com.cudrania.algorithm.HashFunction;
+import com.cudrania.algorithm.HashRing;
+import com.cudrania.algorithm.HashRouter;
+import com.cudrania.algorithm.JumpHashRouter;
+import com.cudrania.algorithm.RendezvousRouter;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 对比各路由策略的查找耗时、内存占用、负载分布以及增加节点时的数据迁移量
+ */
+public class TestHashRouter {
+
+    private static final int NODES = 10;
+    private static final int KEYS = 200000;
+
+    @Test
+    public void benchmark() {
+        List<String> keys = getAllData(KEYS);
+        Map<String, Function<List<String>, HashRouter<String>>> factories = new LinkedHashMap<>();
+        factories.put("ring(512)", nodes -> new HashRing<>(nodes, 512, HashFunction.murmur3(0)));
+        factories.put("jump", JumpHashRouter::new);
+        factories.put("rendezvous", RendezvousRouter::new);
+        for (Map.Entry<String, Function<List<String>, HashRouter<String>>> entry : factories.entrySet()) {
+            Function<List<String>, HashRouter<String>> factory = entry.getValue();
+            List<String> nodes = nodes(NODES);
+            long memory = memory(() -> factory.apply(nodes));
+            HashRouter<String> router = factory.apply(nodes);
+            Map<String, String> before = route(router, keys);
+            long cost = lookup(router, keys);
+            List<String> more = nodes(NODES + 1);
+            Map<String, String> after = route(factory.apply(more), keys);
+            int moved = moved(before, after);
+            System.out.println(String.format("%-12s lookup: %4d ns/op, memory: ~%7d bytes, moved: %.2f%%, max load: %.2f%%",
+                    entry.getKey(), cost, memory, moved * 100.0 / keys.size(), maxLoad(router.getLoads())));
+            // 增加一个节点时, 迁移的数据量应接近1/(n+1)
+            assertTrue(moved < keys.size() * 2.0 / (NODES + 1));
+        }
+    }
+
+    @Test
+    public void testBoundedLoad() {
+        // 倾斜的数据: 一半的请求集中在少数几个key上
+        List<String> keys = getAllData(KEYS / 2);
+        Random random = new Random(1);
+        for (int i = 0; i < KEYS / 2; i++) {
+            keys.add("hot-" + random.nextInt(3));
+        }
+        Collections.shuffle(keys, random);
+        BoundedLoadRouter<String> router = new BoundedLoadRouter<>(nodes(NODES), 0.25);
+        for (String key : keys) {
+            assertNotNull(router.getTarget(key));
+        }
+        Map<String, Long> loads = router.getLoads();
+        System.out.println("bounded load: " + loads);
+        long capacity = (long) Math.ceil(1.25 * keys.size() / NODES);
+        for (Long load : loads.values()) {
+            assertTrue(load <= capacity);
+        }
+        String node = router.getNodes().get(0);
+        long load = loads.get(node);
+        router.release(node);
+        assertEquals(load - 1, router.getLoads().get(node));
+    }
+
+    @Test
+    public void testWeightedRendezvous() {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        weights.put("small", 1);
+        weights.put("large", 3);
+        RendezvousRouter<String> router = new RendezvousRouter<>(weights);
+        route(router, getAllData(KEYS));
+        Map<String, Long> loads = router.getLoads();
+        double ratio = loads.get("large") * 1.0 / loads.get("small");
+        System.out.println("weighted rendezvous: " + loads);
+        assertEquals(3.0, ratio, 0.3);
+    }
+
+    private static Map<String, String> route(HashRouter<String> router, List<String> keys) {
+        Map<String, String> map = new HashMap<>();
+        for (String key : keys) {
+            map.put(key, router.getTarget(key));
+        }
+        return map;
+    }
+
+    private static long lookup(HashRouter<String> router, List<String> keys) {
+        // 预热
+        for (int i = 0; i < 3; i++) {
+            route(router, keys);
+        }
+        long begin = System.nanoTime();
+        int n = 0;
+        for (String key : keys) {
+            n += router.getTarget(key).length();
+        }
+        assertTrue(n > 0);
+        return (System.nanoTime() - begin) / keys.size();
+    }
+
+    private static int moved(Map<String, String> before, Map<String, String> after) {
+        int moved = 0;
+        for (Map.Entry<String, String> entry : before.entrySet()) {
+            if (!entry.getValue().equals(after.get(entry.getKey()))) {
+                moved++;
+            }
+        }
+        return moved;
+    }
+
+    private static double maxLoad(Map<String, Long> loads) {
+        long total = 0, max = 0;
+        for (Long load : loads.values()) {
+            total += load;
+            max = Math.max(max, load);
+        }
+        return max * 100.0 / total;
+    }
+
+    /**
+     * 粗略估算对象占用的堆内存
+     */
+    private static long memory(Supplier<Object> supplier) {
+        Object[] holder = new Object[20];
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long used = runtime.totalMemory() - runtime.freeMemory();
+        for (int i = 0; i < holder.length; i++) {
+            holder[i] = supplier.get();
+        }
+        System.gc();
+        long size = (runtime.totalMemory() - runtime.freeMemory() - used) / holder.length;
+        return holder[0] != null ? Math.max(size, 0) : 0;
+    }
+
+    private static List<String> nodes(int size) {
+        List<String> nodes = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            nodes.add("node-" + i);
+        }
+        return nodes;
+    }
+
+    private static List<String> getAllData(int size) {
+        List<String> list = new ArrayList<String>(size);
+        Random random = new Random(size);
+        for (int i = 0; i < size; i++) {
+            StringBuilder sb = new StringBuilder();
+            for (int j = 0; j < random.nextInt(20) + 10; j++) {
+                sb.append((char) (random.nextInt(95) + 32));
+            }
+            list.add(sb.toString());
+        }
+        return list;
+    }
+}
@@ -1,14 +1,22 @@
 package com.cudrania.test.utils;
 
+import com.cudrania.algorithm.BytesLoserTree;
+import com.cudrania.algorithm.LongLoserTree;
 import com.cudrania.algorithm.LoserTree;
 
 import org.junit.jupiter.api.Test;
 
+import java.nio.LongBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 public class TestLoserTree {
 
@@ -49,4 +57,29 @@ public class TestLoserTree {
 			System.out.print(n + " ");
 	}
 
+	@Test
+	public void testLong() {
+		Random random = new Random(7);
+		List<LongLoserTree.Source> sources = new ArrayList<>();
+		long[][] arrays = new long[64][];
+		for (int i = 0; i < arrays.length; i++) {
+			arrays[i] = random.longs(random.nextInt(500)).sorted().toArray();
+			sources.add(LongLoserTree.Source.of(LongBuffer.wrap(arrays[i])));
+		}
+		long[] expected = Arrays.stream(arrays).flatMapToLong(Arrays::stream).sorted().toArray();
+		assertArrayEquals(expected, new LongLoserTree(arrays).stream().toArray());
+		assertArrayEquals(expected, new LongLoserTree(sources, 16).stream().toArray());
+	}
+
+	@Test
+	public void testBytes() {
+		List<byte[]> list1 = Arrays.asList("a".getBytes(), "c".getBytes(), "e".getBytes());
+		List<byte[]> list2 = Arrays.asList("b".getBytes(), "d".getBytes());
+		BytesLoserTree tree = new BytesLoserTree(Arrays.asList(
+				BytesLoserTree.Source.of(list1.iterator()), BytesLoserTree.Source.of(list2.iterator())));
+		StringBuilder sb = new StringBuilder();
+		tree.merge(bytes -> sb.append(new String(bytes)));
+		assertEquals("abcde", sb.toString());
+	}
+
 }
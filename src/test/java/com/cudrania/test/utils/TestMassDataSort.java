@@ -1,12 +1,24 @@
 package com.cudrania.test.utils;
 
 import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import org.junit.jupiter.api.Test;
 
 import com.cudrania.core.loader.ResourceLoader;
 import com.cudrania.algorithm.MassSorter;
+import com.cudrania.algorithm.RecordCodec;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 public class TestMassDataSort {
 	@Test
@@ -33,4 +45,84 @@ public class TestMassDataSort {
 		mds.sort(f1, f2);
 
 	}
+
+	@Test
+	public void testParallel() throws Exception {
+		File src = ResourceLoader.getFile("search20000.txt");
+		File dest = File.createTempFile("sorted", ".txt");
+		dest.deleteOnExit();
+		// 小的fanIn以触发多趟归并
+		MassSorter.SortReport report = new MassSorter(1000)
+				.withFanIn(4)
+				.withPool(new ForkJoinPool(4))
+				.sortParallel(src, dest);
+		System.out.println(report);
+
+		List<String> expected = new ArrayList<>(Files.readAllLines(src.toPath()));
+		expected.sort(Comparator.naturalOrder());
+		assertEquals(expected, Files.readAllLines(dest.toPath()));
+	}
+
+	@Test
+	public void testParallelCharset() throws Exception {
+		List<String> lines = new ArrayList<>();
+		for (int i = 0; i < 3000; i++) {
+			lines.add("排序" + (i * 7919 % 3000) + "é");
+		}
+		for (Charset charset : new Charset[]{StandardCharsets.UTF_8, StandardCharsets.UTF_16, Charset.forName("GBK")}) {
+			File src = File.createTempFile("unsorted", ".txt");
+			File dest = File.createTempFile("sorted", ".txt");
+			src.deleteOnExit();
+			dest.deleteOnExit();
+			Files.write(src.toPath(), lines, charset);
+			new MassSorter(1000).withFanIn(4).withCharset(charset).sortParallel(src, dest);
+			List<String> expected = new ArrayList<>(lines);
+			expected.sort(Comparator.naturalOrder());
+			assertEquals(expected, Files.readAllLines(dest.toPath(), charset));
+		}
+	}
+
+	@Test
+	public void testParallelBinary() throws Exception {
+		File src = ResourceLoader.getFile("search20000.txt");
+		List<String> expected = new ArrayList<>(Files.readAllLines(src.toPath()));
+		expected.sort(Comparator.naturalOrder());
+		for (RecordCodec codec : new RecordCodec[]{RecordCodec.lengthPrefixed(), RecordCodec.fixedWidth(16), RecordCodec.zeroPadded(16)}) {
+			File dest = File.createTempFile("sorted", ".txt");
+			dest.deleteOnExit();
+			MassSorter.SortReport report = new MassSorter(1000)
+					.withFanIn(8)
+					.withCodec(codec)
+					.withBufferSize(1024)
+					.sortParallel(src, dest);
+			System.out.println(report);
+			assertEquals(expected, Files.readAllLines(dest.toPath()));
+		}
+	}
+
+	@Test
+	public void testFixedWidth() {
+		// 以0结尾或仅末尾0不同的二进制键
+		byte[][] keys = {{}, {0}, {1, 0}, {1, 0, 0}, {1}, {0, 0, 0, 0}, {(byte) 0xFF, 0, 1, 0}};
+		for (int width : new int[]{4, 300}) {
+			RecordCodec codec = RecordCodec.fixedWidth(width);
+			ByteBuffer buffer = ByteBuffer.allocate(keys.length * codec.encodedSize(keys[0]));
+			for (byte[] key : keys) {
+				codec.encode(key, buffer);
+			}
+			assertEquals(0, buffer.remaining());
+			buffer.flip();
+			for (byte[] key : keys) {
+				assertArrayEquals(key, codec.decode(buffer, false));
+			}
+			assertNull(codec.decode(buffer, true));
+		}
+
+		// 文本记录去除末尾补齐的0
+		RecordCodec padded = RecordCodec.zeroPadded(4);
+		ByteBuffer buffer = ByteBuffer.allocate(4);
+		padded.encode(new byte[]{'a', 'b'}, buffer);
+		buffer.flip();
+		assertArrayEquals(new byte[]{'a', 'b'}, padded.decode(buffer, true));
+	}
 }